@@ -0,0 +1,50 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.shadew.flow.animation;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EasingBenchmark {
+    private static final int SAMPLES = 1000;
+
+    @Param({"LINEAR", "QUART_IN_OUT", "SINE_IN_OUT", "EASE", "EASE_IN_OUT"})
+    public String easing;
+
+    private Easing fn;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        fn = (Easing) Easing.class.getField(easing).get(null);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public double ease() {
+        double sum = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            sum += fn.ease(i / (double) SAMPLES);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.shadew.flow.animation;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimelineBenchmark {
+    @Param({"100", "1000", "10000", "100000"})
+    public int animations;
+
+    private Timeline timeline;
+    private Timeline batchTimeline;
+    private Timeline parallelTimeline;
+    private double time;
+
+    @Setup
+    public void setup() {
+        timeline = new Timeline();
+        float[] values = new float[animations];
+        for (int i = 0; i < animations; i++) {
+            int index = i;
+            timeline.append(
+                new FloatPropertyAnimation(() -> values[index], v -> values[index] = v)
+                    .target(1)
+                    .start(i % 10)
+                    .duration(2)
+                    .easing(Easing.QUART_IN_OUT)
+            );
+        }
+
+        batchTimeline = new Timeline();
+        batchTimeline.append(createBatch());
+        parallelTimeline = new Timeline();
+        parallelTimeline.append(createBatch().parallel(ForkJoinPool.commonPool()).parallelThreshold(0));
+    }
+
+    private AnimationBatch createBatch() {
+        PropertySlots slots = new PropertySlots();
+        AnimationBatch batch = new AnimationBatch(slots);
+        for (int i = 0; i < animations; i++) {
+            batch.addFloat(slots.addFloat(0), 1, i % 10, i % 10 + 2, Easing.QUART_IN_OUT);
+        }
+        return batch;
+    }
+
+    @Benchmark
+    public void runAndCleanup() {
+        time = (time + 1 / 60d) % 12;
+        timeline.runAnimations(time);
+        timeline.cleanupAnimations(time);
+    }
+
+    @Benchmark
+    public void seekAndReset() {
+        time = (time + 1 / 60d) % 12;
+        timeline.seek(time);
+        timeline.reset();
+    }
+
+    @Benchmark
+    public void runAndCleanupBatch() {
+        time = (time + 1 / 60d) % 12;
+        batchTimeline.runAnimations(time);
+        batchTimeline.cleanupAnimations(time);
+    }
+
+    @Benchmark
+    public void runAndCleanupParallelBatch() {
+        time = (time + 1 / 60d) % 12;
+        parallelTimeline.runAnimations(time);
+        parallelTimeline.cleanupAnimations(time);
+    }
+}
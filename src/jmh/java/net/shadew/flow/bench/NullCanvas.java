@@ -0,0 +1,537 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shadew.flow.bench;
+
+import org.joml.Matrix3x2f;
+import org.joml.Matrix3x2fc;
+import org.joml.Vector2f;
+import org.joml.Vector2fc;
+
+import net.shadew.flow.util.Font;
+import net.shadew.flow.util.NativeImage;
+import net.shadew.flow.view.canvas2d.context.BlendFactor;
+import net.shadew.flow.view.canvas2d.context.CanvasContext;
+import net.shadew.flow.view.canvas2d.context.CompositeOperation;
+import net.shadew.flow.view.canvas2d.context.LineCap;
+import net.shadew.flow.view.canvas2d.context.LineJoin;
+import net.shadew.flow.view.canvas2d.context.ShapeInstances;
+import net.shadew.flow.view.canvas2d.context.Texture;
+import net.shadew.flow.view.canvas2d.context.Winding;
+
+/**
+ * A canvas context that ignores all calls, for benchmarking code that drives a canvas without a GL context. Calls are
+ * plain virtual calls that do nothing, so they add as little as possible to the measured code. Its transform is always
+ * the identity.
+ */
+public final class NullCanvas implements CanvasContext {
+    private NullCanvas() {
+    }
+
+    public static CanvasContext create() {
+        return new NullCanvas();
+    }
+
+    @Override
+    public void beginFrame(float width, float height, float pixelRatio) {
+    }
+
+    @Override
+    public void endFrame() {
+    }
+
+    @Override
+    public CanvasContext beginPath() {
+        return this;
+    }
+
+    @Override
+    public CanvasContext moveTo(float x, float y) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext moveTo(Vector2fc v) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext lineTo(float x, float y) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext lineTo(Vector2fc v) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext quadTo(float cx, float cy, float x, float y) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext quadTo(Vector2fc c, Vector2fc v) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext curveTo(float cx1, float cy1, float cx2, float cy2, float x, float y) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext curveTo(Vector2fc c1, Vector2fc c2, Vector2fc v) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext arcTo(float x1, float y1, float x2, float y2, float radius) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext arcTo(Vector2fc p1, Vector2fc p2, float radius) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext closePath() {
+        return this;
+    }
+
+    @Override
+    public void fill() {
+    }
+
+    @Override
+    public void stroke() {
+    }
+
+    @Override
+    public CanvasContext fillColor(int argb) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext fillColor(float r, float g, float b, float a) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext fillLinearGradient(int sargb, float sx, float sy, int eargb, float ex, float ey) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext fillRadialGradient(float cx, float cy, int iargb, float ir, int oargb, float or) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext fillBoxGradient(float x, float y, float w, float h, float r, float f, int iargb, int oargb) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext fillTexture(Texture texture, float ox, float oy, float w, float h, float angle, float alpha) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext strokeColor(int argb) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext strokeColor(float r, float g, float b, float a) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext strokeLinearGradient(int sargb, float sx, float sy, int eargb, float ex, float ey) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext strokeRadialGradient(float cx, float cy, int iargb, float ir, int oargb, float or) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext strokeBoxGradient(float x, float y, float w, float h, float r, float f, int iargb, int oargb) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext strokeTexture(Texture texture, float ox, float oy, float w, float h, float angle, float alpha) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext strokeWidth(float width) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext lineCap(LineCap cap) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext lineJoin(LineJoin join) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext miterLimit(float lim) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext pathWinding(Winding winding) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext globalAlpha(float alpha) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext globalCompositeBlendFunc(BlendFactor src, BlendFactor dst) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext globalCompositeBlendFunc(BlendFactor srcC, BlendFactor dstC, BlendFactor srcA, BlendFactor dstA) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext globalCompositeOperation(CompositeOperation op) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext scissor(float x, float y, float w, float h) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext resetScissor() {
+        return this;
+    }
+
+    @Override
+    public Texture newTexture(NativeImage image, int flags) {
+        throw new UnsupportedOperationException("Null canvas has no textures");
+    }
+
+    @Override
+    public CanvasContext save() {
+        return this;
+    }
+
+    @Override
+    public CanvasContext restore() {
+        return this;
+    }
+
+    @Override
+    public CanvasContext reset() {
+        return this;
+    }
+
+    @Override
+    public CanvasContext pushTransform() {
+        return this;
+    }
+
+    @Override
+    public CanvasContext popTransform() {
+        return this;
+    }
+
+    @Override
+    public CanvasContext setIdentity() {
+        return this;
+    }
+
+    @Override
+    public CanvasContext setTransform(float m00, float m10, float m20, float m01, float m11, float m21) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext setTransform(Matrix3x2fc mat) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext transform(float m00, float m10, float m20, float m01, float m11, float m21) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext transform(Matrix3x2fc mat) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext translate(float x, float y) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext translate(Vector2fc v) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext rotate(float angle) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext rotateDegrees(float angle) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext scale(float s) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext scale(float x, float y) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext scale(Vector2fc v) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext mirrorX() {
+        return this;
+    }
+
+    @Override
+    public CanvasContext mirrorY() {
+        return this;
+    }
+
+    @Override
+    public CanvasContext skewX(float angle) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext skewXDegrees(float angle) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext skewY(float angle) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext skewYDegrees(float angle) {
+        return this;
+    }
+
+    @Override
+    public Matrix3x2f getTransform() {
+        return new Matrix3x2f();
+    }
+
+    @Override
+    public Matrix3x2f getTransform(Matrix3x2f mat) {
+        return mat.identity();
+    }
+
+    @Override
+    public Vector2f transformPoint(float x, float y) {
+        return new Vector2f(x, y);
+    }
+
+    @Override
+    public Vector2f transformPoint(float x, float y, Vector2f out) {
+        return out.set(x, y);
+    }
+
+    @Override
+    public Vector2f transformPoint(Vector2fc in) {
+        return new Vector2f(in);
+    }
+
+    @Override
+    public Vector2f transformPoint(Vector2fc in, Vector2f out) {
+        return out.set(in);
+    }
+
+    @Override
+    public Vector2f transformPointInverse(float x, float y) {
+        return new Vector2f(x, y);
+    }
+
+    @Override
+    public Vector2f transformPointInverse(float x, float y, Vector2f out) {
+        return out.set(x, y);
+    }
+
+    @Override
+    public Vector2f transformPointInverse(Vector2fc in) {
+        return new Vector2f(in);
+    }
+
+    @Override
+    public Vector2f transformPointInverse(Vector2fc in, Vector2f out) {
+        return out.set(in);
+    }
+
+    @Override
+    public CanvasContext line(float x1, float y1, float x2, float y2) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext line(Vector2fc v1, Vector2fc v2) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext arc(float cx, float cy, float radius, float angle1, float angle2, Winding winding) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext arc(Vector2fc center, float radius, float angle1, float angle2, Winding winding) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext arcDegrees(float cx, float cy, float radius, float angle1, float angle2, Winding winding) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext arcDegrees(Vector2fc center, float radius, float angle1, float angle2, Winding winding) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext circle(float cx, float cy, float radius) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext circle(Vector2fc center, float radius) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext ellipse(float cx, float cy, float rx, float ry) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext ellipse(Vector2fc center, float rx, float ry) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext ellipse(Vector2fc center, Vector2fc radius) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext rect(float x, float y, float w, float h) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext rect(Vector2fc pos, float w, float h) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext rect(Vector2fc pos, Vector2fc size) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext roundedRect(float x, float y, float w, float h, float r) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext roundedRect(Vector2fc pos, float w, float h, float r) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext roundedRect(Vector2fc pos, Vector2fc size, float r) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext roundedRect(float x, float y, float w, float h, float rtl, float rtr, float rbr, float rbl) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext roundedRect(Vector2fc pos, float w, float h, float rtl, float rtr, float rbr, float rbl) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext roundedRect(Vector2fc pos, Vector2fc size, float rtl, float rtr, float rbr, float rbl) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext glyph(int cp, float srcX, float srcY, float fontSize, Font font) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext glyph(char ch, float srcX, float srcY, float fontSize, Font font) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext text(String text, float srcX, float srcY, float fontSize, Font font) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext sdfGlyph(int cp, float srcX, float srcY, float fontSize, Font font, int fillArgb, int strokeArgb, float strokeWidth) {
+        return this;
+    }
+
+    @Override
+    public CanvasContext shapes(ShapeInstances instances, int strokeArgb, float strokeWidth) {
+        return this;
+    }
+
+    @Override
+    public void dispose() {
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.shadew.flow.flat;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.shadew.flow.bench.NullCanvas;
+import net.shadew.flow.flat.shapes.Rectangle;
+import net.shadew.flow.view.SimpleViewport;
+import net.shadew.flow.view.Viewport;
+import net.shadew.flow.view.canvas2d.context.CanvasContext;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Node2DBenchmark {
+    // Tree shapes: branching factor ^ depth nodes, 4^6 = 4096 nodes and 10^4 = 10000 nodes
+    @Param({"4:6", "10:4"})
+    public String shape;
+
+    private RootNode root;
+    private CanvasContext ctx;
+    private Viewport viewport;
+    private final List<Node2D> out = new ArrayList<>();
+
+    @Setup
+    public void setup() {
+        String[] parts = shape.split(":");
+        int branching = Integer.parseInt(parts[0]);
+        int depth = Integer.parseInt(parts[1]);
+
+        root = new RootNode();
+        build(root, branching, depth);
+
+        ctx = NullCanvas.create();
+        viewport = new SimpleViewport(1920, 1080, 1, 1920, 1080);
+    }
+
+    private static void build(Node2D parent, int branching, int depth) {
+        if (depth == 0) return;
+        for (int i = 0; i < branching; i++) {
+            Node2D node = depth == 1 ? new Rectangle() : new EmptyNode();
+            node.setName("node" + depth + "_" + i);
+            node.translate(i, depth);
+            parent.appendChild(node);
+            build(node, branching, depth - 1);
+        }
+    }
+
+    @Benchmark
+    public int traverse() {
+        int[] count = {0};
+        root.traverse(n -> count[0]++);
+        return count[0];
+    }
+
+    @Benchmark
+    public List<Node2D> findByName() {
+        out.clear();
+        root.findNodesByName("node1_0", out);
+        return out;
+    }
+
+    @Benchmark
+    public List<Node2D> findByType() {
+        out.clear();
+        root.findNodesByType(Rectangle.class, out);
+        return out;
+    }
+
+    @Benchmark
+    public void render() {
+        root.render(ctx, viewport, 0);
+    }
+}
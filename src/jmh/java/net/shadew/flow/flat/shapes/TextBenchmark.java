@@ -0,0 +1,84 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.shadew.flow.flat.shapes;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import net.shadew.flow.bench.NullCanvas;
+import net.shadew.flow.util.Font;
+import net.shadew.flow.view.SimpleViewport;
+import net.shadew.flow.view.Viewport;
+import net.shadew.flow.view.canvas2d.context.CanvasContext;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextBenchmark {
+    private static final String LINE = "The quick brown fox jumps over the lazy dog 0123456789";
+
+    @Param({"1", "20"})
+    public int lines;
+
+    @Param({"0.5", "1"})
+    public float writeProgress;
+
+    private Font font;
+    private Text text;
+    private CanvasContext ctx;
+    private Viewport viewport;
+
+    @Setup
+    public void setup() throws IOException {
+        font = Font.load(new FileInputStream("test_fonts/JetBrainsMono-Regular.ttf"));
+        font.init();
+
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            if (i > 0) builder.append('\n');
+            builder.append(LINE);
+        }
+
+        text = new Text();
+        text.setFont(font);
+        text.setSize(40);
+        text.setText(builder.toString());
+        text.setFillColor(0xFF000000);
+        text.setStrokeColor(0xFFFFFFFF);
+        text.setStrokeWidth(2);
+        text.setWriteProgress(writeProgress);
+
+        ctx = NullCanvas.create();
+        viewport = new SimpleViewport(1920, 1080, 1, 1920, 1080);
+    }
+
+    @TearDown
+    public void tearDown() {
+        font.dispose();
+    }
+
+    // Measures layout and the canvas calls Text makes, not glyph tessellation in NanoVG
+    @Benchmark
+    public void layout() {
+        text.renderNode(ctx, viewport, 0);
+    }
+}
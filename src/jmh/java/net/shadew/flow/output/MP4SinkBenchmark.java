@@ -0,0 +1,56 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.shadew.flow.output;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import net.shadew.flow.util.NativeImage;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MP4SinkBenchmark {
+    @Param({"1920"})
+    public int width;
+
+    @Param({"1080"})
+    public int height;
+
+    private NativeImage image;
+    private byte[] rgb;
+
+    @Setup
+    public void setup() {
+        image = NativeImage.allocate(width, height);
+        rgb = new byte[width * height * 3];
+    }
+
+    @TearDown
+    public void tearDown() {
+        image.dispose();
+    }
+
+    @Benchmark
+    public byte[] rgbaToRgb() {
+        MP4Sink.toRgb(image, rgb);
+        return rgb;
+    }
+}
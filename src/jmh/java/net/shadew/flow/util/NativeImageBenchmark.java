@@ -0,0 +1,121 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.shadew.flow.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NativeImageBenchmark {
+    @Param({"1920"})
+    public int width;
+
+    @Param({"1080"})
+    public int height;
+
+    private NativeImage image;
+    private NativeImage half;
+    private final Resampler bilinear = new Resampler(Resampler.Filter.BILINEAR);
+    private final Resampler lanczos = new Resampler(Resampler.Filter.LANCZOS);
+
+    @Setup
+    public void setup() {
+        image = NativeImage.allocate(width, height);
+        half = NativeImage.allocate(width / 2, height / 2);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setColor(x, y, x * 31 + y * 17 | 0xFF000000);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        image.dispose();
+        half.dispose();
+    }
+
+    @Benchmark
+    public int getColor() {
+        int acc = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                acc += image.getColor(x, y);
+            }
+        }
+        return acc;
+    }
+
+    @Benchmark
+    public void setColor() {
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setColor(x, y, x ^ y);
+            }
+        }
+    }
+
+    @Benchmark
+    public void flipVertical() {
+        image.flipVertical();
+    }
+
+    @Benchmark
+    public void swapRedBlue() {
+        image.swapRedBlue();
+    }
+
+    @Benchmark
+    public void premultiply() {
+        image.premultiply();
+    }
+
+    @Benchmark
+    public void composite() {
+        image.composite(0xFF000000, false);
+    }
+
+    @Benchmark
+    public void fill() {
+        image.fill(0xFF336699);
+    }
+
+    @Benchmark
+    public void copyRectHalf() {
+        half.copyRect(image, width / 4, height / 4, width / 2, height / 2, 0, 0);
+    }
+
+    @Benchmark
+    public void blitHalf() {
+        image.blit(0, 0, width, height, 0, 0, width / 2, height / 2, half);
+    }
+
+    @Benchmark
+    public void resampleHalfBilinear() {
+        bilinear.resample(image, half);
+    }
+
+    @Benchmark
+    public void resampleHalfLanczos() {
+        lanczos.resample(image, half);
+    }
+}
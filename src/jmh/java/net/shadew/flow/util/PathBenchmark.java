@@ -0,0 +1,75 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.shadew.flow.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import net.shadew.flow.bench.NullCanvas;
+import net.shadew.flow.view.canvas2d.context.CanvasContext;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathBenchmark {
+    @Param({"10", "100"})
+    public int subpaths;
+
+    private Path path;
+    private CanvasContext ctx;
+
+    @Setup
+    public void setup() {
+        path = build(subpaths);
+        path.fillColor = 0xFF000000;
+        path.strokeColor = 0xFFFFFFFF;
+        path.strokeWidth = 2;
+        ctx = NullCanvas.create();
+    }
+
+    private static Path build(int subpaths) {
+        Path path = new Path();
+        for (int i = 0; i < subpaths; i++) {
+            float x = i * 40;
+            path.moveTo(x, 0);
+            path.lineTo(x + 20, 0);
+            path.quadTo(x + 30, 10, x + 20, 20, 20);
+            path.curveTo(x + 10, 30, x, 30, x, 20, 20);
+            path.arcTo(x - 10, 10, x, 0, 5, 10);
+            path.close();
+        }
+        return path;
+    }
+
+    @Benchmark
+    public Path construct() {
+        return build(subpaths);
+    }
+
+    @Benchmark
+    public void drawFull() {
+        path.draw(ctx, 0, 1);
+    }
+
+    @Benchmark
+    public void drawPartial() {
+        path.draw(ctx, 0.25f, 0.6f);
+    }
+}
@@ -16,32 +16,38 @@
 
 package net.shadew.flow;
 
-import java.io.FileInputStream;
+import java.io.File;
 import java.io.IOException;
+import java.util.function.Supplier;
 
-import net.shadew.flow.animation.ColorPropertyAnimation;
 import net.shadew.flow.animation.Easing;
-import net.shadew.flow.animation.FloatPropertyAnimation;
 import net.shadew.flow.animation.Timeline;
 import net.shadew.flow.flat.FlatStage;
 import net.shadew.flow.flat.RootNode;
+import net.shadew.flow.flat.animations.ColorNodeAnimation;
+import net.shadew.flow.flat.animations.FloatNodeAnimation;
 import net.shadew.flow.flat.animations.RotateAnimation;
 import net.shadew.flow.flat.animations.TranslateAnimation;
+import net.shadew.flow.flat.shapes.AbstractShape;
 import net.shadew.flow.flat.shapes.Circle;
 import net.shadew.flow.flat.shapes.Rectangle;
 import net.shadew.flow.flat.shapes.Text;
 import net.shadew.flow.output.DisplayOutput;
 import net.shadew.flow.output.OutputContext;
 import net.shadew.flow.util.Font;
+import net.shadew.flow.util.FontRegistry;
 import net.shadew.flow.view.ViewStack;
 import net.shadew.flow.view.canvas2d.context.GL3NanoVGContext;
+import net.shadew.flow.view.canvas2d.context.NanoVGContext;
 
 public class Flow {
+    private static final Supplier<NanoVGContext> BACKEND = () -> new GL3NanoVGContext(0);
+
     private final ViewStack viewStack = new ViewStack();
     private final Timeline timeline = new Timeline();
     //    private final OutputContext context = new OutputContext(1920, 1080, WriteOutput.flushInto(960, 540, new MP4Sink("rendered/rendered.mp4")), viewStack, timeline, 60);
 //    private final OutputContext context = new OutputContext(1920, 1080, WriteOutput.flushInto(1920, 1080, new MP4Sink("rendered/rendered_2d_3d.mp4")), viewStack, timeline, 60);
-    private final OutputContext context = new OutputContext(1920, 1080, DisplayOutput.framed(960, 540), viewStack, timeline, 60);
+    private final OutputContext context = new OutputContext(1920, 1080, DisplayOutput.framed(960, 540).presentContext(BACKEND), viewStack, timeline, 60);
 
     private Font font;
 
@@ -51,13 +57,12 @@ public class Flow {
 
     private void init() {
         try {
-            font = Font.load(new FileInputStream("test_fonts/JetBrainsMono-Bold.ttf"));
-            font.init();
+            font = FontRegistry.global().load(new File("test_fonts/JetBrainsMono-Bold.ttf"));
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
 
-        FlatStage stage = new FlatStage(() -> new GL3NanoVGContext(0));
+        FlatStage stage = new FlatStage(BACKEND);
         setupScene(stage, stage.root, timeline);
         viewStack.addLayer(stage);
         context.init();
@@ -155,21 +160,21 @@ public class Flow {
 
         tl.append(new TranslateAnimation(rectangle1).offset(0, 200).start(1).duration(1).easing(Easing.QUART_IN_OUT));
         tl.append(new RotateAnimation(rectangle1).angle((float) Math.PI).start(1).duration(1).easing(Easing.QUART_IN_OUT));
-        tl.append(new FloatPropertyAnimation(rectangle1::getWidth, rectangle1::setWidth).target(400).start(1).duration(1).easing(Easing.QUART_IN_OUT));
-        tl.append(new ColorPropertyAnimation(rectangle1::getFillColor, rectangle1::setFillColor).target(0x003477EB).start(1).duration(1).easing(Easing.QUART_IN_OUT));
+        tl.append(new FloatNodeAnimation(rectangle1, Rectangle.WIDTH).target(400).start(1).duration(1).easing(Easing.QUART_IN_OUT));
+        tl.append(new ColorNodeAnimation(rectangle1, AbstractShape.FILL_COLOR).target(0x003477EB).start(1).duration(1).easing(Easing.QUART_IN_OUT));
 
         tl.append(new TranslateAnimation(rectangle2).offset(0, 240).start(1).duration(1).easing(Easing.QUART_IN_OUT));
         tl.append(new RotateAnimation(rectangle2).angle((float) Math.PI).start(1).duration(1).easing(Easing.QUART_IN_OUT));
-        tl.append(new FloatPropertyAnimation(rectangle2::getWidth, rectangle2::setWidth).target(400).start(1).duration(1).easing(Easing.QUART_IN_OUT));
-        tl.append(new ColorPropertyAnimation(rectangle2::getFillColor, rectangle2::setFillColor).target(0x003FE090).start(1).duration(1).easing(Easing.QUART_IN_OUT));
+        tl.append(new FloatNodeAnimation(rectangle2, Rectangle.WIDTH).target(400).start(1).duration(1).easing(Easing.QUART_IN_OUT));
+        tl.append(new ColorNodeAnimation(rectangle2, AbstractShape.FILL_COLOR).target(0x003FE090).start(1).duration(1).easing(Easing.QUART_IN_OUT));
 
         tl.append(new TranslateAnimation(circle).offset(0, 160).start(1).duration(1).easing(Easing.QUART_IN_OUT));
         tl.append(new RotateAnimation(circle).angle((float) Math.PI).start(1).duration(1).easing(Easing.QUART_IN_OUT));
-        tl.append(new FloatPropertyAnimation(circle::getRadius, circle::setRadius).target(200).start(1).duration(1).easing(Easing.QUART_IN_OUT));
-        tl.append(new ColorPropertyAnimation(circle::getFillColor, circle::setFillColor).target(0x00E05F3F).start(1).duration(1).easing(Easing.QUART_IN_OUT));
+        tl.append(new FloatNodeAnimation(circle, Circle.RADIUS).target(200).start(1).duration(1).easing(Easing.QUART_IN_OUT));
+        tl.append(new ColorNodeAnimation(circle, AbstractShape.FILL_COLOR).target(0x00E05F3F).start(1).duration(1).easing(Easing.QUART_IN_OUT));
 
-        tl.append(new FloatPropertyAnimation(text::getWriteProgress, text::setWriteProgress).target(1).start(2).duration(0.5).easing(Easing.CUBIC_OUT));
-        tl.append(new FloatPropertyAnimation(text2::getWriteProgress, text2::setWriteProgress).target(1).start(2.5).duration(0.5).easing(Easing.CUBIC_OUT));
-        tl.append(new FloatPropertyAnimation(text3::getWriteProgress, text3::setWriteProgress).target(1).start(2.75).duration(0.5).easing(Easing.CUBIC_OUT));
+        tl.append(new FloatNodeAnimation(text, Text.WRITE_PROGRESS).target(1).start(2).duration(0.5).easing(Easing.CUBIC_OUT));
+        tl.append(new FloatNodeAnimation(text2, Text.WRITE_PROGRESS).target(1).start(2.5).duration(0.5).easing(Easing.CUBIC_OUT));
+        tl.append(new FloatNodeAnimation(text3, Text.WRITE_PROGRESS).target(1).start(2.75).duration(0.5).easing(Easing.CUBIC_OUT));
     }
 }
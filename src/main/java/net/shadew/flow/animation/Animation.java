@@ -112,6 +112,20 @@ public abstract class Animation extends Updater {
         return easing;
     }
 
+    /**
+     * Returns the start of this animation. Animations are assumed to have no effect before they start, so subclasses
+     * that do something in {@link #preApply} must override this to return negative infinity.
+     */
+    @Override
+    public double getStartTime() {
+        return start;
+    }
+
+    @Override
+    public double getEndTime() {
+        return getRepeatedEnd();
+    }
+
     @Override
     public void update(double time) {
         if (start == end) {
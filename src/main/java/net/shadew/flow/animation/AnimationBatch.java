@@ -0,0 +1,424 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.shadew.flow.animation;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import net.shadew.util.misc.ColorUtil;
+import net.shadew.util.misc.MathUtil;
+
+/**
+ * A batch of float and color tweens on the slots of {@link SlotStore}s, such as the property slots of scene nodes or a
+ * standalone {@link PropertySlots}. Unlike {@link FloatPropertyAnimation} and {@link ColorPropertyAnimation}, tracks in a
+ * batch are not separate objects: their timing, targets and easings are stored in parallel primitive arrays and all
+ * tracks are evaluated in one loop, writing directly into the slot arrays. This makes tens of thousands of simultaneous
+ * tweens feasible. Since slots are written directly, the version of a scene node does not change when a batch animates
+ * it.
+ *
+ * A track behaves exactly like the equivalent property animation: while active, it reads the current value of its slot
+ * and interpolates from there towards its target, and the original value is restored when the timeline cleans up. A
+ * batch is added to a {@link Timeline} as a single updater. Tracks on the same slot are applied in the order they were
+ * added.
+ *
+ * Large batches can optionally be evaluated in parallel on a {@link ForkJoinPool}. Tracks are then split into chunks such
+ * that all tracks on the same slot end up in the same chunk, so no two threads ever write the same slot.
+ */
+public class AnimationBatch extends Updater {
+    private static final byte FLOAT = 0;
+    private static final byte COLOR = 1;
+
+    private static final int CHUNK_SIZE = 4096;
+
+    private final SlotStore slots;
+
+    private int size;
+    private double[] start = new double[16];
+    private double[] end = new double[16];
+    private int[] repeat = new int[16];
+    private byte[] type = new byte[16];
+    private SlotStore[] store = new SlotStore[16];
+    private int[] slot = new int[16];
+    private int[] target = new int[16];
+    private int[] easing = new int[16];
+    private int[] direction = new int[16];
+
+    // Per-frame state: the value a track overwrote, and whether it overwrote a value at all
+    private int[] saved = new int[16];
+    private boolean[] applied = new boolean[16];
+
+    private Easing[] easings = new Easing[4];
+    private final Map<Easing, Integer> easingIds = new IdentityHashMap<>();
+    private AnimationDirection[] directions = new AnimationDirection[4];
+    private final Map<AnimationDirection, Integer> directionIds = new IdentityHashMap<>();
+
+    // Evaluation order, grouped by slot, and the chunks of that order that may run in parallel
+    private int[] order = new int[0];
+    private int[] chunks = new int[0];
+    private boolean dirty;
+
+    // The store all tracks write to, or null when they write to multiple stores
+    private SlotStore writeStore;
+    private boolean multipleTargets;
+
+    private ForkJoinPool pool;
+    private int parallelThreshold = CHUNK_SIZE * 2;
+
+    /**
+     * Creates a batch without a default store. Tracks must then be added with an explicit store.
+     */
+    public AnimationBatch() {
+        this(null);
+    }
+
+    /**
+     * Creates a batch that adds tracks without an explicit store to the given store.
+     */
+    public AnimationBatch(SlotStore slots) {
+        this.slots = slots;
+    }
+
+    /**
+     * Returns the store that tracks without an explicit store are added to, or null if there is none.
+     */
+    public SlotStore getSlots() {
+        return slots;
+    }
+
+    /**
+     * Evaluates this batch on the given pool when it holds enough tracks. Pass null to always evaluate on the calling
+     * thread, which is the default.
+     */
+    public AnimationBatch parallel(ForkJoinPool pool) {
+        this.pool = pool;
+        return this;
+    }
+
+    /**
+     * Sets the minimum amount of tracks before this batch is evaluated in parallel.
+     */
+    public AnimationBatch parallelThreshold(int threshold) {
+        this.parallelThreshold = threshold;
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the declared write target, or otherwise the store all tracks write to. When tracks write to multiple
+     * stores, there is no single write target and null is returned.
+     */
+    @Override
+    public Object getWriteTarget() {
+        Object declared = super.getWriteTarget();
+        if (declared != null) {
+            return declared;
+        }
+        return multipleTargets ? null : writeStore;
+    }
+
+    /**
+     * Removes all tracks. Slots that are currently animated by this batch are restored first.
+     */
+    public void clear() {
+        unapply(0, order.length);
+        size = 0;
+        writeStore = null;
+        multipleTargets = false;
+        Arrays.fill(store, null);
+        dirty = true;
+    }
+
+    public int addFloat(int slot, float target, double start, double end, Easing easing) {
+        return add(FLOAT, defaultStore(), slot, Float.floatToRawIntBits(target), start, end, Animation.REPEAT_OFF, AnimationDirection.FORWARD, easing);
+    }
+
+    public int addFloat(int slot, float target, double start, double end, int repeat, AnimationDirection direction, Easing easing) {
+        return add(FLOAT, defaultStore(), slot, Float.floatToRawIntBits(target), start, end, repeat, direction, easing);
+    }
+
+    public int addColor(int slot, int target, double start, double end, Easing easing) {
+        return add(COLOR, defaultStore(), slot, target, start, end, Animation.REPEAT_OFF, AnimationDirection.FORWARD, easing);
+    }
+
+    public int addColor(int slot, int target, double start, double end, int repeat, AnimationDirection direction, Easing easing) {
+        return add(COLOR, defaultStore(), slot, target, start, end, repeat, direction, easing);
+    }
+
+    public int addFloat(SlotStore store, int slot, float target, double start, double end, Easing easing) {
+        return add(FLOAT, store, slot, Float.floatToRawIntBits(target), start, end, Animation.REPEAT_OFF, AnimationDirection.FORWARD, easing);
+    }
+
+    public int addFloat(SlotStore store, int slot, float target, double start, double end, int repeat, AnimationDirection direction, Easing easing) {
+        return add(FLOAT, store, slot, Float.floatToRawIntBits(target), start, end, repeat, direction, easing);
+    }
+
+    public int addColor(SlotStore store, int slot, int target, double start, double end, Easing easing) {
+        return add(COLOR, store, slot, target, start, end, Animation.REPEAT_OFF, AnimationDirection.FORWARD, easing);
+    }
+
+    public int addColor(SlotStore store, int slot, int target, double start, double end, int repeat, AnimationDirection direction, Easing easing) {
+        return add(COLOR, store, slot, target, start, end, repeat, direction, easing);
+    }
+
+    private SlotStore defaultStore() {
+        if (slots == null) {
+            throw new IllegalStateException("Batch has no default store");
+        }
+        return slots;
+    }
+
+    private int add(byte type, SlotStore store, int slot, int target, double start, double end, int repeat, AnimationDirection direction, Easing easing) {
+        if (store == null) {
+            throw new NullPointerException("store");
+        }
+        int length = type == FLOAT ? store.floatSlots().length : store.colorSlots().length;
+        if (slot < 0 || slot >= length) {
+            throw new IndexOutOfBoundsException("Slot " + slot + " out of range for " + store);
+        }
+
+        if (size == this.start.length) {
+            grow(size * 2);
+        }
+
+        if (writeStore == null && !multipleTargets) {
+            writeStore = store;
+        } else if (writeStore != store) {
+            writeStore = null;
+            multipleTargets = true;
+        }
+
+        int i = size++;
+        this.start[i] = Math.min(start, end);
+        this.end[i] = Math.max(start, end);
+        this.repeat[i] = repeat < 0 ? Animation.REPEAT_INFINITE : repeat;
+        this.type[i] = type;
+        this.store[i] = store;
+        this.slot[i] = slot;
+        this.target[i] = target;
+        this.easing[i] = easingId(easing == null ? Easing.LINEAR : easing);
+        this.direction[i] = directionId(direction == null ? AnimationDirection.FORWARD : direction);
+        dirty = true;
+        return i;
+    }
+
+    private void grow(int capacity) {
+        start = Arrays.copyOf(start, capacity);
+        end = Arrays.copyOf(end, capacity);
+        repeat = Arrays.copyOf(repeat, capacity);
+        type = Arrays.copyOf(type, capacity);
+        store = Arrays.copyOf(store, capacity);
+        slot = Arrays.copyOf(slot, capacity);
+        target = Arrays.copyOf(target, capacity);
+        easing = Arrays.copyOf(easing, capacity);
+        direction = Arrays.copyOf(direction, capacity);
+        saved = Arrays.copyOf(saved, capacity);
+        applied = Arrays.copyOf(applied, capacity);
+    }
+
+    private int easingId(Easing fn) {
+        Integer id = easingIds.get(fn);
+        if (id == null) {
+            id = easingIds.size();
+            if (id == easings.length) {
+                easings = Arrays.copyOf(easings, id * 2);
+            }
+            easings[id] = fn;
+            easingIds.put(fn, id);
+        }
+        return id;
+    }
+
+    private int directionId(AnimationDirection dir) {
+        Integer id = directionIds.get(dir);
+        if (id == null) {
+            id = directionIds.size();
+            if (id == directions.length) {
+                directions = Arrays.copyOf(directions, id * 2);
+            }
+            directions[id] = dir;
+            directionIds.put(dir, id);
+        }
+        return id;
+    }
+
+    private void compile() {
+        // Give every distinct slot a number in order of first use, stores are compared by identity
+        Map<SlotStore, Integer> storeIds = new IdentityHashMap<>();
+        Map<Long, Integer> slotIds = new HashMap<>();
+        int[] slotId = new int[size];
+        for (int i = 0; i < size; i++) {
+            Integer storeId = storeIds.get(store[i]);
+            if (storeId == null) {
+                storeId = storeIds.size();
+                storeIds.put(store[i], storeId);
+            }
+            long key = (long) storeId << 33 | (long) type[i] << 32 | slot[i] & 0xFFFFFFFFL;
+            Integer id = slotIds.get(key);
+            if (id == null) {
+                id = slotIds.size();
+                slotIds.put(key, id);
+            }
+            slotId[i] = id;
+        }
+
+        // Stable sort of track indices by slot, tracks on the same slot keep the order they were added in
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = (long) slotId[i] << 31 | i;
+        }
+        Arrays.sort(keys);
+
+        order = new int[size];
+        int[] orderSlot = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = (int) (keys[i] & 0x7FFFFFFFL);
+            orderSlot[i] = (int) (keys[i] >>> 31);
+        }
+
+        // Chunk boundaries, moved forward so that no slot is split over two chunks
+        int[] bounds = new int[size / CHUNK_SIZE + 2];
+        int count = 0;
+        bounds[count++] = 0;
+        int at = CHUNK_SIZE;
+        while (at < size) {
+            int key = orderSlot[at - 1];
+            while (at < size && orderSlot[at] == key) {
+                at++;
+            }
+            if (at < size) {
+                bounds[count++] = at;
+            }
+            at += CHUNK_SIZE;
+        }
+        bounds[count++] = size;
+        chunks = Arrays.copyOf(bounds, count);
+        dirty = false;
+    }
+
+    @Override
+    public void update(double time) {
+        if (dirty) compile();
+
+        if (pool != null && size >= parallelThreshold) {
+            pool.invoke(new ChunkTask(0, chunks.length - 1, time, false));
+        } else {
+            apply(0, size, time);
+        }
+    }
+
+    @Override
+    public void postUpdate(double time) {
+        // Restore along the order the last update used, even if tracks were added in between
+        if (pool != null && order.length >= parallelThreshold) {
+            pool.invoke(new ChunkTask(0, chunks.length - 1, time, true));
+        } else {
+            unapply(0, order.length);
+        }
+    }
+
+    private void apply(int from, int to, double time) {
+        for (int k = from; k < to; k++) {
+            int i = order[k];
+            double s = start[i];
+            double e = end[i];
+
+            boolean complete;
+            double t = 0;
+            if (s == e) {
+                if (time < s) continue;
+                complete = true;
+            } else {
+                double p = MathUtil.unlerp(s, e, time);
+                if (p < 0) continue;
+
+                int r = repeat[i];
+                complete = r != Animation.REPEAT_INFINITE && p >= r;
+                if (!complete) {
+                    t = easings[easing[i]].ease(directions[direction[i]].applyDirection(p % 1));
+                }
+            }
+
+            int sl = slot[i];
+            if (type[i] == FLOAT) {
+                float[] floats = store[i].floatSlots();
+                float base = floats[sl];
+                saved[i] = Float.floatToRawIntBits(base);
+                float tgt = Float.intBitsToFloat(target[i]);
+                floats[sl] = complete ? tgt : MathUtil.lerp(base, tgt, (float) t);
+            } else {
+                int[] colors = store[i].colorSlots();
+                int base = colors[sl];
+                saved[i] = base;
+                colors[sl] = complete ? target[i] : ColorUtil.interpolate(base, target[i], MathUtil.clamp((float) t, 0, 1));
+            }
+            applied[i] = true;
+        }
+    }
+
+    private void unapply(int from, int to) {
+        // Reverse order, so that stacked tracks on one slot restore the original value
+        for (int k = to - 1; k >= from; k--) {
+            int i = order[k];
+            if (!applied[i]) continue;
+            applied[i] = false;
+
+            if (type[i] == FLOAT) {
+                store[i].floatSlots()[slot[i]] = Float.intBitsToFloat(saved[i]);
+            } else {
+                store[i].colorSlots()[slot[i]] = saved[i];
+            }
+        }
+    }
+
+    private class ChunkTask extends RecursiveAction {
+        private final int fromChunk;
+        private final int toChunk;
+        private final double time;
+        private final boolean cleanup;
+
+        ChunkTask(int fromChunk, int toChunk, double time, boolean cleanup) {
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+            this.time = time;
+            this.cleanup = cleanup;
+        }
+
+        @Override
+        protected void compute() {
+            if (toChunk - fromChunk <= 1) {
+                if (cleanup) {
+                    unapply(chunks[fromChunk], chunks[toChunk]);
+                } else {
+                    apply(chunks[fromChunk], chunks[toChunk], time);
+                }
+                return;
+            }
+
+            int mid = (fromChunk + toChunk) >>> 1;
+            invokeAll(
+                new ChunkTask(fromChunk, mid, time, cleanup),
+                new ChunkTask(mid, toChunk, time, cleanup)
+            );
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.shadew.flow.animation;
+
+import java.util.*;
+
+/**
+ * A group of updaters that is placed on a timeline as a whole. Children play in parallel, each timed in the local time
+ * of the group. Local time can be shifted with an {@linkplain #offset(double) offset} and stretched with a {@linkplain
+ * #speed(double) speed}, retiming all children without touching them. Groups can be nested, to structure a long video
+ * into scenes, sections and beats.
+ *
+ * The interval covered by all children is cached, so a group that has not started at a given time is skipped in one
+ * check. Within a group, children are {@linkplain Timeline#seek sought} like in a timeline, so only children that affect
+ * the current time are run. When the timing or settle key of a child changes after it was added, call {@link
+ * #invalidate()}; when the timing of the group itself changes after it was added to a timeline, invalidate that
+ * timeline.
+ */
+public class AnimationGroup extends Updater {
+    private final List<Updater> childList = new ArrayList<>();
+    private final List<Updater> childListImmutable = Collections.unmodifiableList(childList);
+    private final Set<Updater> childSet = new HashSet<>();
+
+    // Built from the child list on the first update after the children changed, so that adding n children is O(n)
+    private Timeline children = new Timeline();
+    private boolean childrenValid = true;
+
+    private double offset;
+    private double speed = 1;
+
+    private boolean intervalValid;
+    private double localStart;
+    private double localEnd;
+    private Object writeTarget;
+    private Object settleKey;
+
+    private boolean applied;
+
+    public AnimationGroup add(Updater child) {
+        if (child == this) {
+            throw new IllegalArgumentException("Cannot add group to itself");
+        }
+        if (!childSet.add(child)) {
+            childList.remove(child); // Move it to the end
+        }
+        childList.add(child);
+        childrenValid = false;
+        intervalValid = false;
+        return this;
+    }
+
+    public boolean remove(Updater child) {
+        if (!childSet.remove(child)) {
+            return false;
+        }
+        childList.remove(child);
+        childrenValid = false;
+        intervalValid = false;
+        return true;
+    }
+
+    public List<Updater> getChildren() {
+        return childListImmutable;
+    }
+
+    /**
+     * Sets the time at which local time 0 of this group occurs in its parent.
+     */
+    public AnimationGroup offset(double offset) {
+        this.offset = offset;
+        return this;
+    }
+
+    public double getOffset() {
+        return offset;
+    }
+
+    /**
+     * Sets the speed at which this group plays, 2 plays it twice as fast, 0.5 plays it at half speed.
+     */
+    public AnimationGroup speed(double speed) {
+        if (speed <= 0) {
+            throw new IllegalArgumentException("Speed must be positive");
+        }
+        this.speed = speed;
+        return this;
+    }
+
+    public double getSpeed() {
+        return speed;
+    }
+
+    /**
+     * Must be called when the timing or settle key of a child of this group changes after it was added.
+     */
+    public void invalidate() {
+        intervalValid = false;
+        children.invalidate();
+    }
+
+    private void computeInterval() {
+        if (intervalValid) return;
+
+        double start = Double.POSITIVE_INFINITY;
+        double end = Double.NEGATIVE_INFINITY;
+        Object target = null;
+        List<Object> keys = new ArrayList<>(childList.size());
+        boolean first = true;
+        for (Updater child : childList) {
+            start = Math.min(start, child.getStartTime());
+            end = Math.max(end, child.getEndTime());
+
+            Object childTarget = child.getWriteTarget();
+            if (first) {
+                target = childTarget;
+                first = false;
+            } else if (target != null && !Objects.equals(target, childTarget)) {
+                target = null;
+            }
+
+            if (keys != null) {
+                Object childKey = child.getSettleKey();
+                if (childKey == null) {
+                    keys = null;
+                } else {
+                    keys.add(childKey);
+                }
+            }
+        }
+        if (childList.isEmpty()) {
+            start = end = 0;
+        }
+
+        localStart = start;
+        localEnd = end;
+        writeTarget = target;
+        settleKey = keys;
+        intervalValid = true;
+    }
+
+    public double toLocalTime(double time) {
+        return (time - offset) * speed;
+    }
+
+    public double toParentTime(double localTime) {
+        return localTime / speed + offset;
+    }
+
+    /**
+     * Returns the start of the first child in local time.
+     */
+    public double getLocalStart() {
+        computeInterval();
+        return localStart;
+    }
+
+    /**
+     * Returns the end of the last child in local time.
+     */
+    public double getLocalEnd() {
+        computeInterval();
+        return localEnd;
+    }
+
+    @Override
+    public double getStartTime() {
+        return toParentTime(getLocalStart());
+    }
+
+    @Override
+    public double getEndTime() {
+        return toParentTime(getLocalEnd());
+    }
+
+    /**
+     * Returns the write target shared by all children, or null if they don't share one.
+     */
+    @Override
+    public Object getWriteTarget() {
+        Object declared = super.getWriteTarget();
+        if (declared != null) {
+            return declared;
+        }
+        computeInterval();
+        return writeTarget;
+    }
+
+    /**
+     * Returns the settle keys of all children, in order, or null if any of the children has no settle key. A completed
+     * group assigns the settled state of each of its children, so it settles onto groups whose children assign the same
+     * states.
+     */
+    @Override
+    public Object getSettleKey() {
+        computeInterval();
+        return settleKey;
+    }
+
+    @Override
+    public void update(double time) {
+        if (time < getStartTime()) {
+            return;
+        }
+        if (!childrenValid) {
+            children.reset();
+            children = new Timeline();
+            children.appendAll(childList);
+            childrenValid = true;
+        }
+        children.seek(toLocalTime(time));
+        applied = true;
+    }
+
+    @Override
+    public void postUpdate(double time) {
+        if (!applied) {
+            return;
+        }
+        children.reset();
+        applied = false;
+    }
+}
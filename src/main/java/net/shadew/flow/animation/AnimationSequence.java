@@ -0,0 +1,72 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.shadew.flow.animation;
+
+/**
+ * An {@link AnimationGroup} that places its children one after another. Each child added with {@link #then} is moved to
+ * start where the previous child ends, keeping its duration.
+ */
+public class AnimationSequence extends AnimationGroup {
+    private double cursor;
+
+    /**
+     * Adds an animation or group at the end of this sequence.
+     *
+     * @throws IllegalArgumentException When the updater cannot be placed: it never ends or is not an animation or
+     *                                  group
+     */
+    public AnimationSequence then(Updater child) {
+        double end;
+        if (child instanceof Animation) {
+            Animation anim = (Animation) child;
+            double duration = anim.getDuration();
+            anim.start(cursor);
+            anim.duration(duration);
+            end = anim.getRepeatedEnd();
+        } else if (child instanceof AnimationGroup) {
+            AnimationGroup group = (AnimationGroup) child;
+            group.offset(cursor - group.getLocalStart() / group.getSpeed());
+            end = group.getEndTime();
+        } else {
+            throw new IllegalArgumentException("Can only sequence animations and groups");
+        }
+
+        if (end == Double.POSITIVE_INFINITY) {
+            throw new IllegalArgumentException("Cannot sequence after an infinitely repeating animation");
+        }
+
+        add(child);
+        cursor = end;
+        return this;
+    }
+
+    /**
+     * Leaves a gap of the given amount of seconds before the next child.
+     */
+    public AnimationSequence delay(double seconds) {
+        cursor += seconds;
+        return this;
+    }
+
+    /**
+     * Returns the local time at which the next child is placed.
+     */
+    public double getCursor() {
+        return cursor;
+    }
+}
@@ -22,6 +22,7 @@ import net.shadew.util.misc.MathUtil;
 public class ColorPropertyAnimation extends Animation {
     private final Getter getter;
     private final Setter setter;
+    private Object settleKey;
 
     private int start;
     private int target;
@@ -40,6 +41,22 @@ public class ColorPropertyAnimation extends Animation {
         return target;
     }
 
+    /**
+     * Sets the key of the property this animation assigns, such as the object and name of the property. Completed
+     * animations with equal keys then settle onto each other in a {@link Timeline}, so a seek only runs the last one of
+     * them. By default, an animation has no settle key: the getter and setter are usually lambdas or method references,
+     * which are new instances for every animation, so they can't identify the property.
+     */
+    public ColorPropertyAnimation settleKey(Object key) {
+        settleKey = key;
+        return this;
+    }
+
+    @Override
+    public Object getSettleKey() {
+        return settleKey;
+    }
+
     @Override
     protected void preApply() {
 
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.shadew.flow.animation;
+
+/**
+ * A 2D cubic bezier easing between 0,0 and 1,1. Rather than solving the cubic for every call, the X-coordinates of the
+ * curve are sampled once into a small lookup table. The table gives an initial guess for the curve parameter which is
+ * then refined with a few Newton-Raphson iterations, like browser engines do for CSS timing functions. Only when the
+ * curve is too flat for Newton's method to converge, the exact root is computed.
+ */
+final class CubicBezierEasing implements Easing {
+    private static final int SAMPLES = 11;
+    private static final double SAMPLE_STEP = 1d / (SAMPLES - 1);
+    private static final int NEWTON_ITERATIONS = 4;
+    private static final double NEWTON_MIN_SLOPE = 0.001;
+    private static final double PRECISION = 1e-7;
+
+    private final double x1, y1, x2, y2;
+
+    // Polynomial coefficients: B(t) = ((a * t + b) * t + c) * t
+    private final double ax, bx, cx;
+    private final double ay, by, cy;
+
+    private final double[] samples = new double[SAMPLES];
+
+    CubicBezierEasing(double x1, double y1, double x2, double y2) {
+        this.x1 = x1;
+        this.y1 = y1;
+        this.x2 = x2;
+        this.y2 = y2;
+
+        cx = 3 * x1;
+        bx = 3 * (x2 - x1) - cx;
+        ax = 1 - cx - bx;
+
+        cy = 3 * y1;
+        by = 3 * (y2 - y1) - cy;
+        ay = 1 - cy - by;
+
+        for (int i = 0; i < SAMPLES; i++) {
+            samples[i] = sampleX(i * SAMPLE_STEP);
+        }
+    }
+
+    private double sampleX(double t) {
+        return ((ax * t + bx) * t + cx) * t;
+    }
+
+    private double sampleY(double t) {
+        return ((ay * t + by) * t + cy) * t;
+    }
+
+    private double slopeX(double t) {
+        return (3 * ax * t + 2 * bx) * t + cx;
+    }
+
+    private double solveT(double x) {
+        int i = 1;
+        while (i < SAMPLES - 1 && samples[i] <= x) {
+            i++;
+        }
+        i--;
+
+        double from = samples[i];
+        double range = samples[i + 1] - from;
+        double t = i * SAMPLE_STEP;
+        if (range > 0) {
+            t += (x - from) / range * SAMPLE_STEP;
+        }
+
+        double slope = slopeX(t);
+        if (slope >= NEWTON_MIN_SLOPE) {
+            for (int n = 0; n < NEWTON_ITERATIONS; n++) {
+                double dx = sampleX(t) - x;
+                if (Math.abs(dx) < PRECISION) {
+                    return t;
+                }
+                slope = slopeX(t);
+                if (slope == 0) {
+                    break;
+                }
+                t -= dx / slope;
+            }
+            if (Math.abs(sampleX(t) - x) < PRECISION) {
+                return t;
+            }
+        } else if (slope == 0) {
+            return t;
+        }
+
+        // Newton didn't converge, fall back to solving exactly
+        double rt = EasingUtil.getFirstRoot(-x, x1 - x, x2 - x, 1 - x);
+        return rt < 0 ? t : rt;
+    }
+
+    @Override
+    public double ease(double t) {
+        if (t <= 0) return 0;
+        if (t >= 1) return 1;
+        if (x1 == y1 && x2 == y2) return t;
+        return sampleY(solveT(t));
+    }
+}
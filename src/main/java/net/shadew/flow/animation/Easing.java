@@ -152,8 +152,8 @@ public interface Easing {
 
     /**
      * Creates an easing function from a 2D cubic bezier between 0,0 and 1,1, using the given two control points. The
-     * curve defined by the given control points maps X-coordinates (linear time) to Y-coordinates (eased time) by means
-     * of cubic rootfinding.
+     * curve defined by the given control points maps X-coordinates (linear time) to Y-coordinates (eased time). The
+     * curve is sampled once into a lookup table, which is refined using Newton's method on every call.
      *
      * This method replicates the <code>cubic-bezier</code> function in CSS, you can generate a curve at
      * <a href="https://cubic-bezier.com/">https://cubic-bezier.com/</a> and directly copy its inputs as parameters of
@@ -169,16 +169,22 @@ public interface Easing {
         double c1x = MathUtil.clamp(cp1x, 0, 1);
         double c2x = MathUtil.clamp(cp2x, 0, 1);
 
-        return t -> {
-            t = MathUtil.clamp(t, 0, 1);
-            double xa = -t;
-            double xb = c1x - t;
-            double xc = c2x - t;
-            double xd = 1 - t;
+        return new CubicBezierEasing(c1x, cp1y, c2x, cp2y);
+    }
 
-            double rt = EasingUtil.getFirstRoot(xa, xb, xc, xd);
-            return EasingUtil.cubicBezier(0, cp1y, cp2y, 1, rt);
-        };
+    /**
+     * Samples an easing function into a lookup table of the given resolution. The returned easing function linearly
+     * interpolates between the samples, which is a lot cheaper than evaluating expensive easing functions directly but
+     * loses any detail finer than one sample. Progress outside the range 0 to 1 is not tabulated and evaluates the given
+     * easing function directly.
+     *
+     * @param fn         The easing function to tabulate
+     * @param resolution The amount of intervals to sample, at least 1. A few hundred is usually indistinguishable from
+     *                   the original function.
+     * @return The tabulated easing function
+     */
+    static Easing tabulate(Easing fn, int resolution) {
+        return new TabulatedEasing(fn, resolution);
     }
 
     /**
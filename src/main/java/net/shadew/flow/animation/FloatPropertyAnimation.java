@@ -21,6 +21,7 @@ import net.shadew.util.misc.MathUtil;
 public class FloatPropertyAnimation extends Animation {
     private final Getter getter;
     private final Setter setter;
+    private Object settleKey;
 
     private float start;
     private float target;
@@ -39,6 +40,22 @@ public class FloatPropertyAnimation extends Animation {
         return target;
     }
 
+    /**
+     * Sets the key of the property this animation assigns, such as the object and name of the property. Completed
+     * animations with equal keys then settle onto each other in a {@link Timeline}, so a seek only runs the last one of
+     * them. By default, an animation has no settle key: the getter and setter are usually lambdas or method references,
+     * which are new instances for every animation, so they can't identify the property.
+     */
+    public FloatPropertyAnimation settleKey(Object key) {
+        settleKey = key;
+        return this;
+    }
+
+    @Override
+    public Object getSettleKey() {
+        return settleKey;
+    }
+
     @Override
     protected void preApply() {
 
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.shadew.flow.animation;
+
+/**
+ * Animates a float property along a {@link Keyframes} track. Key times are relative to the start of the animation, and
+ * the duration of the animation is set to the time of the last key as keys are added. Changing the duration afterwards
+ * stretches the track to the new duration. Repetition, direction and easing of the animation apply to the track as a
+ * whole.
+ *
+ * A single keyframe animation replaces a chain of separate property animations on the same property.
+ */
+public class KeyframeAnimation extends Animation {
+    private final FloatPropertyAnimation.Getter getter;
+    private final FloatPropertyAnimation.Setter setter;
+    private final Keyframes keyframes = new Keyframes();
+
+    private float start;
+
+    public KeyframeAnimation(FloatPropertyAnimation.Getter getter, FloatPropertyAnimation.Setter setter) {
+        this.getter = getter;
+        this.setter = setter;
+    }
+
+    public KeyframeAnimation key(double time, float value) {
+        return key(time, value, Easing.LINEAR);
+    }
+
+    public KeyframeAnimation key(double time, float value, Easing easing) {
+        keyframes.key(time, value, easing);
+        duration(keyframes.getEndTime());
+        return this;
+    }
+
+    public Keyframes getKeyframes() {
+        return keyframes;
+    }
+
+    private float sample(double t) {
+        return keyframes.sample(t * keyframes.getEndTime());
+    }
+
+    @Override
+    protected void preApply() {
+
+    }
+
+    @Override
+    protected void apply(double t) {
+        start = getter.get();
+        if (keyframes.size() > 0) {
+            setter.set(sample(t));
+        }
+    }
+
+    @Override
+    protected void postApply() {
+        apply(getDirection().applyDirection(1));
+    }
+
+    @Override
+    protected void preUnapply() {
+
+    }
+
+    @Override
+    protected void unapply(double t) {
+        setter.set(start);
+    }
+
+    @Override
+    protected void postUnapply() {
+        setter.set(start);
+    }
+}
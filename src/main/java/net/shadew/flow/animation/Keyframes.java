@@ -0,0 +1,148 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.shadew.flow.animation;
+
+import java.util.Arrays;
+
+import net.shadew.util.misc.MathUtil;
+
+/**
+ * A track of float keyframes. Each key has a time, a value and an easing that is used to interpolate towards that key
+ * from the previous key. Keys are kept sorted by time in primitive arrays. Sampling finds the active segment with a
+ * binary search, but first checks the segment that was sampled last and the one after it, so that sequential playback
+ * finds its segment in constant time.
+ */
+public class Keyframes {
+    private double[] times = new double[8];
+    private float[] values = new float[8];
+    private Easing[] easings = new Easing[8];
+    private int size;
+    private int hint;
+
+    public Keyframes key(double time, float value) {
+        return key(time, value, Easing.LINEAR);
+    }
+
+    /**
+     * Adds a key. When a key already exists at the given time, the new key is added after it, making the value jump
+     * instantly at that time.
+     *
+     * @param time   The time of the key, in seconds relative to the start of the animation
+     * @param value  The value at the key
+     * @param easing The easing used to interpolate from the previous key towards this key
+     * @return This instance for chaining
+     */
+    public Keyframes key(double time, float value, Easing easing) {
+        if (size == times.length) {
+            times = Arrays.copyOf(times, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+            easings = Arrays.copyOf(easings, size * 2);
+        }
+
+        int i = size;
+        while (i > 0 && times[i - 1] > time) {
+            i--;
+        }
+        System.arraycopy(times, i, times, i + 1, size - i);
+        System.arraycopy(values, i, values, i + 1, size - i);
+        System.arraycopy(easings, i, easings, i + 1, size - i);
+
+        times[i] = time;
+        values[i] = value;
+        easings[i] = easing == null ? Easing.LINEAR : easing;
+        size++;
+        hint = 0;
+        return this;
+    }
+
+    public void clear() {
+        Arrays.fill(easings, 0, size, null);
+        size = 0;
+        hint = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double getTime(int key) {
+        return times[key];
+    }
+
+    public float getValue(int key) {
+        return values[key];
+    }
+
+    public Easing getEasing(int key) {
+        return easings[key];
+    }
+
+    public double getStartTime() {
+        return size == 0 ? 0 : times[0];
+    }
+
+    public double getEndTime() {
+        return size == 0 ? 0 : times[size - 1];
+    }
+
+    // Finds the last key at or before the given time, assuming it lies between the first and last key
+    private int findSegment(double time) {
+        int h = hint;
+        if (h < size - 1 && times[h] <= time) {
+            if (time < times[h + 1]) {
+                return h;
+            }
+            if (h < size - 2 && time < times[h + 2]) {
+                return h + 1;
+            }
+        }
+
+        int lo = 0, hi = size - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (times[mid] <= time) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Samples this track at the given time. Before the first key, the value of the first key is returned, and after
+     * the last key, the value of the last key is returned.
+     *
+     * @throws IllegalStateException When this track has no keys
+     */
+    public float sample(double time) {
+        if (size == 0) {
+            throw new IllegalStateException("No keyframes");
+        }
+        if (time <= times[0]) {
+            return values[0];
+        }
+        if (time >= times[size - 1]) {
+            return values[size - 1];
+        }
+
+        int i = findSegment(time);
+        hint = i;
+
+        double t = MathUtil.unlerp(times[i], times[i + 1], time);
+        return MathUtil.lerp(values[i], values[i + 1], (float) easings[i + 1].ease(t));
+    }
+}
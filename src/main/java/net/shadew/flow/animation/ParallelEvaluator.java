@@ -0,0 +1,155 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.shadew.flow.animation;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Evaluates a sequence of updaters in parallel, grouped by write target. Updaters without a write target split the
+ * sequence into segments: each segment is evaluated in parallel, and the updater between two segments is evaluated on
+ * its own in between.
+ */
+final class ParallelEvaluator {
+    private static final int LEAF_SIZE = 256;
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+    private long[] keys = new long[16];
+
+    ParallelEvaluator(ForkJoinPool pool, int threshold) {
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Runs {@link Updater#update} of the updaters at the given indices.
+     *
+     * @param updaters The updaters of the timeline
+     * @param groups   The write group of each updater in the timeline, or -1 for updaters without write target
+     * @param order    The indices of the updaters to run, in timeline order
+     * @param count    The amount of indices in the order array
+     */
+    void update(Updater[] updaters, int[] groups, int[] order, int count, double time) {
+        int from = 0;
+        for (int k = 0; k <= count; k++) {
+            if (k == count || groups[order[k]] < 0) {
+                runSegment(updaters, groups, order, from, k, time, false);
+                if (k < count) {
+                    updaters[order[k]].update(time);
+                }
+                from = k + 1;
+            }
+        }
+    }
+
+    /**
+     * Runs {@link Updater#postUpdate} of the updaters at the given indices, in reverse order of their dependencies.
+     */
+    void postUpdate(Updater[] updaters, int[] groups, int[] order, int count, double time) {
+        int to = count;
+        for (int k = count - 1; k >= -1; k--) {
+            if (k < 0 || groups[order[k]] < 0) {
+                runSegment(updaters, groups, order, k + 1, to, time, true);
+                if (k >= 0) {
+                    updaters[order[k]].postUpdate(time);
+                }
+                to = k;
+            }
+        }
+    }
+
+    private void runSegment(Updater[] updaters, int[] groups, int[] order, int from, int to, double time, boolean cleanup) {
+        int n = to - from;
+        if (n <= 0) {
+            return;
+        }
+
+        if (n < threshold) {
+            if (cleanup) {
+                for (int k = to - 1; k >= from; k--) {
+                    updaters[order[k]].postUpdate(time);
+                }
+            } else {
+                for (int k = from; k < to; k++) {
+                    updaters[order[k]].update(time);
+                }
+            }
+            return;
+        }
+
+        // Sort by group, then by timeline index, so that each group is a contiguous range in timeline order
+        if (keys.length < n) {
+            keys = new long[Math.max(n, keys.length * 2)];
+        }
+        for (int j = 0; j < n; j++) {
+            int u = order[from + j];
+            keys[j] = (long) groups[u] << 32 | u;
+        }
+        Arrays.sort(keys, 0, n);
+
+        pool.invoke(new GroupTask(updaters, keys, 0, n, time, cleanup));
+    }
+
+    private static class GroupTask extends RecursiveAction {
+        private final Updater[] updaters;
+        private final long[] keys;
+        private final int from;
+        private final int to;
+        private final double time;
+        private final boolean cleanup;
+
+        GroupTask(Updater[] updaters, long[] keys, int from, int to, double time, boolean cleanup) {
+            this.updaters = updaters;
+            this.keys = keys;
+            this.from = from;
+            this.to = to;
+            this.time = time;
+            this.cleanup = cleanup;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > LEAF_SIZE) {
+                // Split at a group boundary, never in the middle of a group
+                int mid = (from + to) >>> 1;
+                while (mid < to && keys[mid] >>> 32 == keys[mid - 1] >>> 32) {
+                    mid++;
+                }
+                if (mid < to) {
+                    invokeAll(
+                        new GroupTask(updaters, keys, from, mid, time, cleanup),
+                        new GroupTask(updaters, keys, mid, to, time, cleanup)
+                    );
+                    return;
+                }
+            }
+
+            if (cleanup) {
+                for (int j = to - 1; j >= from; j--) {
+                    updaters[(int) keys[j]].postUpdate(time);
+                }
+            } else {
+                for (int j = from; j < to; j++) {
+                    updaters[(int) keys[j]].update(time);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.shadew.flow.animation;
+
+import java.util.Arrays;
+
+/**
+ * A standalone flat store of float and color properties, addressed by slot index, for values that are not stored on a
+ * scene node. Properties stored in slots can be animated in bulk by an {@link AnimationBatch}, which writes into the
+ * slot arrays directly rather than calling a getter and setter for every animated property.
+ */
+public class PropertySlots implements SlotStore {
+    private float[] floats = new float[16];
+    private int[] colors = new int[16];
+    private int floatCount;
+    private int colorCount;
+
+    /**
+     * Allocates a new float slot.
+     *
+     * @param value The initial value
+     * @return The index of the new slot
+     */
+    public int addFloat(float value) {
+        if (floatCount == floats.length) {
+            floats = Arrays.copyOf(floats, floatCount * 2);
+        }
+        floats[floatCount] = value;
+        return floatCount++;
+    }
+
+    /**
+     * Allocates a new color slot.
+     *
+     * @param argb The initial color, in ARGB format
+     * @return The index of the new slot
+     */
+    public int addColor(int argb) {
+        if (colorCount == colors.length) {
+            colors = Arrays.copyOf(colors, colorCount * 2);
+        }
+        colors[colorCount] = argb;
+        return colorCount++;
+    }
+
+    public float getFloat(int slot) {
+        return floats[slot];
+    }
+
+    public void setFloat(int slot, float value) {
+        floats[slot] = value;
+    }
+
+    public int getColor(int slot) {
+        return colors[slot];
+    }
+
+    public void setColor(int slot, int argb) {
+        colors[slot] = argb;
+    }
+
+    @Override
+    public float[] floatSlots() {
+        return floats;
+    }
+
+    @Override
+    public int[] colorSlots() {
+        return colors;
+    }
+
+    public int floatCount() {
+        return floatCount;
+    }
+
+    public int colorCount() {
+        return colorCount;
+    }
+}
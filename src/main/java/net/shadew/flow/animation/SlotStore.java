@@ -0,0 +1,30 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.shadew.flow.animation;
+
+/**
+ * An object that stores float and color properties in slot arrays, which an {@link AnimationBatch} writes into
+ * directly. The returned arrays must be the live storage of the properties, and a store that replaces its arrays must
+ * not do so while a batch on it is being evaluated.
+ *
+ * @see PropertySlots
+ */
+public interface SlotStore {
+    float[] floatSlots();
+    int[] colorSlots();
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.shadew.flow.animation;
+
+/**
+ * An easing function that has been sampled at a fixed resolution, approximating it piecewise linearly between the
+ * samples. Progress outside the range 0 to 1 is passed on to the original function, so extrapolation still works.
+ */
+final class TabulatedEasing implements Easing {
+    private final Easing fn;
+    private final double[] table;
+    private final int resolution;
+
+    TabulatedEasing(Easing fn, int resolution) {
+        if (resolution < 1)
+            throw new IllegalArgumentException("Resolution must be at least 1");
+
+        this.fn = fn;
+        this.resolution = resolution;
+        this.table = new double[resolution + 1];
+        for (int i = 0; i <= resolution; i++) {
+            table[i] = fn.ease(i / (double) resolution);
+        }
+    }
+
+    @Override
+    public double ease(double t) {
+        if (t < 0 || t > 1) {
+            return fn.ease(t);
+        }
+
+        double pos = t * resolution;
+        int i = (int) pos;
+        if (i >= resolution) {
+            return table[resolution];
+        }
+        double from = table[i];
+        return from + (table[i + 1] - from) * (pos - i);
+    }
+}
@@ -14,16 +14,61 @@
  * limitations under the License.
  */
 
+
 package net.shadew.flow.animation;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
+/**
+ * A timeline holds an ordered list of updaters. The scene is brought to the state of a given time by running all
+ * updaters in order, and back to its base state by cleaning them up in reverse order.
+ *
+ * Besides running all updaters, a timeline can {@link #seek} to a time, which only runs the updaters that affect that
+ * time: updaters that have started, where completed updaters sharing a {@linkplain Updater#getSettleKey() settle key}
+ * are reduced to the last one of them. Seeking uses an index of the updater intervals, which takes O(log n + k) time
+ * for k relevant updaters. Note that every started updater without a settle key is relevant, even long after it has
+ * completed, since its effect may depend on the ones before it. Node property animations are keyed by their node and
+ * property, but transform animations compose and have no key, and property animations with a getter and setter only
+ * have a key when one is {@linkplain FloatPropertyAnimation#settleKey declared}. When the timing of an updater changes
+ * after it has been added, call {@link #invalidate()}.
+ *
+ * Optionally, a timeline evaluates its updaters in {@linkplain #parallel parallel}, grouped by their {@linkplain
+ * Updater#getWriteTarget() write target}.
+ *
+ * A timeline may be modified from any thread while it is being evaluated. Modifications copy the list of updaters and
+ * publish the copy atomically, they never wait for evaluation and evaluation never waits for them. Once the timeline
+ * has been evaluated, modifications also build the seek index and write groups of the copy before publishing it, so
+ * that evaluation does not stall on indexing when another thread streams in changes. Before that, the index is built on
+ * the first evaluation, so building a timeline one updater at a time stays cheap. A run or seek always evaluates one
+ * consistent list, and is cleaned up using that same list, so an updater removed in between is still cleaned up and an
+ * updater added in between first takes part in the next run or seek. Evaluation itself must happen on one thread at a
+ * time.
+ */
 public class Timeline {
-    private final List<Updater> updaters = new ArrayList<>();
+    private final Object writeLock = new Object();
+    private volatile State state = new State(new Updater[0]);
+
+    // The states used by the last run and seek, which must be cleaned up using the same updaters
+    private State runState;
+    private State seekState;
+
+    private int[] seeked = new int[16];
+    private int seekedCount;
+    private double seekedTime;
+
+    private ParallelEvaluator parallel;
+
+    // Set on the first evaluation, from then on modifications index the updaters before publishing them
+    private volatile boolean live;
 
     public void append(Updater updater) {
-        insert(animationCount(), updater);
+        synchronized (writeLock) {
+            List<Updater> list = copy();
+            list.remove(updater);
+            list.add(updater);
+            publish(list);
+        }
     }
 
     public void prepend(Updater updater) {
@@ -31,45 +76,459 @@ public class Timeline {
     }
 
     public void insert(int index, Updater updater) {
-        updaters.remove(updater); // Remove so we can move it to the desired position
-        updaters.add(index, updater);
+        synchronized (writeLock) {
+            List<Updater> list = copy();
+            list.remove(updater); // Remove so we can move it to the desired position
+            list.add(index, updater);
+            publish(list);
+        }
     }
 
     public boolean remove(Updater updater) {
-        return updaters.remove(updater);
+        synchronized (writeLock) {
+            List<Updater> list = copy();
+            if (!list.remove(updater)) {
+                return false;
+            }
+            publish(list);
+            return true;
+        }
+    }
+
+    /**
+     * Appends multiple updaters at once, which is cheaper than appending them one by one.
+     */
+    public void appendAll(Collection<? extends Updater> updaters) {
+        synchronized (writeLock) {
+            List<Updater> list = copy();
+            list.removeAll(updaters);
+            list.addAll(updaters);
+            publish(list);
+        }
     }
 
     public int animationCount() {
-        return updaters.size();
+        return state.updaters.length;
     }
 
     public boolean insertBefore(Updater target, Updater updater) {
-        int index = updaters.indexOf(target);
-        if (index < 0) {
-            return false;
+        synchronized (writeLock) {
+            int index = copy().indexOf(target);
+            if (index < 0) {
+                return false;
+            }
+            insert(index, updater);
+            return true;
         }
-        insert(index, updater);
-        return true;
     }
 
     public boolean insertAfter(Updater target, Updater updater) {
-        int index = updaters.indexOf(target);
-        if (index < 0) {
-            return false;
+        synchronized (writeLock) {
+            int index = copy().indexOf(target);
+            if (index < 0) {
+                return false;
+            }
+            insert(index + 1, updater);
+            return true;
+        }
+    }
+
+    /**
+     * Returns an unmodifiable snapshot of the updaters in this timeline.
+     */
+    public List<Updater> getUpdaters() {
+        return Collections.unmodifiableList(Arrays.asList(state.updaters));
+    }
+
+    private List<Updater> copy() {
+        return new ArrayList<>(Arrays.asList(state.updaters));
+    }
+
+    private void publish(List<Updater> list) {
+        publish(list.toArray(new Updater[0]));
+    }
+
+    private void publish(Updater[] updaters) {
+        State s = new State(updaters);
+        if (live) {
+            s.buildIndices();
+        }
+        state = s;
+    }
+
+    /**
+     * Rebuilds the seek index and write groups. Must be called when the timing, settle key or write target of an
+     * updater in this timeline changes.
+     */
+    public void invalidate() {
+        synchronized (writeLock) {
+            publish(state.updaters);
         }
-        insert(index + 1, updater);
-        return true;
+    }
+
+    /**
+     * Evaluates updaters in parallel on the given pool, or sequentially if the pool is null, which is the default.
+     * Updaters with the same write target keep their order, updaters with different write targets may run concurrently.
+     * Only when at least the given amount of updaters can run concurrently, they are actually run in parallel.
+     */
+    public Timeline parallel(ForkJoinPool pool, int threshold) {
+        parallel = pool == null ? null : new ParallelEvaluator(pool, threshold);
+        return this;
+    }
+
+    public Timeline parallel(ForkJoinPool pool) {
+        return parallel(pool, 1024);
     }
 
     public void runAnimations(double time) {
-        for (Updater updater : updaters) {
+        State s = evaluatedState();
+        runState = s;
+
+        if (parallel != null) {
+            parallel.update(s.updaters, s.writeGroups, s.allOrder, s.allOrder.length, time);
+            return;
+        }
+
+        for (Updater updater : s.updaters) {
             updater.update(time);
         }
     }
 
     public void cleanupAnimations(double time) {
-        for (Updater updater : updaters) {
-            updater.postUpdate(time);
+        State s = runState != null ? runState : evaluatedState();
+        runState = null;
+
+        if (parallel != null) {
+            parallel.postUpdate(s.updaters, s.writeGroups, s.allOrder, s.allOrder.length, time);
+            return;
+        }
+
+        // Reverse order, so that updaters stacked on the same state restore it correctly
+        for (int i = s.updaters.length - 1; i >= 0; i--) {
+            s.updaters[i].postUpdate(time);
+        }
+    }
+
+    /**
+     * Brings the scene to its state at the given time. If the timeline was seeked before, the scene is first reset to
+     * its base state. Only updaters that affect the given time are run. The result is the same as that of {@link
+     * #runAnimations}, given that updaters report their timing correctly.
+     */
+    public void seek(double time) {
+        reset();
+
+        State s = evaluatedState();
+        seekedCount = 0;
+        s.index.collect(time, this);
+        Arrays.sort(seeked, 0, seekedCount);
+
+        if (parallel != null) {
+            parallel.update(s.updaters, s.writeGroups, seeked, seekedCount, time);
+        } else {
+            for (int i = 0; i < seekedCount; i++) {
+                s.updaters[seeked[i]].update(time);
+            }
+        }
+        seekedTime = time;
+        seekState = s;
+    }
+
+    /**
+     * Brings the scene back to its base state after a {@link #seek}. Does nothing when the timeline is not seeked.
+     */
+    public void reset() {
+        State s = seekState;
+        if (s == null) return;
+        seekState = null;
+
+        if (parallel != null) {
+            parallel.postUpdate(s.updaters, s.writeGroups, seeked, seekedCount, seekedTime);
+        } else {
+            for (int i = seekedCount - 1; i >= 0; i--) {
+                s.updaters[seeked[i]].postUpdate(seekedTime);
+            }
+        }
+        seekedCount = 0;
+    }
+
+    private State evaluatedState() {
+        if (!live) {
+            live = true;
+        }
+        State s = state;
+        s.buildIndices();
+        return s;
+    }
+
+    private void addSeeked(int updater) {
+        if (seekedCount == seeked.length) {
+            seeked = Arrays.copyOf(seeked, seekedCount * 2);
+        }
+        seeked[seekedCount++] = updater;
+    }
+
+    /**
+     * An immutable list of updaters with its indices. The indices are built by the modifying thread before the state
+     * is published, or by the evaluating thread when the state was published before the timeline was first evaluated.
+     */
+    private static class State {
+        final Updater[] updaters;
+
+        SeekIndex index;
+        int[] writeGroups;
+        int[] allOrder;
+
+        State(Updater[] updaters) {
+            this.updaters = updaters;
+        }
+
+        void buildIndices() {
+            if (index != null) return;
+
+            index = new SeekIndex(Arrays.asList(updaters));
+
+            int n = updaters.length;
+            Map<Object, Integer> ids = new HashMap<>();
+            int[] groups = new int[n];
+            int[] order = new int[n];
+            for (int i = 0; i < n; i++) {
+                Object target = updaters[i].getWriteTarget();
+                groups[i] = target == null ? -1 : ids.computeIfAbsent(target, k -> ids.size());
+                order[i] = i;
+            }
+            allOrder = order;
+            writeGroups = groups;
+        }
+    }
+
+    private static class SeekIndex {
+        // Updaters that must always run
+        private final int[] always;
+
+        // Updaters without settle key that have a start time, sorted by start time
+        private final int[] started;
+        private final double[] startedTimes;
+
+        // Updaters with settle key that are running at a time, by interval
+        private final IntervalTree running;
+
+        // Groups of updaters with settle key, sorted by the first end time of the group
+        private final SettleGroup[] groups;
+        private final double[] groupEnds;
+
+        SeekIndex(List<Updater> updaters) {
+            int n = updaters.size();
+            double[] starts = new double[n];
+            double[] ends = new double[n];
+
+            List<Integer> always = new ArrayList<>();
+            List<Integer> started = new ArrayList<>();
+            List<Integer> settling = new ArrayList<>();
+            Map<Object, List<Integer>> groups = new HashMap<>();
+
+            for (int i = 0; i < n; i++) {
+                Updater updater = updaters.get(i);
+                starts[i] = updater.getStartTime();
+                ends[i] = updater.getEndTime();
+                Object key = updater.getSettleKey();
+
+                if (starts[i] == Double.NEGATIVE_INFINITY) {
+                    always.add(i);
+                } else if (key == null) {
+                    started.add(i);
+                } else {
+                    settling.add(i);
+                    if (ends[i] != Double.POSITIVE_INFINITY) {
+                        groups.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+                    }
+                }
+            }
+
+            this.always = toArray(always);
+
+            started.sort(Comparator.comparingDouble(i -> starts[i]));
+            this.started = toArray(started);
+            this.startedTimes = new double[this.started.length];
+            for (int i = 0; i < this.started.length; i++) {
+                startedTimes[i] = starts[this.started[i]];
+            }
+
+            this.running = IntervalTree.create(toArray(settling), starts, ends);
+
+            List<SettleGroup> groupList = new ArrayList<>();
+            for (List<Integer> group : groups.values()) {
+                groupList.add(new SettleGroup(group, ends));
+            }
+            groupList.sort(Comparator.comparingDouble(g -> g.ends[0]));
+            this.groups = groupList.toArray(new SettleGroup[0]);
+            this.groupEnds = new double[this.groups.length];
+            for (int i = 0; i < this.groups.length; i++) {
+                groupEnds[i] = this.groups[i].ends[0];
+            }
+        }
+
+        void collect(double time, Timeline out) {
+            for (int i : always) {
+                out.addSeeked(i);
+            }
+
+            for (int i = 0, n = upperBound(startedTimes, time); i < n; i++) {
+                out.addSeeked(started[i]);
+            }
+
+            if (running != null) {
+                running.stab(time, out);
+            }
+
+            for (int i = 0, n = upperBound(groupEnds, time); i < n; i++) {
+                out.addSeeked(groups[i].lastSettled(time));
+            }
+        }
+    }
+
+    private static class SettleGroup {
+        // End times in ascending order, and the highest timeline index among the updaters ended at or before them
+        final double[] ends;
+        final int[] lastIndex;
+
+        SettleGroup(List<Integer> updaters, double[] ends) {
+            updaters.sort(Comparator.comparingDouble(i -> ends[i]));
+            int n = updaters.size();
+            this.ends = new double[n];
+            this.lastIndex = new int[n];
+            int last = -1;
+            for (int i = 0; i < n; i++) {
+                int u = updaters.get(i);
+                last = Math.max(last, u);
+                this.ends[i] = ends[u];
+                this.lastIndex[i] = last;
+            }
+        }
+
+        int lastSettled(double time) {
+            return lastIndex[upperBound(ends, time) - 1];
+        }
+    }
+
+    /**
+     * A centered interval tree over half-open intervals [start, end), answering which intervals contain a time in
+     * O(log n + k).
+     */
+    private static class IntervalTree {
+        private final double center;
+        private final int[] byStart;
+        private final double[] startTimes;
+        private final int[] byEnd;
+        private final double[] endTimes;
+        private final IntervalTree left;
+        private final IntervalTree right;
+
+        private IntervalTree(double center, int[] byStart, double[] startTimes, int[] byEnd, double[] endTimes, IntervalTree left, IntervalTree right) {
+            this.center = center;
+            this.byStart = byStart;
+            this.startTimes = startTimes;
+            this.byEnd = byEnd;
+            this.endTimes = endTimes;
+            this.left = left;
+            this.right = right;
+        }
+
+        static IntervalTree create(int[] ids, double[] starts, double[] ends) {
+            // Empty intervals never contain any time
+            int count = 0;
+            int[] nonEmpty = new int[ids.length];
+            for (int id : ids) {
+                if (starts[id] < ends[id]) nonEmpty[count++] = id;
+            }
+            return build(Arrays.copyOf(nonEmpty, count), starts, ends);
+        }
+
+        // The center is the start of at least one interval, so every node holds at least one interval
+        private static IntervalTree build(int[] ids, double[] starts, double[] ends) {
+            if (ids.length == 0) {
+                return null;
+            }
+
+            double[] points = new double[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                points[i] = starts[ids[i]];
+            }
+            Arrays.sort(points);
+            double center = points[points.length / 2];
+
+            List<Integer> leftIds = new ArrayList<>();
+            List<Integer> rightIds = new ArrayList<>();
+            List<Integer> here = new ArrayList<>();
+            for (int id : ids) {
+                if (ends[id] <= center) {
+                    leftIds.add(id);
+                } else if (starts[id] > center) {
+                    rightIds.add(id);
+                } else {
+                    here.add(id);
+                }
+            }
+
+            List<Integer> sortedStart = new ArrayList<>(here);
+            sortedStart.sort(Comparator.comparingDouble(i -> starts[i]));
+            List<Integer> sortedEnd = new ArrayList<>(here);
+            sortedEnd.sort(Comparator.comparingDouble(i -> -ends[i]));
+
+            int[] byStart = toArray(sortedStart);
+            int[] byEnd = toArray(sortedEnd);
+            double[] startTimes = new double[byStart.length];
+            double[] endTimes = new double[byEnd.length];
+            for (int i = 0; i < byStart.length; i++) {
+                startTimes[i] = starts[byStart[i]];
+                endTimes[i] = ends[byEnd[i]];
+            }
+
+            return new IntervalTree(
+                center, byStart, startTimes, byEnd, endTimes,
+                build(toArray(leftIds), starts, ends),
+                build(toArray(rightIds), starts, ends)
+            );
+        }
+
+        void stab(double time, Timeline out) {
+            IntervalTree node = this;
+            while (node != null) {
+                if (time < node.center) {
+                    // All intervals here end after the center, so only their start matters
+                    for (int i = 0; i < node.byStart.length && node.startTimes[i] <= time; i++) {
+                        out.addSeeked(node.byStart[i]);
+                    }
+                    node = node.left;
+                } else {
+                    // All intervals here start at or before the center, so only their end matters
+                    for (int i = 0; i < node.byEnd.length && node.endTimes[i] > time; i++) {
+                        out.addSeeked(node.byEnd[i]);
+                    }
+                    node = node.right;
+                }
+            }
+        }
+    }
+
+    // Number of elements less than or equal to the given value
+    private static int upperBound(double[] sorted, double value) {
+        int lo = 0, hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] <= value) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] out = new int[list.size()];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = list.get(i);
         }
+        return out;
     }
 }
@@ -17,7 +17,56 @@
 package net.shadew.flow.animation;
 
 public abstract class Updater {
+    private Object writeTarget;
+
     public abstract void update(double time);
 
     public abstract void postUpdate(double time);
+
+    /**
+     * Returns the time before which {@link #update} has no effect. {@link Timeline#seek} skips updaters before this
+     * time. By default, updaters have an effect at any time.
+     */
+    public double getStartTime() {
+        return Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Returns the time from which the effect of {@link #update} no longer changes, i.e. the updater has completed. By
+     * default, updaters never complete.
+     */
+    public double getEndTime() {
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns a key identifying the state that this updater assigns once it has completed, or null if its completed
+     * effect depends on the state it is applied to. When multiple completed updaters in a {@link Timeline} share a
+     * settle key, only the last one in timeline order determines the state, and {@link Timeline#seek} skips the others.
+     * Keys are compared using {@link Object#equals}.
+     */
+    public Object getSettleKey() {
+        return null;
+    }
+
+    /**
+     * Declares the object that this updater writes to, for updaters that don't know this themselves.
+     *
+     * @see #getWriteTarget()
+     */
+    public Updater writes(Object target) {
+        this.writeTarget = target;
+        return this;
+    }
+
+    /**
+     * Returns the object that this updater writes to, such as the node it animates, or null if unknown. When a {@link
+     * Timeline} is evaluated in parallel, updaters with the same write target run in timeline order on one thread, and
+     * updaters with different targets may run concurrently. An updater must therefore not touch anything but its write
+     * target. Updaters without a write target are run on their own, after all updaters before them have completed.
+     * Targets are compared using {@link Object#equals}.
+     */
+    public Object getWriteTarget() {
+        return writeTarget;
+    }
 }
@@ -0,0 +1,594 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.shadew.flow.flat;
+
+import org.joml.Matrix3x2f;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import net.shadew.flow.animation.Timeline;
+import net.shadew.flow.animation.Updater;
+
+/**
+ * A {@link Timeline} that has been evaluated once for every frame of a range, storing the resulting state of a node tree
+ * per frame. Replaying a baked timeline sets the stored values by indexing into the tracks, without any easing or
+ * property access through updaters, which makes repeated exports of the same scene cheaper.
+ *
+ * State is stored in columns, one per animated value (a property slot, transform component or the visibility of a
+ * node). Only values that differ from the base state of the scene in at least one frame are stored. A column consists
+ * of runs: constant runs store one value for a range of frames, other runs store a value per frame. Saved to disk,
+ * per-frame runs are delta-encoded and the whole is compressed.
+ *
+ * A baked timeline is bound to the node tree it was baked from: it can only be loaded into a tree with the same
+ * structure. Frames outside the baked range show the first or last baked frame.
+ */
+public class BakedTimeline extends Updater {
+    private static final int MAGIC = 0x464C424B; // FLBK
+    private static final int VERSION = 1;
+
+    private static final byte FLOAT = 0;
+    private static final byte COLOR = 1;
+    private static final byte TRANSFORM = 2;
+    private static final byte VISIBILITY = 3;
+
+    private static final byte RUN_CONSTANT = 0;
+    private static final byte RUN_FRAMES = 1;
+
+    // Amount of equal values after which a per-frame run is ended and a constant run begins
+    private static final int MIN_CONSTANT_RUN = 4;
+
+    private final Node2D[] nodes;
+    private final int fps;
+    private final long startFrame;
+    private final int frameCount;
+
+    // Channels
+    private final int[] channelNode;
+    private final byte[] channelKind;
+    private final int[] channelIndex;
+    private final int[] channelRunsFrom;
+    private final int[] channelRunsTo;
+    private final int[] channelHint;
+
+    // Runs
+    private final int[] runFrame;
+    private final byte[] runKind;
+    private final int[] runValue; // The value of a constant run, or the offset into data of a per-frame run
+    private final int[] data;
+
+    // Per-frame state for cleanup
+    private final int[] saved;
+    private final boolean[] transformed;
+    private final Matrix3x2f matrix = new Matrix3x2f();
+    private boolean applied;
+
+    private BakedTimeline(Node2D[] nodes, int fps, long startFrame, int frameCount,
+                          int[] channelNode, byte[] channelKind, int[] channelIndex, int[] channelRunsFrom, int[] channelRunsTo,
+                          int[] runFrame, byte[] runKind, int[] runValue, int[] data) {
+        this.nodes = nodes;
+        this.fps = fps;
+        this.startFrame = startFrame;
+        this.frameCount = frameCount;
+        this.channelNode = channelNode;
+        this.channelKind = channelKind;
+        this.channelIndex = channelIndex;
+        this.channelRunsFrom = channelRunsFrom;
+        this.channelRunsTo = channelRunsTo;
+        this.channelHint = Arrays.copyOf(channelRunsFrom, channelRunsFrom.length);
+        this.runFrame = runFrame;
+        this.runKind = runKind;
+        this.runValue = runValue;
+        this.data = data;
+        this.saved = new int[channelNode.length];
+        this.transformed = new boolean[nodes.length];
+    }
+
+    public int getFps() {
+        return fps;
+    }
+
+    public long getStartFrame() {
+        return startFrame;
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    public int channelCount() {
+        return channelNode.length;
+    }
+
+    public int runCount() {
+        return runFrame.length;
+    }
+
+    private int sample(int channel, int frame) {
+        int from = channelRunsFrom[channel];
+        int to = channelRunsTo[channel];
+
+        // Sequential playback usually stays in the same run or moves to the next
+        int run = channelHint[channel];
+        if (runFrame[run] > frame || run + 1 < to && runFrame[run + 1] <= frame) {
+            if (run + 1 < to && runFrame[run + 1] <= frame && (run + 2 >= to || runFrame[run + 2] > frame)) {
+                run++;
+            } else {
+                int lo = from, hi = to - 1;
+                while (lo < hi) {
+                    int mid = (lo + hi + 1) >>> 1;
+                    if (runFrame[mid] <= frame) {
+                        lo = mid;
+                    } else {
+                        hi = mid - 1;
+                    }
+                }
+                run = lo;
+            }
+            channelHint[channel] = run;
+        }
+
+        if (runKind[run] == RUN_CONSTANT) {
+            return runValue[run];
+        }
+        return data[runValue[run] + frame - runFrame[run]];
+    }
+
+    @Override
+    public void update(double time) {
+        long f = Math.round(time * fps) - startFrame;
+        int frame = (int) Math.max(0, Math.min(frameCount - 1, f));
+
+        for (int c = 0, n = channelNode.length; c < n; c++) {
+            Node2D node = nodes[channelNode[c]];
+            int index = channelIndex[c];
+            int value = sample(c, frame);
+
+            switch (channelKind[c]) {
+                case FLOAT:
+                    saved[c] = Float.floatToRawIntBits(node.floatSlots()[index]);
+                    node.floatSlots()[index] = Float.intBitsToFloat(value);
+                    node.markChanged();
+                    break;
+                case COLOR:
+                    saved[c] = node.colorSlots()[index];
+                    node.colorSlots()[index] = value;
+                    node.markChanged();
+                    break;
+                case VISIBILITY:
+                    saved[c] = node.getVisibility();
+                    node.setVisibility(value);
+                    break;
+                case TRANSFORM:
+                    int ni = channelNode[c];
+                    if (!transformed[ni]) {
+                        transformed[ni] = true;
+                        node.pushTransform();
+                    }
+                    node.getTransform(matrix);
+                    setComponent(matrix, index, Float.intBitsToFloat(value));
+                    node.setTransform(matrix);
+                    break;
+            }
+        }
+        applied = true;
+    }
+
+    @Override
+    public void postUpdate(double time) {
+        if (!applied) return;
+        applied = false;
+
+        for (int c = channelNode.length - 1; c >= 0; c--) {
+            Node2D node = nodes[channelNode[c]];
+            int index = channelIndex[c];
+
+            switch (channelKind[c]) {
+                case FLOAT:
+                    node.floatSlots()[index] = Float.intBitsToFloat(saved[c]);
+                    node.markChanged();
+                    break;
+                case COLOR:
+                    node.colorSlots()[index] = saved[c];
+                    node.markChanged();
+                    break;
+                case VISIBILITY:
+                    node.setVisibility(saved[c]);
+                    break;
+                case TRANSFORM:
+                    int ni = channelNode[c];
+                    if (transformed[ni]) {
+                        transformed[ni] = false;
+                        node.popTransform();
+                    }
+                    break;
+            }
+        }
+    }
+
+    private static float getComponent(Matrix3x2f mat, int index) {
+        switch (index) {
+            case 0: return mat.m00;
+            case 1: return mat.m01;
+            case 2: return mat.m10;
+            case 3: return mat.m11;
+            case 4: return mat.m20;
+            default: return mat.m21;
+        }
+    }
+
+    private static void setComponent(Matrix3x2f mat, int index, float value) {
+        switch (index) {
+            case 0: mat.m00 = value; break;
+            case 1: mat.m01 = value; break;
+            case 2: mat.m10 = value; break;
+            case 3: mat.m11 = value; break;
+            case 4: mat.m20 = value; break;
+            default: mat.m21 = value; break;
+        }
+    }
+
+
+    //
+    // BAKING
+    //
+
+    /**
+     * Bakes a timeline by seeking it to every frame in the given range and recording the state of the given node tree.
+     * The timeline is left reset.
+     *
+     * @param timeline   The timeline to bake
+     * @param root       The root of the node tree animated by the timeline
+     * @param fps        The frame rate to bake at, which should be the frame rate of the output
+     * @param fromFrame  The first frame to bake, inclusive
+     * @param toFrame    The last frame to bake, exclusive
+     */
+    public static BakedTimeline bake(Timeline timeline, Node2D root, int fps, long fromFrame, long toFrame) {
+        if (toFrame <= fromFrame) {
+            throw new IllegalArgumentException("Empty frame range");
+        }
+        int frameCount = Math.toIntExact(toFrame - fromFrame);
+
+        List<Node2D> nodeList = new ArrayList<>();
+        root.traverse(nodeList::add);
+        Node2D[] nodes = nodeList.toArray(new Node2D[0]);
+
+        // Every value of the tree is a candidate channel, record the base state first
+        List<ChannelEncoder> encoders = new ArrayList<>();
+        Matrix3x2f mat = new Matrix3x2f();
+        timeline.reset();
+        for (int n = 0; n < nodes.length; n++) {
+            Node2D node = nodes[n];
+            for (int i = 0; i < node.floatSlots().length; i++) {
+                encoders.add(new ChannelEncoder(n, FLOAT, i, Float.floatToRawIntBits(node.floatSlots()[i])));
+            }
+            for (int i = 0; i < node.colorSlots().length; i++) {
+                encoders.add(new ChannelEncoder(n, COLOR, i, node.colorSlots()[i]));
+            }
+            node.getTransform(mat);
+            for (int i = 0; i < 6; i++) {
+                encoders.add(new ChannelEncoder(n, TRANSFORM, i, Float.floatToRawIntBits(getComponent(mat, i))));
+            }
+            encoders.add(new ChannelEncoder(n, VISIBILITY, 0, node.getVisibility()));
+        }
+
+        for (int f = 0; f < frameCount; f++) {
+            timeline.seek((fromFrame + f) / (double) fps);
+            for (ChannelEncoder enc : encoders) {
+                enc.push(f, read(nodes[enc.node], enc.kind, enc.index, mat));
+            }
+            timeline.reset();
+        }
+
+        // Keep only the channels that differ from the base state
+        List<ChannelEncoder> channels = new ArrayList<>();
+        for (ChannelEncoder enc : encoders) {
+            enc.finish(frameCount);
+            if (!enc.isBase()) {
+                channels.add(enc);
+            }
+        }
+        return fromEncoders(nodes, fps, fromFrame, frameCount, channels);
+    }
+
+    private static int read(Node2D node, byte kind, int index, Matrix3x2f mat) {
+        switch (kind) {
+            case FLOAT:
+                return Float.floatToRawIntBits(node.floatSlots()[index]);
+            case COLOR:
+                return node.colorSlots()[index];
+            case TRANSFORM:
+                node.getTransform(mat);
+                return Float.floatToRawIntBits(getComponent(mat, index));
+            default:
+                return node.getVisibility();
+        }
+    }
+
+    private static BakedTimeline fromEncoders(Node2D[] nodes, int fps, long startFrame, int frameCount, List<ChannelEncoder> channels) {
+        int n = channels.size();
+        int[] channelNode = new int[n];
+        byte[] channelKind = new byte[n];
+        int[] channelIndex = new int[n];
+        int[] channelRunsFrom = new int[n];
+        int[] channelRunsTo = new int[n];
+
+        int runs = 0, values = 0;
+        for (ChannelEncoder enc : channels) {
+            runs += enc.runs;
+            values += enc.dataSize;
+        }
+
+        int[] runFrame = new int[runs];
+        byte[] runKind = new byte[runs];
+        int[] runValue = new int[runs];
+        int[] data = new int[values];
+
+        int r = 0, d = 0;
+        for (int c = 0; c < n; c++) {
+            ChannelEncoder enc = channels.get(c);
+            channelNode[c] = enc.node;
+            channelKind[c] = enc.kind;
+            channelIndex[c] = enc.index;
+            channelRunsFrom[c] = r;
+            for (int i = 0; i < enc.runs; i++, r++) {
+                runFrame[r] = enc.runFrame[i];
+                runKind[r] = enc.runKind[i];
+                runValue[r] = enc.runKind[i] == RUN_CONSTANT ? enc.runValue[i] : enc.runValue[i] + d;
+            }
+            channelRunsTo[c] = r;
+            System.arraycopy(enc.data, 0, data, d, enc.dataSize);
+            d += enc.dataSize;
+        }
+
+        return new BakedTimeline(
+            nodes, fps, startFrame, frameCount,
+            channelNode, channelKind, channelIndex, channelRunsFrom, channelRunsTo,
+            runFrame, runKind, runValue, data
+        );
+    }
+
+    private static class ChannelEncoder {
+        final int node;
+        final byte kind;
+        final int index;
+        final int base;
+
+        int runs;
+        int[] runFrame = new int[2];
+        byte[] runKind = new byte[2];
+        int[] runValue = new int[2];
+
+        int dataSize;
+        int[] data = new int[0];
+
+        // Current run: constant with a value, or per frame with values in data
+        boolean constant;
+        int value;
+        int start;
+        int equalCount;
+
+        ChannelEncoder(int node, byte kind, int index, int base) {
+            this.node = node;
+            this.kind = kind;
+            this.index = index;
+            this.base = base;
+        }
+
+        void push(int frame, int v) {
+            if (frame == 0) {
+                constant = true;
+                value = v;
+                start = 0;
+                return;
+            }
+
+            if (constant) {
+                if (v == value) return;
+                addRun(start, RUN_CONSTANT, value);
+                constant = false;
+                start = frame;
+                append(v);
+                equalCount = 1;
+                value = v;
+                return;
+            }
+
+            append(v);
+            equalCount = v == value ? equalCount + 1 : 1;
+            value = v;
+
+            if (equalCount == MIN_CONSTANT_RUN) {
+                // The last values are equal, move them into a constant run
+                int constantStart = frame - MIN_CONSTANT_RUN + 1;
+                dataSize -= MIN_CONSTANT_RUN;
+                if (constantStart > start) {
+                    addRun(start, RUN_FRAMES, dataSize - (constantStart - start));
+                }
+                constant = true;
+                start = constantStart;
+            }
+        }
+
+        void finish(int frameCount) {
+            if (constant) {
+                addRun(start, RUN_CONSTANT, value);
+            } else {
+                addRun(start, RUN_FRAMES, dataSize - (frameCount - start));
+            }
+            data = Arrays.copyOf(data, dataSize);
+        }
+
+        boolean isBase() {
+            return runs == 1 && runKind[0] == RUN_CONSTANT && runValue[0] == base;
+        }
+
+        private void append(int v) {
+            if (dataSize == data.length) {
+                data = Arrays.copyOf(data, Math.max(16, dataSize * 2));
+            }
+            data[dataSize++] = v;
+        }
+
+        void addRun(int frame, byte kind, int value) {
+            if (runs == runFrame.length) {
+                runFrame = Arrays.copyOf(runFrame, runs * 2);
+                runKind = Arrays.copyOf(runKind, runs * 2);
+                runValue = Arrays.copyOf(runValue, runs * 2);
+            }
+            runFrame[runs] = frame;
+            runKind[runs] = kind;
+            runValue[runs] = value;
+            runs++;
+        }
+    }
+
+
+    //
+    // STORAGE
+    //
+
+    public void save(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(fps);
+            out.writeLong(startFrame);
+            out.writeInt(frameCount);
+
+            out.writeInt(nodes.length);
+            for (Node2D node : nodes) {
+                out.writeInt(node.getClass().getName().hashCode());
+            }
+
+            out.writeInt(channelNode.length);
+            for (int c = 0; c < channelNode.length; c++) {
+                out.writeInt(channelNode[c]);
+                out.writeByte(channelKind[c]);
+                out.writeShort(channelIndex[c]);
+
+                int from = channelRunsFrom[c], to = channelRunsTo[c];
+                out.writeInt(to - from);
+                for (int r = from; r < to; r++) {
+                    out.writeInt(runFrame[r]);
+                    out.writeByte(runKind[r]);
+                    if (runKind[r] == RUN_CONSTANT) {
+                        out.writeInt(runValue[r]);
+                    } else {
+                        int end = r + 1 < to ? runFrame[r + 1] : frameCount;
+                        writeVarInt(out, end - runFrame[r]);
+                        int prev = 0;
+                        for (int i = runValue[r], e = i + end - runFrame[r]; i < e; i++) {
+                            writeVarInt(out, zigzag(data[i] - prev));
+                            prev = data[i];
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads a baked timeline and binds it to the given node tree.
+     *
+     * @throws IllegalArgumentException When the tree does not match the tree the timeline was baked from
+     */
+    public static BakedTimeline load(File file, Node2D root) throws IOException {
+        List<Node2D> nodeList = new ArrayList<>();
+        root.traverse(nodeList::add);
+        Node2D[] nodes = nodeList.toArray(new Node2D[0]);
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))))) {
+            if (in.readInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a baked timeline");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported baked timeline version " + version);
+            }
+            int fps = in.readInt();
+            long startFrame = in.readLong();
+            int frameCount = in.readInt();
+
+            if (in.readInt() != nodes.length) {
+                throw new IllegalArgumentException("Baked timeline does not match scene: node count differs");
+            }
+            for (Node2D node : nodes) {
+                if (in.readInt() != node.getClass().getName().hashCode()) {
+                    throw new IllegalArgumentException("Baked timeline does not match scene: node type differs at " + node);
+                }
+            }
+
+            int n = in.readInt();
+            List<ChannelEncoder> channels = new ArrayList<>(n);
+            for (int c = 0; c < n; c++) {
+                ChannelEncoder enc = new ChannelEncoder(in.readInt(), in.readByte(), in.readShort(), 0);
+                int runs = in.readInt();
+                for (int r = 0; r < runs; r++) {
+                    int frame = in.readInt();
+                    if (in.readByte() == RUN_CONSTANT) {
+                        enc.addRun(frame, RUN_CONSTANT, in.readInt());
+                    } else {
+                        enc.addRun(frame, RUN_FRAMES, enc.dataSize);
+                        int length = readVarInt(in);
+                        int prev = 0;
+                        for (int i = 0; i < length; i++) {
+                            prev += unzigzag(readVarInt(in));
+                            enc.append(prev);
+                        }
+                    }
+                }
+                enc.data = Arrays.copyOf(enc.data, enc.dataSize);
+                channels.add(enc);
+            }
+            return fromEncoders(nodes, fps, startFrame, frameCount, channels);
+        }
+    }
+
+    private static int zigzag(int v) {
+        return v << 1 ^ v >> 31;
+    }
+
+    private static int unzigzag(int v) {
+        return v >>> 1 ^ -(v & 1);
+    }
+
+    private static void writeVarInt(DataOutput out, int v) throws IOException {
+        while ((v & ~0x7F) != 0) {
+            out.writeByte(v & 0x7F | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    private static int readVarInt(DataInput in) throws IOException {
+        int v = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return v;
+            }
+        }
+        throw new IOException("Malformed variable-length integer");
+    }
+}
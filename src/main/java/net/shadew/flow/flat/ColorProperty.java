@@ -0,0 +1,76 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.shadew.flow.flat;
+
+/**
+ * A color property of a {@link Node2D}, stored in ARGB format.
+ *
+ * @see NodeProperty
+ */
+public final class ColorProperty extends NodeProperty {
+    private ColorProperty(Class<? extends Node2D> owner, String name, int index) {
+        super(owner, name, index);
+    }
+
+    public int get(Node2D node) {
+        return node.getColor(this);
+    }
+
+    public void set(Node2D node, int value) {
+        node.setColor(this, value);
+    }
+
+    /**
+     * Binds this property to the given node, for repeated access without checking every time whether the property
+     * applies to the node.
+     *
+     * @throws IllegalArgumentException When this property does not apply to the node
+     */
+    public Binding bind(Node2D node) {
+        checkOwner(node);
+        return new Binding(node, index);
+    }
+
+    /**
+     * Declares a new color property. Must be called from the static initializer of the owning class.
+     */
+    public static ColorProperty create(Class<? extends Node2D> owner, String name) {
+        synchronized (NodeProperty.class) {
+            return register(owner, new ColorProperty(owner, name, nextIndex(owner, ColorProperty.class)));
+        }
+    }
+
+    /**
+     * A color property bound to a node.
+     */
+    public static final class Binding {
+        private final Node2D node;
+        private final int index;
+
+        private Binding(Node2D node, int index) {
+            this.node = node;
+            this.index = index;
+        }
+
+        public int get() {
+            return node.getColorAt(index);
+        }
+
+        public void set(int value) {
+            node.setColorAt(index, value);
+        }
+    }
+}
@@ -16,13 +16,17 @@
 
 package net.shadew.flow.flat;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.function.Supplier;
 
+import net.shadew.flow.view.Snapshottable;
 import net.shadew.flow.view.Viewport;
 import net.shadew.flow.view.canvas2d.Canvas2DLayer;
 import net.shadew.flow.view.canvas2d.context.CanvasContext;
 
-public class FlatStage extends Canvas2DLayer {
+public class FlatStage extends Canvas2DLayer implements Snapshottable {
     public final RootNode root = new RootNode();
 
     public FlatStage(Supplier<? extends CanvasContext> contextFactory) {
@@ -39,6 +43,16 @@ public class FlatStage extends Canvas2DLayer {
         root.render(ctx, viewport, time);
     }
 
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        SceneSnapshot.write(root, out);
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        SceneSnapshot.read(root, in);
+    }
+
     @Override
     protected void cleanup(CanvasContext ctx) {
         root.traverse(Node2D::dispose);
@@ -29,11 +29,12 @@ import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import net.shadew.flow.animation.SlotStore;
 import net.shadew.flow.util.Disposable;
 import net.shadew.flow.view.Viewport;
 import net.shadew.flow.view.canvas2d.context.CanvasContext;
 
-public abstract class Node2D implements Disposable {
+public abstract class Node2D implements Disposable, SlotStore {
 
     @Override
     public void dispose() {
@@ -145,6 +146,111 @@ public abstract class Node2D implements Disposable {
     }
 
 
+    //
+    // PROPERTIES
+    //
+
+    private final float[] floats = new float[NodeProperty.floatProperties(getClass()).size()];
+    private final int[] colors = new int[NodeProperty.colorProperties(getClass()).size()];
+    private int version;
+
+    /**
+     * Returns the value of the given float property. Animations that access a property every frame should {@linkplain
+     * FloatProperty#bind bind} it instead, which checks ownership of the property only once.
+     *
+     * @throws IllegalArgumentException When the property does not apply to this node
+     */
+    public float getFloat(FloatProperty property) {
+        property.checkOwner(this);
+        return floats[property.index];
+    }
+
+    /**
+     * Sets the value of the given float property.
+     *
+     * @throws IllegalArgumentException When the property does not apply to this node
+     */
+    public void setFloat(FloatProperty property, float value) {
+        property.checkOwner(this);
+        setFloatAt(property.index, value);
+    }
+
+    /**
+     * Returns the value of the given color property. Animations that access a property every frame should {@linkplain
+     * ColorProperty#bind bind} it instead, which checks ownership of the property only once.
+     *
+     * @throws IllegalArgumentException When the property does not apply to this node
+     */
+    public int getColor(ColorProperty property) {
+        property.checkOwner(this);
+        return colors[property.index];
+    }
+
+    /**
+     * Sets the value of the given color property.
+     *
+     * @throws IllegalArgumentException When the property does not apply to this node
+     */
+    public void setColor(ColorProperty property, int value) {
+        property.checkOwner(this);
+        setColorAt(property.index, value);
+    }
+
+    // Unchecked accessors for property bindings, which checked ownership when they were created
+
+    float getFloatAt(int index) {
+        return floats[index];
+    }
+
+    void setFloatAt(int index, float value) {
+        if (floats[index] != value) {
+            floats[index] = value;
+            version++;
+        }
+    }
+
+    int getColorAt(int index) {
+        return colors[index];
+    }
+
+    void setColorAt(int index, int value) {
+        if (colors[index] != value) {
+            colors[index] = value;
+            version++;
+        }
+    }
+
+    /**
+     * Returns a counter that changes whenever a property or the transform of this node changes. Comparing it to a
+     * previously seen version is a cheap way to detect changes.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    protected void markChanged() {
+        version++;
+    }
+
+    /**
+     * Returns the live float slot array of this node, indexed by {@link FloatProperty#getIndex()}. Writing into it
+     * bypasses the version counter.
+     */
+    @Override
+    public float[] floatSlots() {
+        return floats;
+    }
+
+    /**
+     * Returns the live color slot array of this node, indexed by {@link ColorProperty#getIndex()}. Writing into it
+     * bypasses the version counter.
+     */
+    @Override
+    public int[] colorSlots() {
+        return colors;
+    }
+
+
     //
     // VISIBILITY
     //
@@ -177,21 +283,59 @@ public abstract class Node2D implements Disposable {
     // RENDERING
     //
 
+    // Scratch matrices for rendering, allocated on the first render
+    private Matrix3x2f renderBase;
+    private Matrix3x2f renderTransform;
+
+    /**
+     * Renders this node and its children, relative to the transform the context has when this method is called. The
+     * transforms of the ancestors of this node do not apply. The transform of the context is restored afterwards.
+     *
+     * This is the entry point of rendering a tree. To change how a node renders as part of a tree, override {@link
+     * #renderTree}, which is what this method calls and what is called for every child.
+     */
     public void render(CanvasContext ctx, Viewport vp, double time) {
         if (visibility != 0) {
+            if (renderBase == null) {
+                renderBase = new Matrix3x2f();
+            }
+            Matrix3x2f base = ctx.getTransform(renderBase);
+            boolean identity = base.m00 == 1 && base.m01 == 0 && base.m10 == 0 && base.m11 == 1 && base.m20 == 0 && base.m21 == 0;
+
             ctx.pushTransform();
-            ctx.transform(transform);
+            renderTree(ctx, vp, time, identity && parent == null ? null : base);
+            ctx.popTransform();
+        }
+    }
 
-            if ((visibility & SHOW_SELF) != 0) {
-                renderNode(ctx, vp, time);
-            }
-            if ((visibility & SHOW_CHILDREN) != 0) {
-                for (Node2D child : children) {
-                    child.render(ctx, vp, time);
-                }
+    /**
+     * Renders this node with {@link #renderNode} and then its children with their {@code renderTree}. The given
+     * transform maps the local space of the parent of this node to the space of the context, and each node sets its
+     * own transform on the context before drawing. When it is null, the world space of the tree maps to the context
+     * unchanged, and nodes are drawn with their cached {@linkplain #getWorldTransform() world transform}.
+     */
+    protected void renderTree(CanvasContext ctx, Viewport vp, double time, Matrix3x2fc parentTransform) {
+        if (visibility == 0) return;
+
+        Matrix3x2fc own;
+        if (parentTransform == null) {
+            own = parent == null ? getWorldTransform() : updateWorld();
+        } else {
+            if (renderTransform == null) {
+                renderTransform = new Matrix3x2f();
             }
+            own = parentTransform.mul(transform, renderTransform);
+        }
 
-            ctx.popTransform();
+        if ((visibility & SHOW_SELF) != 0) {
+            ctx.setTransform(own);
+            renderNode(ctx, vp, time);
+        }
+        if ((visibility & SHOW_CHILDREN) != 0) {
+            Matrix3x2fc childTransform = parentTransform == null ? null : own;
+            for (Node2D child : children) {
+                child.renderTree(ctx, vp, time, childTransform);
+            }
         }
     }
 
@@ -226,6 +370,7 @@ public abstract class Node2D implements Disposable {
         }
         children.add(index, child);
         child.parent = this;
+        child.transformVersion++;
     }
 
     public void appendChild(Node2D child) {
@@ -263,6 +408,7 @@ public abstract class Node2D implements Disposable {
     public boolean removeChild(Node2D target) {
         if (children.remove(target)) {
             target.parent = null;
+            target.transformVersion++;
             return true;
         }
         return false;
@@ -313,6 +459,7 @@ public abstract class Node2D implements Disposable {
     public void removeAllChildren(boolean dispose) {
         children.forEach(c -> {
             c.parent = null;
+            c.transformVersion++;
             if (dispose)
                 c.traverse(Node2D::dispose);
         });
@@ -325,12 +472,60 @@ public abstract class Node2D implements Disposable {
     //
 
     private final Matrix3x2fStack transform = new Matrix3x2fStack(256);
+    private final Matrix3x2f world = new Matrix3x2f();
+
+    // Changing the transform or the parent only bumps the version of the node itself, descendants notice changes
+    // when they compare the world version of their parent to the one their world transform was computed from. This
+    // way a change never writes to other nodes, so updaters that change transforms only write to their target.
+    private int transformVersion;
+    private int worldVersion;
+    private int worldTransformVersion = -1;
+    private int worldParentVersion;
+
+    private void transformChanged() {
+        markChanged();
+        transformVersion++;
+    }
+
+    // Recomputes the world transform if needed, assuming that the world transform of the parent is up to date
+    private Matrix3x2fc updateWorld() {
+        int parentVersion = parent == null ? 0 : parent.worldVersion;
+        if (worldTransformVersion != transformVersion || worldParentVersion != parentVersion) {
+            if (parent == null) {
+                world.set(transform);
+            } else {
+                parent.world.mul(transform, world);
+            }
+            worldTransformVersion = transformVersion;
+            worldParentVersion = parentVersion;
+            worldVersion++;
+        }
+        return world;
+    }
+
+    /**
+     * Returns the transform from the local space of this node to the space of the root of its tree. The matrix is
+     * cached, and only recomputed when the transform of this node or one of its ancestors changed, which is checked
+     * against the ancestors of this node on every call. The returned matrix must not be modified and changes when the
+     * transform changes.
+     */
+    public Matrix3x2fc getWorldTransform() {
+        if (parent != null) {
+            parent.getWorldTransform();
+        }
+        return updateWorld();
+    }
+
+    public Matrix3x2f getWorldTransform(Matrix3x2f mat) {
+        return mat.set(getWorldTransform());
+    }
 
     public void pushTransform() {
         transform.pushMatrix();
     }
 
     public void popTransform() {
+        transformChanged();
         transform.popMatrix();
     }
 
@@ -343,10 +538,12 @@ public abstract class Node2D implements Disposable {
     }
 
     public void setTransform(Matrix3x2fc mat) {
+        transformChanged();
         transform.set(mat);
     }
 
     public void transform(float m00, float m10, float m20, float m01, float m11, float m21) {
+        transformChanged();
         float nm00 = m00 * transform.m00 + m10 * transform.m01;
         float nm01 = m01 * transform.m00 + m11 * transform.m01;
         float nm10 = m00 * transform.m10 + m10 * transform.m11;
@@ -362,30 +559,37 @@ public abstract class Node2D implements Disposable {
     }
 
     public void translate(float x, float y) {
+        transformChanged();
         transform.translate(x, y);
     }
 
     public void translate(Vector2fc vec) {
+        transformChanged();
         transform.translate(vec);
     }
 
     public void rotate(float angle) {
+        transformChanged();
         transform.rotate(angle);
     }
 
     public void scale(float s) {
+        transformChanged();
         transform.scale(s);
     }
 
     public void scale(float x, float y) {
+        transformChanged();
         transform.scale(x, y);
     }
 
     public void scale(Vector2fc vec) {
+        transformChanged();
         transform.scale(vec.x(), vec.y());
     }
 
     public void resetTransform() {
+        transformChanged();
         transform.identity();
     }
 
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.shadew.flow.flat;
+
+import java.util.*;
+
+/**
+ * A typed, indexed property of a {@link Node2D} type. Property values are not stored in fields but in compact slot
+ * arrays on each node, one per value type, and a property is simply an index into the array of its type. This allows
+ * animations and other engines to read and write node properties by index, without getters and setters.
+ *
+ * Properties are declared as constants of the node class that owns them, using {@link FloatProperty#create} or {@link
+ * ColorProperty#create}. Indices continue from the properties of the superclass, so a subclass inherits all properties
+ * of its parent class at the same indices.
+ */
+public abstract class NodeProperty {
+    private static final Map<Class<?>, List<NodeProperty>> DECLARED = new HashMap<>();
+    private static final ClassValue<Layout> LAYOUTS = new ClassValue<Layout>() {
+        @Override
+        protected Layout computeValue(Class<?> type) {
+            return layout(type);
+        }
+    };
+
+    private final Class<? extends Node2D> owner;
+    private final String name;
+    final int index;
+
+    NodeProperty(Class<? extends Node2D> owner, String name, int index) {
+        this.owner = owner;
+        this.name = name;
+        this.index = index;
+    }
+
+    public Class<? extends Node2D> getOwner() {
+        return owner;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public boolean appliesTo(Node2D node) {
+        return owner.isInstance(node);
+    }
+
+    /**
+     * Throws an {@link IllegalArgumentException} when this property does not apply to the given node.
+     */
+    public void checkOwner(Node2D node) {
+        if (!owner.isInstance(node)) {
+            throw new IllegalArgumentException("Property " + this + " does not apply to " + node);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return owner.getSimpleName() + "." + name;
+    }
+
+    static synchronized <P extends NodeProperty> P register(Class<? extends Node2D> owner, P property) {
+        DECLARED.computeIfAbsent(owner, k -> new ArrayList<>()).add(property);
+        return property;
+    }
+
+    static synchronized int nextIndex(Class<?> owner, Class<? extends NodeProperty> kind) {
+        return layout(owner).count(kind);
+    }
+
+    private static synchronized Layout layout(Class<?> type) {
+        Layout layout = new Layout();
+        if (type == null) {
+            return layout;
+        }
+        Layout parent = layout(type.getSuperclass());
+        layout.floats.addAll(parent.floats);
+        layout.colors.addAll(parent.colors);
+        for (NodeProperty prop : DECLARED.getOrDefault(type, Collections.emptyList())) {
+            if (prop instanceof FloatProperty) {
+                layout.floats.add((FloatProperty) prop);
+            } else {
+                layout.colors.add((ColorProperty) prop);
+            }
+        }
+        return layout;
+    }
+
+    /**
+     * Returns all float properties of the given node type, ordered by index.
+     */
+    public static List<FloatProperty> floatProperties(Class<? extends Node2D> type) {
+        return LAYOUTS.get(type).floatsImmutable;
+    }
+
+    /**
+     * Returns all color properties of the given node type, ordered by index.
+     */
+    public static List<ColorProperty> colorProperties(Class<? extends Node2D> type) {
+        return LAYOUTS.get(type).colorsImmutable;
+    }
+
+    private static final class Layout {
+        final List<FloatProperty> floats = new ArrayList<>();
+        final List<ColorProperty> colors = new ArrayList<>();
+        final List<FloatProperty> floatsImmutable = Collections.unmodifiableList(floats);
+        final List<ColorProperty> colorsImmutable = Collections.unmodifiableList(colors);
+
+        int count(Class<? extends NodeProperty> kind) {
+            return kind == FloatProperty.class ? floats.size() : colors.size();
+        }
+    }
+}
@@ -21,20 +21,21 @@ import net.shadew.flow.view.canvas2d.context.CanvasContext;
 import net.shadew.util.misc.ColorUtil;
 
 public class RootNode extends Node2D {
-    private int backgroundColor;
+    public static final ColorProperty BACKGROUND_COLOR = ColorProperty.create(RootNode.class, "backgroundColor");
 
     public void setBackgroundColor(int backgroundColor) {
-        this.backgroundColor = backgroundColor;
+        setColor(BACKGROUND_COLOR, backgroundColor);
     }
 
     public int getBackgroundColor() {
-        return backgroundColor;
+        return getColor(BACKGROUND_COLOR);
     }
 
 
 
     @Override
     protected void renderNode(CanvasContext ctx, Viewport vp, double time) {
+        int backgroundColor = getBackgroundColor();
         if (ColorUtil.alphai(backgroundColor) != 0) {
             ctx.pushTransform();
             ctx.setIdentity();
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shadew.flow.flat;
+
+import org.joml.Matrix3x2f;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes and restores the animated state of a node tree: the visibility, transform and property slots of every node.
+ * The structure of the tree (nodes, their order and their types) is not stored, a snapshot can only be restored into a
+ * tree with the same structure as the tree it was taken from.
+ */
+public final class SceneSnapshot {
+    private static final int MAGIC = 0x464C534E; // FLSN
+    private static final int VERSION = 1;
+
+    private SceneSnapshot() {
+    }
+
+    public static void write(Node2D root, DataOutput out) throws IOException {
+        List<Node2D> nodes = new ArrayList<>();
+        root.traverse(nodes::add);
+
+        Matrix3x2f mat = new Matrix3x2f();
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(nodes.size());
+        for (Node2D node : nodes) {
+            out.writeInt(node.getClass().getName().hashCode());
+            out.writeByte(node.getVisibility());
+
+            node.getTransform(mat);
+            out.writeFloat(mat.m00);
+            out.writeFloat(mat.m01);
+            out.writeFloat(mat.m10);
+            out.writeFloat(mat.m11);
+            out.writeFloat(mat.m20);
+            out.writeFloat(mat.m21);
+
+            float[] floats = node.floatSlots();
+            out.writeShort(floats.length);
+            for (float f : floats) {
+                out.writeFloat(f);
+            }
+
+            int[] colors = node.colorSlots();
+            out.writeShort(colors.length);
+            for (int c : colors) {
+                out.writeInt(c);
+            }
+        }
+    }
+
+    public static void read(Node2D root, DataInput in) throws IOException {
+        List<Node2D> nodes = new ArrayList<>();
+        root.traverse(nodes::add);
+
+        if (in.readInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a scene snapshot");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported scene snapshot version " + version);
+        }
+        if (in.readInt() != nodes.size()) {
+            throw new IllegalArgumentException("Snapshot does not match scene: node count differs");
+        }
+
+        Matrix3x2f mat = new Matrix3x2f();
+        for (Node2D node : nodes) {
+            if (in.readInt() != node.getClass().getName().hashCode()) {
+                throw new IllegalArgumentException("Snapshot does not match scene: node type differs at " + node);
+            }
+            node.setVisibility(in.readByte());
+
+            mat.m00 = in.readFloat();
+            mat.m01 = in.readFloat();
+            mat.m10 = in.readFloat();
+            mat.m11 = in.readFloat();
+            mat.m20 = in.readFloat();
+            mat.m21 = in.readFloat();
+            node.setTransform(mat);
+
+            float[] floats = node.floatSlots();
+            if (in.readShort() != floats.length) {
+                throw new IllegalArgumentException("Snapshot does not match scene: properties differ at " + node);
+            }
+            for (int i = 0; i < floats.length; i++) {
+                floats[i] = in.readFloat();
+            }
+
+            int[] colors = node.colorSlots();
+            if (in.readShort() != colors.length) {
+                throw new IllegalArgumentException("Snapshot does not match scene: properties differ at " + node);
+            }
+            for (int i = 0; i < colors.length; i++) {
+                colors[i] = in.readInt();
+            }
+            node.markChanged();
+        }
+    }
+
+    public static byte[] capture(Node2D root) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            write(root, out);
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static void restore(Node2D root, byte[] snapshot) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(snapshot))) {
+            read(root, in);
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.shadew.flow.flat.animations;
+
+import java.util.AbstractMap;
+
+import net.shadew.flow.animation.Animation;
+import net.shadew.flow.flat.FloatProperty;
+import net.shadew.flow.flat.Node2D;
+import net.shadew.util.misc.MathUtil;
+
+/**
+ * Animates a {@link FloatProperty} of a node. This behaves like a {@link net.shadew.flow.animation.FloatPropertyAnimation}
+ * but accesses the property by index rather than through a getter and setter.
+ */
+public class FloatNodeAnimation extends Animation {
+    private final Node2D node;
+    private final FloatProperty property;
+    private final FloatProperty.Binding binding;
+    private final Object settleKey;
+
+    private float start;
+    private float target;
+
+    public FloatNodeAnimation(Node2D node, FloatProperty property) {
+        this.binding = property.bind(node);
+        this.node = node;
+        this.property = property;
+        this.settleKey = new AbstractMap.SimpleImmutableEntry<>(node, property);
+    }
+
+    public FloatNodeAnimation target(float value) {
+        target = value;
+        return this;
+    }
+
+    public float getTarget() {
+        return target;
+    }
+
+    public Node2D getNode() {
+        return node;
+    }
+
+    public FloatProperty getProperty() {
+        return property;
+    }
+
+    @Override
+    public Object getSettleKey() {
+        return settleKey;
+    }
+
+    @Override
+    public Object getWriteTarget() {
+        return node;
+    }
+
+    @Override
+    protected void preApply() {
+
+    }
+
+    @Override
+    protected void apply(double t) {
+        start = binding.get();
+        binding.set(MathUtil.lerp(start, target, (float) t));
+    }
+
+    @Override
+    protected void postApply() {
+        start = binding.get();
+        binding.set(target);
+    }
+
+    @Override
+    protected void preUnapply() {
+
+    }
+
+    @Override
+    protected void unapply(double t) {
+        binding.set(start);
+    }
+
+    @Override
+    protected void postUnapply() {
+        binding.set(start);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.shadew.flow.flat.animations;
+
+import org.joml.Matrix3x2f;
+
+import net.shadew.flow.animation.Easing;
+import net.shadew.flow.animation.Keyframes;
+import net.shadew.flow.flat.Node2D;
+
+/**
+ * Translates a node along a path of keyframes, replacing a chain of {@link TranslateAnimation}s. Each key sets the
+ * offset of the node at a time relative to the start of the animation.
+ */
+public class KeyframeTranslateAnimation extends TransformAnimation {
+    private final Keyframes x = new Keyframes();
+    private final Keyframes y = new Keyframes();
+
+    public KeyframeTranslateAnimation(Node2D node) {
+        super(node);
+    }
+
+    public KeyframeTranslateAnimation key(double time, float x, float y) {
+        return key(time, x, y, Easing.LINEAR);
+    }
+
+    public KeyframeTranslateAnimation key(double time, float x, float y, Easing easing) {
+        this.x.key(time, x, easing);
+        this.y.key(time, y, easing);
+        duration(this.x.getEndTime());
+        return this;
+    }
+
+    public Keyframes getKeyframesX() {
+        return x;
+    }
+
+    public Keyframes getKeyframesY() {
+        return y;
+    }
+
+    @Override
+    protected void applyTransform(Matrix3x2f matrix, float t) {
+        if (x.size() > 0) {
+            double time = t * x.getEndTime();
+            matrix.translate(x.sample(time), y.sample(time));
+        }
+    }
+}
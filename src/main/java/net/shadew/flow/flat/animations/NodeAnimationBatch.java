@@ -0,0 +1,52 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.shadew.flow.flat.animations;
+
+import net.shadew.flow.animation.AnimationBatch;
+import net.shadew.flow.animation.AnimationDirection;
+import net.shadew.flow.animation.Easing;
+import net.shadew.flow.flat.ColorProperty;
+import net.shadew.flow.flat.FloatProperty;
+import net.shadew.flow.flat.Node2D;
+
+/**
+ * An {@link AnimationBatch} of tweens on node properties. Each track writes into the property slot of its node
+ * directly, so a batch can animate properties of thousands of nodes in one loop. Ownership of the property is checked
+ * once, when the track is added.
+ */
+public class NodeAnimationBatch extends AnimationBatch {
+    public int addFloat(Node2D node, FloatProperty property, float target, double start, double end, Easing easing) {
+        property.checkOwner(node);
+        return addFloat(node, property.getIndex(), target, start, end, easing);
+    }
+
+    public int addFloat(Node2D node, FloatProperty property, float target, double start, double end, int repeat, AnimationDirection direction, Easing easing) {
+        property.checkOwner(node);
+        return addFloat(node, property.getIndex(), target, start, end, repeat, direction, easing);
+    }
+
+    public int addColor(Node2D node, ColorProperty property, int target, double start, double end, Easing easing) {
+        property.checkOwner(node);
+        return addColor(node, property.getIndex(), target, start, end, easing);
+    }
+
+    public int addColor(Node2D node, ColorProperty property, int target, double start, double end, int repeat, AnimationDirection direction, Easing easing) {
+        property.checkOwner(node);
+        return addColor(node, property.getIndex(), target, start, end, repeat, direction, easing);
+    }
+}
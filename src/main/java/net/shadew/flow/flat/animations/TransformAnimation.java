@@ -21,6 +21,11 @@ import org.joml.Matrix3x2f;
 import net.shadew.flow.animation.Animation;
 import net.shadew.flow.flat.Node2D;
 
+/**
+ * Animates the transform of a node by transforming it further. Transform animations of the same node compose, so
+ * unlike property animations, a completed transform animation has no settle key, and a timeline runs it on every seek
+ * after its start.
+ */
 public abstract class TransformAnimation extends Animation {
     protected final Node2D node;
     private final Matrix3x2f matrix = new Matrix3x2f();
@@ -29,6 +34,11 @@ public abstract class TransformAnimation extends Animation {
         this.node = node;
     }
 
+    @Override
+    public Object getWriteTarget() {
+        return node;
+    }
+
     @Override
     protected void preApply() {
 
@@ -16,42 +16,48 @@
 
 package net.shadew.flow.flat.shapes;
 
+import net.shadew.flow.flat.ColorProperty;
+import net.shadew.flow.flat.FloatProperty;
 import net.shadew.flow.flat.Node2D;
 import net.shadew.flow.view.Viewport;
 import net.shadew.flow.view.canvas2d.context.CanvasContext;
 import net.shadew.util.misc.ColorUtil;
 
 public abstract class AbstractShape extends Node2D {
-    protected int fillColor;
-    protected int strokeColor;
-    protected float strokeWidth;
+    public static final ColorProperty FILL_COLOR = ColorProperty.create(AbstractShape.class, "fillColor");
+    public static final ColorProperty STROKE_COLOR = ColorProperty.create(AbstractShape.class, "strokeColor");
+    public static final FloatProperty STROKE_WIDTH = FloatProperty.create(AbstractShape.class, "strokeWidth");
 
     public void setFillColor(int fillColor) {
-        this.fillColor = fillColor;
+        setColor(FILL_COLOR, fillColor);
     }
 
     public int getFillColor() {
-        return fillColor;
+        return getColor(FILL_COLOR);
     }
 
     public void setStrokeColor(int strokeColor) {
-        this.strokeColor = strokeColor;
+        setColor(STROKE_COLOR, strokeColor);
     }
 
     public int getStrokeColor() {
-        return strokeColor;
+        return getColor(STROKE_COLOR);
     }
 
     public void setStrokeWidth(float strokeWidth) {
-        this.strokeWidth = strokeWidth;
+        setFloat(STROKE_WIDTH, strokeWidth);
     }
 
     public float getStrokeWidth() {
-        return strokeWidth;
+        return getFloat(STROKE_WIDTH);
     }
 
     @Override
     protected void renderNode(CanvasContext ctx, Viewport vp, double time) {
+        int fillColor = getFillColor();
+        int strokeColor = getStrokeColor();
+        float strokeWidth = getStrokeWidth();
+
         boolean fill = ColorUtil.alphai(fillColor) != 0;
         boolean stroke = strokeWidth > 0 && ColorUtil.alphai(strokeColor) != 0;
 
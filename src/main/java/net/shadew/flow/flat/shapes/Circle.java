@@ -16,22 +16,23 @@
 
 package net.shadew.flow.flat.shapes;
 
+import net.shadew.flow.flat.FloatProperty;
 import net.shadew.flow.view.canvas2d.context.CanvasContext;
 
 public class Circle extends AbstractShape {
-    private float radius;
+    public static final FloatProperty RADIUS = FloatProperty.create(Circle.class, "radius");
 
     public void setRadius(float radius) {
-        this.radius = radius;
+        setFloat(RADIUS, radius);
     }
 
     public float getRadius() {
-        return radius;
+        return getFloat(RADIUS);
     }
 
     @Override
     protected boolean drawPath(CanvasContext ctx) {
-        ctx.circle(0, 0, radius);
+        ctx.circle(0, 0, getRadius());
         return true;
     }
 }
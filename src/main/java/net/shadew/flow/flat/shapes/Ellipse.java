@@ -16,36 +16,37 @@
 
 package net.shadew.flow.flat.shapes;
 
+import net.shadew.flow.flat.FloatProperty;
 import net.shadew.flow.view.canvas2d.context.CanvasContext;
 
 public class Ellipse extends AbstractShape {
-    private float radiusX;
-    private float radiusY;
+    public static final FloatProperty RADIUS_X = FloatProperty.create(Ellipse.class, "radiusX");
+    public static final FloatProperty RADIUS_Y = FloatProperty.create(Ellipse.class, "radiusY");
 
     public void setRadius(float radiusX, float radiusY) {
-        this.radiusX = radiusX;
-        this.radiusY = radiusY;
+        setFloat(RADIUS_X, radiusX);
+        setFloat(RADIUS_Y, radiusY);
     }
 
     public void setRadiusX(float radiusX) {
-        this.radiusX = radiusX;
+        setFloat(RADIUS_X, radiusX);
     }
 
     public void setRadiusY(float radiusY) {
-        this.radiusY = radiusY;
+        setFloat(RADIUS_Y, radiusY);
     }
 
     public float getRadiusX() {
-        return radiusX;
+        return getFloat(RADIUS_X);
     }
 
     public float getRadiusY() {
-        return radiusY;
+        return getFloat(RADIUS_Y);
     }
 
     @Override
     protected boolean drawPath(CanvasContext ctx) {
-        ctx.ellipse(0, 0, radiusX, radiusY);
+        ctx.ellipse(0, 0, getRadiusX(), getRadiusY());
         return true;
     }
 }
@@ -16,11 +16,12 @@
 
 package net.shadew.flow.flat.shapes;
 
+import net.shadew.flow.flat.FloatProperty;
 import net.shadew.flow.view.canvas2d.context.CanvasContext;
 
 public class Rectangle extends AbstractShape {
-    private float width;
-    private float height;
+    public static final FloatProperty WIDTH = FloatProperty.create(Rectangle.class, "width");
+    public static final FloatProperty HEIGHT = FloatProperty.create(Rectangle.class, "height");
 
     public void setSize(float width, float height) {
         setWidth(width);
@@ -28,23 +29,25 @@ public class Rectangle extends AbstractShape {
     }
 
     public void setWidth(float width) {
-        this.width = width;
+        setFloat(WIDTH, width);
     }
 
     public void setHeight(float height) {
-        this.height = height;
+        setFloat(HEIGHT, height);
     }
 
     public float getWidth() {
-        return width;
+        return getFloat(WIDTH);
     }
 
     public float getHeight() {
-        return height;
+        return getFloat(HEIGHT);
     }
 
     @Override
     protected boolean drawPath(CanvasContext ctx) {
+        float width = getWidth();
+        float height = getHeight();
         ctx.rect(-width / 2, -height / 2, width, height);
         return true;
     }
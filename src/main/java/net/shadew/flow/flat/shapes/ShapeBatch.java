@@ -0,0 +1,73 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.shadew.flow.flat.shapes;
+
+import net.shadew.flow.view.Viewport;
+import net.shadew.flow.view.canvas2d.context.CanvasContext;
+import net.shadew.flow.view.canvas2d.context.ShapeInstances;
+
+/**
+ * A node that draws many rectangles or ellipses at once. All shapes share the stroke of this node, but each has its own
+ * center, size, rotation and fill color. On contexts that support it, the whole batch is drawn with one instanced draw
+ * call, which makes this suitable for particle-like scenes with tens of thousands of shapes. The fill color of this
+ * node is the default color of added shapes.
+ */
+public class ShapeBatch extends AbstractShape {
+    private final ShapeInstances instances;
+
+    public ShapeBatch(ShapeInstances.Kind kind) {
+        this.instances = new ShapeInstances(kind);
+    }
+
+    /**
+     * Returns the shapes in this batch, which may be modified directly.
+     */
+    public ShapeInstances getInstances() {
+        return instances;
+    }
+
+    public int addShape(float x, float y, float width, float height) {
+        return instances.add(x, y, width, height, 0, getFillColor());
+    }
+
+    public int addShape(float x, float y, float width, float height, float rotation, int argb) {
+        return instances.add(x, y, width, height, rotation, argb);
+    }
+
+    public int addCircle(float x, float y, float radius, int argb) {
+        return instances.add(x, y, radius * 2, radius * 2, 0, argb);
+    }
+
+    public int size() {
+        return instances.size();
+    }
+
+    public void clear() {
+        instances.clear();
+    }
+
+    @Override
+    protected final boolean drawPath(CanvasContext ctx) {
+        return false;
+    }
+
+    @Override
+    protected void renderNode(CanvasContext ctx, Viewport vp, double time) {
+        ctx.shapes(instances, getStrokeColor(), getStrokeWidth());
+    }
+}
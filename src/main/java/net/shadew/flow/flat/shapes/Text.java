@@ -22,17 +22,25 @@ import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.nio.LongBuffer;
 
+import net.shadew.flow.flat.FloatProperty;
 import net.shadew.flow.util.Font;
 import net.shadew.flow.view.Viewport;
 import net.shadew.flow.view.canvas2d.context.CanvasContext;
 import net.shadew.util.misc.ColorUtil;
 
 public class Text extends AbstractShape {
+    public static final FloatProperty SIZE = FloatProperty.create(Text.class, "size");
+    public static final FloatProperty WRITE_PROGRESS = FloatProperty.create(Text.class, "writeProgress");
+    public static final FloatProperty WRITE_MOTION_X = FloatProperty.create(Text.class, "writeMotionX");
+    public static final FloatProperty WRITE_MOTION_Y = FloatProperty.create(Text.class, "writeMotionY");
+
     private String text;
     private Font font;
-    private float size;
-    private float writeProgress = 1;
-    private float writeMotionX = 0, writeMotionY = 0;
+    private boolean sdf;
+
+    public Text() {
+        setWriteProgress(1);
+    }
 
     public void setText(String text) {
         this.text = text;
@@ -50,41 +58,54 @@ public class Text extends AbstractShape {
         return font;
     }
 
+    /**
+     * Sets whether this text is drawn from a signed distance field atlas instead of as glyph paths. Distance field text
+     * is drawn in large batches and is much cheaper for large amounts of text, but outlines are limited in width and
+     * very large sizes show rounded corners.
+     */
+    public void setSdf(boolean sdf) {
+        this.sdf = sdf;
+    }
+
+    public boolean isSdf() {
+        return sdf;
+    }
+
     public void setSize(float size) {
-        this.size = size;
+        setFloat(SIZE, size);
     }
 
     public float getSize() {
-        return size;
+        return getFloat(SIZE);
     }
 
     public void setWriteProgress(float writeProgress) {
-        this.writeProgress = writeProgress;
+        setFloat(WRITE_PROGRESS, writeProgress);
     }
 
     public float getWriteProgress() {
-        return writeProgress;
+        return getFloat(WRITE_PROGRESS);
     }
 
     public void setWriteMotion(float writeMotionX, float writeMotionY) {
-        this.writeMotionX = writeMotionX;
-        this.writeMotionY = writeMotionY;
+        setFloat(WRITE_MOTION_X, writeMotionX);
+        setFloat(WRITE_MOTION_Y, writeMotionY);
     }
 
     public void setWriteMotionX(float writeMotionX) {
-        this.writeMotionX = writeMotionX;
+        setFloat(WRITE_MOTION_X, writeMotionX);
     }
 
     public void setWriteMotionY(float writeMotionY) {
-        this.writeMotionY = writeMotionY;
+        setFloat(WRITE_MOTION_Y, writeMotionY);
     }
 
     public float getWriteMotionX() {
-        return writeMotionX;
+        return getFloat(WRITE_MOTION_X);
     }
 
     public float getWriteMotionY() {
-        return writeMotionY;
+        return getFloat(WRITE_MOTION_Y);
     }
 
     @Override
@@ -94,8 +115,16 @@ public class Text extends AbstractShape {
 
     @Override
     protected void renderNode(CanvasContext ctx, Viewport vp, double time) {
+        float writeProgress = getWriteProgress();
         if (writeProgress <= 0) return;
 
+        float size = getSize();
+        float writeMotionX = getWriteMotionX();
+        float writeMotionY = getWriteMotionY();
+        int fillColor = getFillColor();
+        int strokeColor = getStrokeColor();
+        float strokeWidth = getStrokeWidth();
+
         boolean fill = ColorUtil.alphai(fillColor) != 0;
         boolean stroke = strokeWidth > 0 && ColorUtil.alphai(strokeColor) != 0;
 
@@ -108,7 +137,7 @@ public class Text extends AbstractShape {
                 IntBuffer asc = stack.mallocInt(1);
                 IntBuffer desc = stack.mallocInt(1);
                 IntBuffer gap = stack.mallocInt(1);
-                IntBuffer cw = stack.mallocInt(1);
+                FloatBuffer curW = stack.mallocFloat(1);
                 FloatBuffer curX = stack.mallocFloat(1);
                 FloatBuffer curY = stack.mallocFloat(1);
                 LongBuffer curI = stack.mallocLong(1);
@@ -120,15 +149,10 @@ public class Text extends AbstractShape {
                 curY.put(0, 0);
                 String[] lines = text.split("\r\n|\r|\n");
                 for (String ln : lines) {
-                    cw.put(0, 0);
-                    ln.codePoints().forEachOrdered(i -> {
-                        int gi = font.glyphIndex(i);
-                        font.getHMetrics(gi, adv, lsb);
+                    curW.put(0, 0);
+                    ln.codePoints().forEachOrdered(i -> curW.put(0, curW.get(0) + advance(font.forCodepoint(i), i, size, adv, lsb)));
 
-                        cw.put(0, cw.get(0) + adv.get(0));
-                    });
-
-                    float width = cw.get() * scale;
+                    float width = curW.get(0);
 
                     curX.put(0, -width / 2);
                     long c = ln.codePoints().count();
@@ -138,30 +162,35 @@ public class Text extends AbstractShape {
                         float prog = curI.get(0) / (float) c;
 
                         if (prog < writeProgress) {
-                            ctx.beginPath();
-
                             float alpha = Math.min(1, (writeProgress - prog) / progl);
                             float off = 1 - alpha;
                             off = off * off * off;
 
-                            ctx.glyph(i, curX.get(0) - off * writeMotionX, curY.get(0) - off * writeMotionY, size, font);
-
-                            if (fill) {
-                                ctx.fillColor(ColorUtil.withAlpha(ColorUtil.rgb(fillColor), ColorUtil.alphaf(fillColor) * alpha));
-                                ctx.fill();
-                            }
-
-                            if (stroke) {
-                                ctx.strokeColor(ColorUtil.withAlpha(ColorUtil.rgb(strokeColor), ColorUtil.alphaf(strokeColor) * alpha));
-                                ctx.strokeWidth(strokeWidth);
-                                ctx.stroke();
+                            float gx = curX.get(0) - off * writeMotionX;
+                            float gy = curY.get(0) - off * writeMotionY;
+                            int glyphFill = fill ? ColorUtil.withAlpha(ColorUtil.rgb(fillColor), ColorUtil.alphaf(fillColor) * alpha) : 0;
+                            int glyphStroke = stroke ? ColorUtil.withAlpha(ColorUtil.rgb(strokeColor), ColorUtil.alphaf(strokeColor) * alpha) : 0;
+
+                            if (sdf) {
+                                ctx.sdfGlyph(i, gx, gy, size, font, glyphFill, glyphStroke, stroke ? strokeWidth : 0);
+                            } else {
+                                ctx.beginPath();
+                                ctx.glyph(i, gx, gy, size, font);
+
+                                if (fill) {
+                                    ctx.fillColor(glyphFill);
+                                    ctx.fill();
+                                }
+
+                                if (stroke) {
+                                    ctx.strokeColor(glyphStroke);
+                                    ctx.strokeWidth(strokeWidth);
+                                    ctx.stroke();
+                                }
                             }
                         }
 
-                        int gi = font.glyphIndex(i);
-                        font.getHMetrics(gi, adv, lsb);
-
-                        curX.put(0, curX.get(0) + adv.get(0) * scale);
+                        curX.put(0, curX.get(0) + advance(font.forCodepoint(i), i, size, adv, lsb));
                         curI.put(0, curI.get(0) + 1);
                     });
 
@@ -170,4 +199,9 @@ public class Text extends AbstractShape {
             }
         }
     }
+
+    private static float advance(Font font, int codepoint, float size, IntBuffer adv, IntBuffer lsb) {
+        font.getHMetrics(font.glyphIndex(codepoint), adv, lsb);
+        return adv.get(0) * font.scaleForEMToPixels(size);
+    }
 }
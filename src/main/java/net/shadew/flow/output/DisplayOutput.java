@@ -18,21 +18,52 @@ package net.shadew.flow.output;
 
 import org.lwjgl.glfw.GLFW;
 import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL32;
 
+import java.util.function.Supplier;
+
+import net.shadew.flow.util.Sleep;
+import net.shadew.flow.util.fbo.FboTexture;
+import net.shadew.flow.util.fbo.Framebuffer;
+import net.shadew.flow.util.fbo.Renderbuffer;
 import net.shadew.flow.util.window.Monitor;
 import net.shadew.flow.util.window.Window;
 import net.shadew.flow.view.Viewport;
+import net.shadew.flow.view.canvas2d.context.NanoVGContext;
+import net.shadew.flow.view.canvas2d.context.Texture;
 import net.shadew.util.misc.MathUtil;
 
 public class DisplayOutput implements Output {
+    // Resolution scales the draft mode steps through, from full quality down to the lowest draft quality
+    private static final float[] DRAFT_SCALES = {1, 0.85f, 0.7f, 0.55f, 0.4f, 0.25f};
+
+    // Amount of frames to wait after changing the draft scale before changing it again, to avoid oscillation
+    private static final int DRAFT_SETTLE_FRAMES = 20;
+
     private final int width, height;
     private final boolean fullscreen;
     private Window window;
     private Timer timer;
     private WindowViewport viewport;
+    private int fps;
     private long expectedFrameTime;
     private long frameStart;
-    private long frameEnd;
+
+    private boolean realTime;
+    private boolean vsync;
+
+    private boolean draft;
+    private int draftLevel;
+    private int draftSettle;
+    private double averageFrameTime;
+    private boolean renderingDraft;
+
+    private Framebuffer draftFbo;
+    private FboTexture draftColorTex;
+    private Renderbuffer draftDepthStencilRbo;
+    private Supplier<? extends NanoVGContext> presentContextFactory;
+    private NanoVGContext presentContext;
+    private Texture draftTexture;
 
     private DisplayOutput(int width, int height, boolean fullscreen) {
         this.width = width;
@@ -75,6 +106,9 @@ public class DisplayOutput implements Output {
                     window.center(Monitor.getPrimary());
                 }
             }
+            if (key == GLFW.GLFW_KEY_D && action == GLFW.GLFW_PRESS && presentContextFactory != null) {
+                draft(!draft);
+            }
         });
 
         window.setScrollCallback((window1, xoffset, yoffset) -> {
@@ -88,8 +122,12 @@ public class DisplayOutput implements Output {
 
         this.window = window;
         this.viewport = new WindowViewport(window, viewWidth, viewHeight);
+        this.fps = fps;
         this.expectedFrameTime = 1000000000L / fps;
         this.timer = timer;
+
+        timer.setRealTime(realTime ? fps : 0);
+        Window.swapInterval(vsync ? 1 : 0);
     }
 
     private boolean isControlDown() {
@@ -104,30 +142,197 @@ public class DisplayOutput implements Output {
             timer.setFrame((long) f, isControlDown() ? 0 : (float) (f % 1));
         }
         frameStart = System.nanoTime();
-        GL11.glViewport(0, 0, window.getViewportWidth(), window.getViewportHeight());
+
+        // Full quality is restored while paused, there is no need to keep up with real time then
+        renderingDraft = draft && draftLevel > 0 && !timer.isPaused();
+        viewport.scale = renderingDraft ? DRAFT_SCALES[draftLevel] : 1;
+
+        if (renderingDraft) {
+            updateDraftBuffer();
+            draftFbo.bind();
+        }
+        GL11.glViewport(0, 0, viewport.bufferWidth(), viewport.bufferHeight());
     }
 
     @Override
     public void endFrame(long frameNumber) {
+        if (renderingDraft) {
+            draftFbo.unbind();
+            presentDraft();
+        }
+
+        // With vsync, swapping blocks until the display refreshes, so it must not count towards the render time
+        long renderEnd = System.nanoTime();
+
         window.swapBuffers();
         Window.pollEvents();
 
-        long frameEnd = System.nanoTime();
+        long frameEnd = vsync ? renderEnd : System.nanoTime();
         long frameTime = frameEnd - frameStart;
-        try {
-            long remaining = expectedFrameTime - frameTime;
-            if (remaining > 0) {
-                long millis = remaining / 1000000L;
-                int nanos = (int) (remaining % 1000000L);
-                Thread.sleep(millis, nanos);
+        if (draft && !timer.isPaused()) {
+            updateDraftLevel(frameTime);
+        }
+
+        if (vsync) {
+            // Swapping buffers already waited for the display
+            return;
+        }
+        if (timer.isRealTime() && !timer.isPaused()) {
+            Sleep.until(timer.getNextFrameDeadline());
+        } else {
+            Sleep.until(frameStart + expectedFrameTime);
+        }
+    }
+
+    private void updateDraftBuffer() {
+        if (draftFbo == null) {
+            draftFbo = new Framebuffer();
+            draftColorTex = FboTexture.defaultColor();
+            draftDepthStencilRbo = new Renderbuffer(GL32.GL_FRAMEBUFFER, GL32.GL_DEPTH24_STENCIL8);
+            draftFbo.addAttachment(GL32.GL_COLOR_ATTACHMENT0, draftColorTex);
+            draftFbo.addAttachment(GL32.GL_DEPTH_STENCIL_ATTACHMENT, draftDepthStencilRbo);
+            presentContext = presentContextFactory.get();
+        }
+
+        int w = viewport.bufferWidth();
+        int h = viewport.bufferHeight();
+        if (w != draftFbo.getViewportWidth() || h != draftFbo.getViewportHeight()) {
+            draftFbo.setSize(w, h);
+
+            // The texture storage is reallocated on resize, so NanoVG must know about the new size
+            if (draftTexture != null) {
+                draftTexture.dispose();
             }
-        } catch (InterruptedException ignored) {
+            draftTexture = presentContext.wrapTexture(draftColorTex.getTexID(), w, h, Texture.FLIP_VERTICAL | Texture.NO_DELETE);
+        }
+    }
+
+    private void presentDraft() {
+        // We can't blit into the window framebuffer as it's multisampled, so we draw the draft image as a
+        // texture instead, which also lets the GPU upscale it with linear filtering
+        int ww = window.getWidth();
+        int wh = window.getHeight();
+        GL11.glViewport(0, 0, window.getViewportWidth(), window.getViewportHeight());
+
+        presentContext.beginFrame(ww, wh, (float) window.getViewportWidth() / ww);
+        presentContext.beginPath();
+        presentContext.rect(0, 0, ww, wh);
+        presentContext.fillTexture(draftTexture, 0, 0, ww, wh, 0, 1);
+        presentContext.fill();
+        presentContext.endFrame();
+    }
+
+    private void updateDraftLevel(long frameTime) {
+        averageFrameTime = averageFrameTime == 0 ? frameTime : averageFrameTime * 0.9 + frameTime * 0.1;
+
+        if (draftSettle > 0) {
+            draftSettle--;
+            return;
+        }
+
+        if (averageFrameTime > expectedFrameTime * 0.95 && draftLevel < DRAFT_SCALES.length - 1) {
+            draftLevel++;
+            draftSettle = DRAFT_SETTLE_FRAMES;
+            averageFrameTime = 0;
+        } else if (averageFrameTime < expectedFrameTime * 0.6 && draftLevel > 0) {
+            draftLevel--;
+            draftSettle = DRAFT_SETTLE_FRAMES;
+            averageFrameTime = 0;
+        }
+    }
+
+    /**
+     * Enables or disables real time playback. In real time mode, the animation advances by the time that passed on the
+     * wall clock, so it plays at the same speed as the exported video even when rendering can't keep up: frames are
+     * skipped instead of slowing down the animation.
+     *
+     * @param realTime True to enable real time playback
+     * @return This instance for chaining
+     */
+    public DisplayOutput realTime(boolean realTime) {
+        this.realTime = realTime;
+        if (timer != null) {
+            timer.setRealTime(realTime ? fps : 0);
+        }
+        return this;
+    }
+
+    public boolean isRealTime() {
+        return realTime;
+    }
+
+    /**
+     * Enables or disables vertical synchronization. With vsync enabled, frames are paced by the display's refresh
+     * rate rather than by sleeping. This is best combined with {@link #realTime real time playback}, so that the
+     * animation speed does not depend on the refresh rate.
+     *
+     * @param vsync True to enable vsync
+     * @return This instance for chaining
+     */
+    public DisplayOutput vsync(boolean vsync) {
+        this.vsync = vsync;
+        if (window != null) {
+            Window.swapInterval(vsync ? 1 : 0);
+        }
+        return this;
+    }
+
+    public boolean isVsync() {
+        return vsync;
+    }
+
+    /**
+     * Sets the factory of the context that presents draft frames in the window. This should create a context of the
+     * same backend that the view stack renders with.
+     *
+     * @param factory The factory of the present context
+     * @return This instance for chaining
+     */
+    public DisplayOutput presentContext(Supplier<? extends NanoVGContext> factory) {
+        this.presentContextFactory = factory;
+        return this;
+    }
+
+    /**
+     * Enables or disables draft mode. In draft mode, the display measures the time it takes to render a frame and
+     * lowers the render resolution (and disables multisampling) when rendering can't keep up with the frame rate.
+     * Full quality is restored when the animation is paused. Draft mode can be toggled in the window by pressing D.
+     * Draft mode requires a {@linkplain #presentContext present context}.
+     *
+     * @param draft True to enable draft mode
+     * @return This instance for chaining
+     * @throws IllegalStateException When enabling draft mode without a present context factory
+     */
+    public DisplayOutput draft(boolean draft) {
+        if (draft && presentContextFactory == null) {
+            throw new IllegalStateException("Draft mode requires a present context factory");
         }
+        this.draft = draft;
+        draftLevel = 0;
+        draftSettle = 0;
+        averageFrameTime = 0;
+        return this;
+    }
+
+    public boolean isDraft() {
+        return draft;
+    }
+
+    /**
+     * Returns the resolution scale the display is currently rendering at, which is less than 1 only when draft mode
+     * had to lower the resolution.
+     */
+    public float getRenderScale() {
+        return viewport == null ? 1 : viewport.scale;
     }
 
     @Override
     public void cleanup() {
-
+        if (draftFbo != null) {
+            draftTexture.dispose();
+            presentContext.dispose();
+            draftFbo.dispose();
+        }
     }
 
     @Override
@@ -152,6 +357,7 @@ public class DisplayOutput implements Output {
         private final Window window;
         private final float viewWidth;
         private final float viewHeight;
+        private float scale = 1;
 
         private WindowViewport(Window window, float viewWidth, float viewHeight) {
             this.window = window;
@@ -161,17 +367,17 @@ public class DisplayOutput implements Output {
 
         @Override
         public int bufferWidth() {
-            return window.getViewportWidth();
+            return Math.max(1, (int) (window.getViewportWidth() * scale));
         }
 
         @Override
         public int bufferHeight() {
-            return window.getViewportHeight();
+            return Math.max(1, (int) (window.getViewportHeight() * scale));
         }
 
         @Override
         public float pixelRatio() {
-            return (float) window.getViewportWidth() / window.getWidth();
+            return (float) bufferWidth() / window.getWidth();
         }
 
         @Override
@@ -25,7 +25,6 @@ import org.jcodec.common.model.Rational;
 import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
-import java.nio.ByteBuffer;
 
 import net.shadew.flow.util.NativeImage;
 
@@ -55,22 +54,9 @@ public class MP4Sink implements Sink {
     public void flushBuffer(long frameNumber, NativeImage buffer) {
         int w = buffer.getWidth();
         int h = buffer.getHeight();
-        ByteBuffer buf = buffer.getBuffer();
 
         byte[] rgbs = new byte[w * h * 3];
-        for (int i = 0; i < h; i++) {
-            int bi = i * w;
-            int ri = (h - i - 1) * w;
-
-            for (int j = 0; j < w; j++) {
-                int c = buf.getInt((j + bi) * 4);
-
-                int d = (j + ri) * 3;
-                rgbs[d] = (byte) ((c >>> 0) - 128);
-                rgbs[d + 1] = (byte) ((c >>> 8) - 128);
-                rgbs[d + 2] = (byte) ((c >>> 16) - 128);
-            }
-        }
+        toRgb(buffer, rgbs);
 
         Picture pic = Picture.createPicture(w, h, new byte[][] {rgbs}, ColorSpace.RGB);
 
@@ -81,6 +67,11 @@ public class MP4Sink implements Sink {
         }
     }
 
+    // Converts bottom-up RGBA pixels to top-down RGB bytes, shifted by -128 as JCodec expects
+    static void toRgb(NativeImage buffer, byte[] rgbs) {
+        buffer.toRgb(rgbs, true, -128);
+    }
+
     @Override
     public void cleanup() {
         try {
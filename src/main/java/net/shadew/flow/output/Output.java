@@ -16,6 +16,7 @@
 
 package net.shadew.flow.output;
 
+import net.shadew.flow.profile.Profiler;
 import net.shadew.flow.util.window.Window;
 import net.shadew.flow.view.Viewport;
 
@@ -30,4 +31,11 @@ public interface Output {
     Viewport getViewport();
 
     boolean isFiniteTime();
+
+    /**
+     * Hands the profiler of the output context to this output, so it can time the phases of its own frame work. Called
+     * before {@link #init}.
+     */
+    default void setProfiler(Profiler profiler) {
+    }
 }
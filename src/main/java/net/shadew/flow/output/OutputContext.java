@@ -20,6 +20,8 @@ import org.lwjgl.opengl.GL;
 import org.lwjgl.opengl.GL11;
 
 import net.shadew.flow.animation.Timeline;
+import net.shadew.flow.profile.Phase;
+import net.shadew.flow.profile.Profiler;
 import net.shadew.flow.util.window.Window;
 import net.shadew.flow.view.ViewStack;
 
@@ -30,9 +32,16 @@ public class OutputContext {
     private final ViewStack viewStack;
     private final Timeline timeline;
     private final Timer timer = new Timer();
+    private final Profiler profiler = new Profiler();
+    private final Phase animatePhase = profiler.phase(Profiler.ANIMATE);
+    private final Phase cleanupPhase = profiler.phase(Profiler.CLEANUP);
     private final int fps;
     private Window window;
-    private long frame;
+
+    private SnapshotStore snapshotStore;
+    private long snapshotInterval;
+    private Phase snapshotPhase;
+    private long lastSnapshot = -1;
 
     public OutputContext(float viewWidth, float viewHeight, Output output, ViewStack viewStack, Timeline timeline, int fps) {
         this.viewWidth = viewWidth;
@@ -51,7 +60,9 @@ public class OutputContext {
 
         GL.createCapabilities();
 
+        output.setProfiler(profiler);
         output.init(window, viewWidth, viewHeight, fps, timer);
+        viewStack.setProfiler(profiler);
         viewStack.init();
     }
 
@@ -65,22 +76,97 @@ public class OutputContext {
         Window.terminateGLFW();
     }
 
+    public Profiler getProfiler() {
+        return profiler;
+    }
+
+    /**
+     * Saves a snapshot of the scene state into the given store every given amount of frames while rendering, so that
+     * the render can be resumed from there using {@link #resume}. The snapshot is taken before the timeline is applied
+     * to the frame, so it holds the state that persists between frames, onto which the timeline is applied. Together
+     * with the timeline, it determines the animated state of any later frame.
+     *
+     * Since every frame seeks the timeline and resets it afterwards, this state only changes when layers change it
+     * outside the timeline. Snapshots equal to the previous one are not written again, only the progress of the render
+     * is recorded, see {@link SnapshotStore#save}.
+     */
+    public OutputContext autoSnapshot(SnapshotStore store, long interval) {
+        this.snapshotStore = store;
+        this.snapshotInterval = interval;
+        this.snapshotPhase = profiler.phase(Profiler.SNAPSHOT);
+        return this;
+    }
+
+    /**
+     * Restores the scene state from the last snapshot at or before the given frame, so that rendering can start at the
+     * given frame. The timeline is not replayed: every frame is animated by seeking the timeline and resetting it
+     * afterwards, so the timeline leaves the state between frames unchanged. The snapshot restores the changes made
+     * outside the timeline, and the timeline is applied onto it when the frame is rendered.
+     *
+     * @return The frame of the restored snapshot, or -1 when there is no snapshot at or before the given frame
+     */
+    public long restoreSnapshot(SnapshotStore store, long frame) {
+        long snapshot = store.nearest(frame);
+        if (snapshot < 0) {
+            return -1;
+        }
+
+        viewStack.restore(store.load(snapshot));
+        return snapshot;
+    }
+
+    /**
+     * Restores the scene state from the latest snapshot in the given store, to continue a render that stopped.
+     *
+     * @return The frame to continue rendering from, which is the {@linkplain SnapshotStore#progress() progress} of the
+     *     store, or 0 if there are no snapshots
+     */
+    public long resume(SnapshotStore store) {
+        long snapshot = store.latest();
+        if (snapshot < 0) {
+            return 0;
+        }
+        viewStack.restore(store.load(snapshot));
+        return store.progress();
+    }
+
     public void render() {
-        output.startFrame(timer.getFrame());
+        long frame = timer.getFrame();
+        profiler.beginFrame(frame);
+        output.startFrame(frame);
+
+        if (snapshotStore != null && frame % snapshotInterval == 0 && frame != lastSnapshot) {
+            lastSnapshot = frame;
+            snapshotPhase.start();
+            snapshotStore.save(frame, viewStack.snapshot());
+            snapshotPhase.stop();
+        }
 
         double time = timer.getTime(fps);
-        timeline.runAnimations(time);
+        animatePhase.start();
+        timeline.seek(time);
+        animatePhase.stop();
+
         GL11.glClear(GL11.GL_COLOR_BUFFER_BIT | GL11.GL_DEPTH_BUFFER_BIT | GL11.GL_STENCIL_BUFFER_BIT);
         viewStack.render(output.getViewport(), time);
-        timeline.cleanupAnimations(time);
 
-        output.endFrame(timer.getFrame());
+        cleanupPhase.start();
+        timeline.reset();
+        cleanupPhase.stop();
+
+        output.endFrame(frame);
+        profiler.endFrame(frame);
     }
 
     private void driveTimer() {
-        while ((timer.shouldContinue() || !output.isFiniteTime()) && !window.shouldClose()) {
-            render();
-            timer.nextFrame();
+        profiler.beginRender(timer.getStartFrame(), timer.getEndFrame());
+        try {
+            while ((timer.shouldContinue() || !output.isFiniteTime()) && !window.shouldClose()) {
+                render();
+                timer.nextFrame();
+            }
+        } finally {
+            profiler.endRender();
         }
     }
 
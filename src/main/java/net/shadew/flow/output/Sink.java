@@ -20,6 +20,10 @@ import net.shadew.flow.util.NativeImage;
 
 public interface Sink {
     void init(int fps);
+    /**
+     * Writes a frame. The buffer is only valid during this call, unless the sink {@linkplain NativeImage#retain()
+     * retains} it, in which case the sink must release it when done.
+     */
     void flushBuffer(long frameNumber, NativeImage buffer);
     void cleanup();
 
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shadew.flow.output;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Stores scene snapshots in a directory, one file per snapshotted frame. Files are written atomically where the file
+ * system allows, so a crash while writing a snapshot never leaves a corrupt snapshot behind.
+ *
+ * A snapshot that is equal to the latest snapshot is not written again, the latest snapshot holds for all frames until
+ * the next snapshot. The last frame that was saved is recorded separately as the {@linkplain #progress() progress}.
+ * Only the most recent snapshots are kept.
+ */
+public class SnapshotStore {
+    private static final Pattern FILE_PATTERN = Pattern.compile("snapshot_(\\d+)\\.bin");
+    private static final String PROGRESS_FILE = "progress.txt";
+
+    private final File directory;
+    private int keep = 3;
+
+    // The contents of the latest snapshot, to compare new snapshots against
+    private byte[] latestSnapshot;
+
+    public SnapshotStore(File directory) {
+        this.directory = directory;
+    }
+
+    public static SnapshotStore in(String directory) {
+        return new SnapshotStore(new File(directory));
+    }
+
+    /**
+     * Sets the amount of snapshots to keep, older snapshots are deleted when a new one is saved. Zero or less keeps all
+     * snapshots. Defaults to 3. Since equal snapshots are only saved once, this is the amount of distinct states kept.
+     */
+    public SnapshotStore keep(int keep) {
+        this.keep = keep;
+        return this;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    private File file(long frame) {
+        return new File(directory, String.format("snapshot_%010d.bin", frame));
+    }
+
+    /**
+     * Saves a snapshot for the given frame, unless it is equal to the latest snapshot. The frame is recorded as the
+     * progress either way.
+     *
+     * @return True if the snapshot was written, false if it was equal to the latest snapshot
+     */
+    public boolean save(long frame, byte[] snapshot) {
+        if (latestSnapshot == null) {
+            long latest = latest();
+            if (latest >= 0) {
+                latestSnapshot = load(latest);
+            }
+        }
+
+        boolean changed = !Arrays.equals(snapshot, latestSnapshot);
+        if (changed) {
+            write(file(frame).toPath(), snapshot);
+            latestSnapshot = snapshot.clone();
+        }
+        write(new File(directory, PROGRESS_FILE).toPath(), Long.toString(frame).getBytes(StandardCharsets.UTF_8));
+
+        if (changed && keep > 0) {
+            long[] frames = frames();
+            for (int i = 0; i < frames.length - keep; i++) {
+                file(frames[i]).delete();
+            }
+        }
+        return changed;
+    }
+
+    private void write(Path target, byte[] data) {
+        try {
+            Files.createDirectories(directory.toPath());
+            Path temp = Files.createTempFile(directory.toPath(), "snapshot_", ".tmp");
+            Files.write(temp, data);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException exc) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        }
+    }
+
+    /**
+     * Returns the last frame that was saved, including frames whose snapshot was equal to the latest snapshot, or -1 if
+     * no frame was saved.
+     */
+    public long progress() {
+        File file = new File(directory, PROGRESS_FILE);
+        if (!file.exists()) {
+            return latest();
+        }
+        try {
+            String text = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).trim();
+            return Math.max(Long.parseLong(text), latest());
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        }
+    }
+
+    public byte[] load(long frame) {
+        try {
+            return Files.readAllBytes(file(frame).toPath());
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        }
+    }
+
+    /**
+     * Returns the frames that have a snapshot, in ascending order.
+     */
+    public long[] frames() {
+        String[] names = directory.list();
+        if (names == null) {
+            return new long[0];
+        }
+
+        long[] frames = new long[names.length];
+        int count = 0;
+        for (String name : names) {
+            Matcher matcher = FILE_PATTERN.matcher(name);
+            if (matcher.matches()) {
+                frames[count++] = Long.parseLong(matcher.group(1));
+            }
+        }
+        frames = Arrays.copyOf(frames, count);
+        Arrays.sort(frames);
+        return frames;
+    }
+
+    /**
+     * Returns the last snapshotted frame at or before the given frame, or -1 if there is none.
+     */
+    public long nearest(long frame) {
+        long nearest = -1;
+        for (long f : frames()) {
+            if (f <= frame) nearest = f;
+        }
+        return nearest;
+    }
+
+    /**
+     * Returns the last snapshotted frame, or -1 if there is none.
+     */
+    public long latest() {
+        return nearest(Long.MAX_VALUE);
+    }
+}
@@ -23,14 +23,52 @@ public class Timer {
     private boolean paused;
     private float frameOffset;
 
+    // Real time playback: the frame is derived from the time elapsed since the anchor was set
+    private int realTimeFps;
+    private long anchorFrame;
+    private long anchorNanos;
+
     public void setRange(long startFrame, long endFrame) {
         this.startFrame = startFrame;
         this.endFrame = endFrame;
+        anchor();
     }
 
     public void setInfinitelyFrom(long startFrame) {
         this.startFrame = startFrame;
         this.endFrame = startFrame - 1;
+        anchor();
+    }
+
+    /**
+     * Switches the timer to real time playback. In real time mode, {@link #nextFrame} advances the timer by the amount
+     * of frames that passed on the wall clock since playback started, dropping frames when rendering falls behind and
+     * repeating frames when rendering is faster than the frame rate.
+     *
+     * @param fps The frame rate to play at, or 0 to advance exactly one frame at a time
+     */
+    public void setRealTime(int fps) {
+        realTimeFps = Math.max(fps, 0);
+        anchor();
+    }
+
+    public boolean isRealTime() {
+        return realTimeFps > 0;
+    }
+
+    /**
+     * Returns the {@link System#nanoTime} at which the frame after the current frame is due in real time playback.
+     */
+    public long getNextFrameDeadline() {
+        if (realTimeFps <= 0) {
+            throw new IllegalStateException("Not in real time mode");
+        }
+        return anchorNanos + (frame + 1 - anchorFrame) * 1000000000L / realTimeFps;
+    }
+
+    private void anchor() {
+        anchorFrame = frame;
+        anchorNanos = System.nanoTime();
     }
 
     public long getFrame() {
@@ -53,9 +91,15 @@ public class Timer {
         if (frame < startFrame) {
             frame = startFrame;
             frameOffset = 0;
+            anchor();
         }
         if (!paused) {
-            frame++;
+            if (realTimeFps > 0) {
+                long elapsed = System.nanoTime() - anchorNanos;
+                frame = Math.max(frame, anchorFrame + elapsed * realTimeFps / 1000000000L);
+            } else {
+                frame++;
+            }
             frameOffset = 0;
         }
     }
@@ -74,10 +118,12 @@ public class Timer {
 
     public void unpause() {
         paused = false;
+        anchor();
     }
 
     public void replay() {
         frame = startFrame;
+        anchor();
     }
 
     public boolean shouldContinue() {
@@ -95,5 +141,6 @@ public class Timer {
             this.frame = frame;
             this.frameOffset = off;
         }
+        anchor();
     }
 }
@@ -19,6 +19,10 @@ package net.shadew.flow.output;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL32;
 
+import net.shadew.flow.profile.ConsoleProgress;
+import net.shadew.flow.profile.Phase;
+import net.shadew.flow.profile.Profiler;
+import net.shadew.flow.util.ImagePool;
 import net.shadew.flow.util.NativeImage;
 import net.shadew.flow.util.fbo.Framebuffer;
 import net.shadew.flow.util.fbo.MsaaRenderbuffer;
@@ -42,7 +46,14 @@ public class WriteOutput implements Output {
     private Framebuffer outputFbo;
     private Renderbuffer outputRbo;
 
-    private NativeImage outImage;
+    private ImagePool imagePool;
+    private boolean ownsPool;
+
+    private Profiler profiler = new Profiler();
+    private Phase blitPhase;
+    private Phase readPhase;
+    private Phase sinkPhase;
+    private boolean printProgress = true;
 
     private WriteOutput(int width, int height, Sink out, int samples) {
         this.width = width;
@@ -51,8 +62,38 @@ public class WriteOutput implements Output {
         this.samples = samples;
     }
 
+    @Override
+    public void setProfiler(Profiler profiler) {
+        this.profiler = profiler;
+    }
+
+    /**
+     * Sets the pool that frame images are acquired from. Sinks may {@linkplain NativeImage#retain() retain} frames to
+     * process them later, the capacity of the pool then limits how far rendering runs ahead of the sink. By default, an
+     * unbounded pool is used, which recycles one image when the sink does not retain frames.
+     */
+    public WriteOutput imagePool(ImagePool imagePool) {
+        this.imagePool = imagePool;
+        return this;
+    }
+
+    /**
+     * Sets whether render progress should be printed to the console, which is the default.
+     */
+    public WriteOutput printProgress(boolean printProgress) {
+        this.printProgress = printProgress;
+        return this;
+    }
+
     @Override
     public void init(Window window, float viewWidth, float viewHeight, int fps, Timer timer) {
+        blitPhase = profiler.phase(Profiler.MSAA_BLIT);
+        readPhase = profiler.phase(Profiler.READ_PIXELS);
+        sinkPhase = profiler.phase(Profiler.SINK);
+        if (printProgress) {
+            profiler.addListener(new ConsoleProgress());
+        }
+
         renderFbo = new Framebuffer();
         renderFbo.setSize(width, height);
         renderColorRbo = new MsaaRenderbuffer(GL32.GL_FRAMEBUFFER, GL32.GL_RGBA, samples);
@@ -65,7 +106,10 @@ public class WriteOutput implements Output {
         outputRbo = new Renderbuffer(GL32.GL_FRAMEBUFFER, GL32.GL_RGBA);
         outputFbo.addAttachment(GL32.GL_COLOR_ATTACHMENT0, outputRbo);
 
-        outImage = NativeImage.allocate(width, height);
+        if (imagePool == null) {
+            imagePool = new ImagePool();
+            ownsPool = true;
+        }
 
         viewport = new SimpleViewport(width, height, 1, viewWidth, viewHeight);
 
@@ -74,7 +118,6 @@ public class WriteOutput implements Output {
 
     @Override
     public void startFrame(long frameNumber) {
-        System.out.println("Writing frame " + frameNumber);
         GL11.glViewport(0, 0, width, height);
 
         Framebuffer.useDrawBuffers(GL32.GL_COLOR_ATTACHMENT0, GL32.GL_DEPTH_ATTACHMENT, GL32.GL_STENCIL_ATTACHMENT);
@@ -86,6 +129,7 @@ public class WriteOutput implements Output {
         renderFbo.unbind();
 
         // Blit MSAA buffer to output buffer, we can't read from MSAA buffers
+        blitPhase.start();
         renderFbo.bindRead();
         outputFbo.bindDraw();
 
@@ -97,8 +141,18 @@ public class WriteOutput implements Output {
 
         renderFbo.unbindRead();
         outputFbo.unbindDraw();
+        blitPhase.stop();
+
+        NativeImage outImage;
+        try {
+            outImage = imagePool.acquire(width, height);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a frame image", e);
+        }
 
         // Read output buffer into image instance
+        readPhase.start();
         outputFbo.bind();
 
         glReadBuffer(GL32.GL_COLOR_ATTACHMENT0);
@@ -107,8 +161,12 @@ public class WriteOutput implements Output {
             GL_RGBA, GL_UNSIGNED_BYTE,
             outImage.getInitializedBuffer()
         );
+        readPhase.stop();
 
+        sinkPhase.start();
         out.flushBuffer(frameNumber, outImage);
+        outImage.release();
+        sinkPhase.stop();
 
         outputFbo.unbind();
     }
@@ -124,7 +182,9 @@ public class WriteOutput implements Output {
         outputRbo.dispose();
         outputFbo.dispose();
 
-        outImage.dispose();
+        if (ownsPool) {
+            imagePool.dispose();
+        }
     }
 
     @Override
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.shadew.flow.profile;
+
+import java.io.PrintStream;
+
+/**
+ * Prints render progress (frame, percentage, speed and estimated time remaining) to a print stream, at most once per
+ * given interval so that printing doesn't cost throughput. Prints a summary of all phases when the render finishes.
+ */
+public class ConsoleProgress implements ProfilerListener {
+    private final PrintStream out;
+    private final long intervalNanos;
+    private long lastPrint;
+
+    public ConsoleProgress(PrintStream out, double intervalSeconds) {
+        this.out = out;
+        this.intervalNanos = (long) (intervalSeconds * 1e9);
+    }
+
+    public ConsoleProgress() {
+        this(System.out, 1);
+    }
+
+    @Override
+    public void frameFinished(Profiler profiler) {
+        long now = System.nanoTime();
+        if (profiler.getFramesDone() != 1 && now - lastPrint < intervalNanos) {
+            return;
+        }
+        lastPrint = now;
+
+        long total = profiler.getTotalFrames();
+        if (total > 0) {
+            out.printf(
+                "Frame %d (%d/%d, %.1f%%), %.1f fps, ETA %s%n",
+                profiler.getCurrentFrame(), profiler.getFramesDone(), total, profiler.getProgress() * 100,
+                profiler.getFps(), formatTime(profiler.getEtaSeconds())
+            );
+        } else {
+            out.printf("Frame %d, %.1f fps%n", profiler.getCurrentFrame(), profiler.getFps());
+        }
+    }
+
+    @Override
+    public void renderFinished(Profiler profiler) {
+        out.printf(
+            "Rendered %d frames in %s (%.1f fps)%n",
+            profiler.getFramesDone(), formatTime(profiler.getElapsedSeconds()),
+            profiler.getFramesDone() / Math.max(profiler.getElapsedSeconds(), 1e-9)
+        );
+        for (Phase phase : profiler.getPhases()) {
+            if (phase.getCount() > 0) {
+                out.println("  " + phase);
+            }
+        }
+    }
+
+    private static String formatTime(double seconds) {
+        if (seconds < 0) {
+            return "?";
+        }
+        long s = (long) Math.ceil(seconds);
+        return String.format("%d:%02d:%02d", s / 3600, s / 60 % 60, s % 60);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.shadew.flow.profile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Writes the metrics of a {@link Profiler} to JSON and/or CSV files when a render finishes.
+ */
+public class MetricsExport implements ProfilerListener {
+    private final File json;
+    private final File csv;
+
+    /**
+     * @param json The JSON file to write, or null to not write JSON
+     * @param csv  The CSV file to write, or null to not write CSV
+     */
+    public MetricsExport(File json, File csv) {
+        this.json = json;
+        this.csv = csv;
+    }
+
+    public static MetricsExport json(String file) {
+        return new MetricsExport(new File(file), null);
+    }
+
+    public static MetricsExport csv(String file) {
+        return new MetricsExport(null, new File(file));
+    }
+
+    @Override
+    public void renderFinished(Profiler profiler) {
+        try {
+            if (json != null) {
+                mkParent(json);
+                try (Writer out = Files.newBufferedWriter(json.toPath(), StandardCharsets.UTF_8)) {
+                    profiler.writeJson(out);
+                }
+            }
+            if (csv != null) {
+                mkParent(csv);
+                try (Writer out = Files.newBufferedWriter(csv.toPath(), StandardCharsets.UTF_8)) {
+                    profiler.writeCsv(out);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void mkParent(File file) {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+    }
+}
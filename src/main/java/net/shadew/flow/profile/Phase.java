@@ -0,0 +1,153 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.shadew.flow.profile;
+
+/**
+ * A timed phase of a frame, such as running animations or reading back pixels. A phase records how long each of its
+ * runs took: besides count, total, minimum and maximum it keeps a histogram with power-of-two nanosecond buckets, so
+ * that recording a sample is a handful of arithmetic operations and never allocates.
+ */
+public final class Phase {
+    private static final int BUCKETS = 64;
+
+    private final String name;
+    private final long[] histogram = new long[BUCKETS];
+    private long count;
+    private long total;
+    private long min = Long.MAX_VALUE;
+    private long max;
+    private long last;
+    private long startNanos = -1;
+
+    Phase(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Marks the start of a run of this phase.
+     */
+    public void start() {
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Marks the end of a run of this phase, and records the time passed since the last call to {@link #start}. Does
+     * nothing if the phase was not started.
+     */
+    public void stop() {
+        if (startNanos >= 0) {
+            record(System.nanoTime() - startNanos);
+            startNanos = -1;
+        }
+    }
+
+    /**
+     * Records a run of this phase that took the given amount of nanoseconds.
+     */
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        count++;
+        total += nanos;
+        last = nanos;
+        if (nanos < min) min = nanos;
+        if (nanos > max) max = nanos;
+        histogram[bucket(nanos)]++;
+    }
+
+    private static int bucket(long nanos) {
+        return nanos == 0 ? 0 : 63 - Long.numberOfLeadingZeros(nanos);
+    }
+
+    public void reset() {
+        count = 0;
+        total = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+        last = 0;
+        startNanos = -1;
+        for (int i = 0; i < BUCKETS; i++) {
+            histogram[i] = 0;
+        }
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getTotalNanos() {
+        return total;
+    }
+
+    public long getMinNanos() {
+        return count == 0 ? 0 : min;
+    }
+
+    public long getMaxNanos() {
+        return max;
+    }
+
+    public long getLastNanos() {
+        return last;
+    }
+
+    public double getMeanNanos() {
+        return count == 0 ? 0 : (double) total / count;
+    }
+
+    /**
+     * Estimates a percentile of the recorded run times from the histogram. The estimate is the upper bound of the
+     * bucket the percentile falls in, clamped to the recorded maximum, so it is accurate within a factor two.
+     *
+     * @param p The percentile, as a number between 0 and 1
+     * @return The estimated run time in nanoseconds
+     */
+    public long getPercentileNanos(double p) {
+        if (count == 0) return 0;
+
+        long rank = (long) Math.ceil(p * count);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += histogram[i];
+            if (seen >= rank && histogram[i] > 0) {
+                long upper = i >= 62 ? Long.MAX_VALUE : (2L << i) - 1;
+                return Math.max(getMinNanos(), Math.min(upper, max));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Returns the amount of runs in the histogram bucket with the given index. Bucket {@code i} holds the runs that took
+     * at least 2<sup>i</sup> nanoseconds and less than 2<sup>i+1</sup> nanoseconds (bucket 0 also holds runs of zero
+     * nanoseconds).
+     */
+    public long getHistogramBucket(int i) {
+        return histogram[i];
+    }
+
+    public static int histogramBuckets() {
+        return BUCKETS;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d runs, mean %.3f ms, max %.3f ms", name, count, getMeanNanos() / 1e6, max / 1e6);
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.shadew.flow.profile;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects per-frame timing metrics of a render. Code that renders a frame obtains named {@link Phase}s once and
+ * starts and stops them around the work it does, the profiler keeps track of frame progress and notifies its
+ * {@link ProfilerListener}s. Metrics can be exported as JSON or CSV.
+ *
+ * Phases measure CPU time on the render thread. OpenGL calls usually return before the GPU finished the work, so GPU
+ * time tends to show up in the first phase that waits for the GPU, which is reading back pixels when exporting.
+ */
+public class Profiler {
+    public static final String FRAME = "frame";
+    public static final String ANIMATE = "animate";
+    public static final String CLEANUP = "cleanup";
+    public static final String RENDER = "render";
+    public static final String MSAA_BLIT = "msaa_blit";
+    public static final String READ_PIXELS = "read_pixels";
+    public static final String SINK = "sink";
+    public static final String SNAPSHOT = "snapshot";
+
+    private final Map<String, Phase> phases = new LinkedHashMap<>();
+    private final Collection<Phase> phasesImmutable = Collections.unmodifiableCollection(phases.values());
+    private final List<ProfilerListener> listeners = new ArrayList<>();
+    private final Phase frame = phase(FRAME);
+
+    private long firstFrame;
+    private long totalFrames = -1;
+    private long currentFrame;
+    private long framesDone;
+    private long renderStart;
+    private long renderNanos;
+    private double averageFrameNanos;
+
+    /**
+     * Returns the phase with the given name, creating it when it does not exist yet. Phases should be obtained once and
+     * reused, rather than looked up every frame.
+     */
+    public Phase phase(String name) {
+        return phases.computeIfAbsent(name, Phase::new);
+    }
+
+    public Collection<Phase> getPhases() {
+        return phasesImmutable;
+    }
+
+    public void addListener(ProfilerListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(ProfilerListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Resets all metrics and starts tracking a new render.
+     *
+     * @param from The first frame that will be rendered
+     * @param to   The frame at which the render ends (exclusive), or any number lower than {@code from} when the render
+     *             has no predetermined end
+     */
+    public void beginRender(long from, long to) {
+        for (Phase phase : phases.values()) {
+            phase.reset();
+        }
+        firstFrame = from;
+        totalFrames = to > from ? to - from : -1;
+        currentFrame = from;
+        framesDone = 0;
+        averageFrameNanos = 0;
+        renderNanos = 0;
+        renderStart = System.nanoTime();
+    }
+
+    public void endRender() {
+        renderNanos = System.nanoTime() - renderStart;
+        for (ProfilerListener listener : listeners) {
+            listener.renderFinished(this);
+        }
+    }
+
+    public void beginFrame(long frameNumber) {
+        currentFrame = frameNumber;
+        frame.start();
+    }
+
+    public void endFrame(long frameNumber) {
+        frame.stop();
+        framesDone++;
+
+        long nanos = frame.getLastNanos();
+        averageFrameNanos = averageFrameNanos == 0 ? nanos : averageFrameNanos * 0.95 + nanos * 0.05;
+
+        for (ProfilerListener listener : listeners) {
+            listener.frameFinished(this);
+        }
+    }
+
+    public long getFirstFrame() {
+        return firstFrame;
+    }
+
+    public long getCurrentFrame() {
+        return currentFrame;
+    }
+
+    public long getFramesDone() {
+        return framesDone;
+    }
+
+    /**
+     * Returns the amount of frames in the render, or -1 when the render has no predetermined end.
+     */
+    public long getTotalFrames() {
+        return totalFrames;
+    }
+
+    /**
+     * Returns the progress of the render as a number between 0 and 1, or -1 when the render has no predetermined end.
+     */
+    public double getProgress() {
+        return totalFrames <= 0 ? -1 : Math.min(1, (double) framesDone / totalFrames);
+    }
+
+    /**
+     * Returns the current render speed in frames per second, smoothed over the last few dozen frames.
+     */
+    public double getFps() {
+        return averageFrameNanos == 0 ? 0 : 1e9 / averageFrameNanos;
+    }
+
+    /**
+     * Returns the estimated time remaining until the render finishes in seconds, or -1 when unknown.
+     */
+    public double getEtaSeconds() {
+        if (totalFrames <= 0 || averageFrameNanos == 0) {
+            return -1;
+        }
+        return Math.max(0, totalFrames - framesDone) * averageFrameNanos / 1e9;
+    }
+
+    /**
+     * Returns the wall clock time the render took so far, or in total when it finished, in seconds.
+     */
+    public double getElapsedSeconds() {
+        long nanos = renderNanos != 0 ? renderNanos : System.nanoTime() - renderStart;
+        return nanos / 1e9;
+    }
+
+    public void writeJson(Writer out) throws IOException {
+        JsonWriter json = new JsonWriter(out);
+        json.setIndent("  ");
+        json.beginObject();
+        json.name("frames").value(framesDone);
+        json.name("elapsed_seconds").value(getElapsedSeconds());
+        json.name("average_fps").value(framesDone == 0 ? 0 : framesDone / Math.max(getElapsedSeconds(), 1e-9));
+        json.name("phases").beginArray();
+        for (Phase phase : phases.values()) {
+            json.beginObject();
+            json.name("name").value(phase.getName());
+            json.name("count").value(phase.getCount());
+            json.name("total_ms").value(phase.getTotalNanos() / 1e6);
+            json.name("mean_ms").value(phase.getMeanNanos() / 1e6);
+            json.name("min_ms").value(phase.getMinNanos() / 1e6);
+            json.name("max_ms").value(phase.getMaxNanos() / 1e6);
+            json.name("p50_ms").value(phase.getPercentileNanos(0.5) / 1e6);
+            json.name("p90_ms").value(phase.getPercentileNanos(0.9) / 1e6);
+            json.name("p99_ms").value(phase.getPercentileNanos(0.99) / 1e6);
+
+            // Histogram as a sparse object mapping each bucket's lower bound in nanoseconds to its count
+            json.name("histogram").beginObject();
+            for (int i = 0; i < Phase.histogramBuckets(); i++) {
+                long n = phase.getHistogramBucket(i);
+                if (n != 0) {
+                    json.name(Long.toString(i == 0 ? 0 : 1L << i)).value(n);
+                }
+            }
+            json.endObject();
+            json.endObject();
+        }
+        json.endArray();
+        json.endObject();
+        json.flush();
+    }
+
+    public void writeCsv(Writer out) {
+        PrintWriter csv = new PrintWriter(out);
+        csv.println("phase,count,total_ms,mean_ms,min_ms,max_ms,p50_ms,p90_ms,p99_ms");
+        for (Phase phase : phases.values()) {
+            csv.printf(
+                "%s,%d,%.4f,%.4f,%.4f,%.4f,%.4f,%.4f,%.4f%n",
+                phase.getName(), phase.getCount(),
+                phase.getTotalNanos() / 1e6, phase.getMeanNanos() / 1e6,
+                phase.getMinNanos() / 1e6, phase.getMaxNanos() / 1e6,
+                phase.getPercentileNanos(0.5) / 1e6,
+                phase.getPercentileNanos(0.9) / 1e6,
+                phase.getPercentileNanos(0.99) / 1e6
+            );
+        }
+        csv.flush();
+    }
+}
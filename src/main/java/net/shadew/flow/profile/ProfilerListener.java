@@ -0,0 +1,38 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.shadew.flow.profile;
+
+/**
+ * Receives progress and metrics from a {@link Profiler} while a render runs.
+ */
+public interface ProfilerListener {
+    /**
+     * Called after each rendered frame.
+     *
+     * @param profiler The profiler, whose progress and phases reflect the frame just rendered
+     */
+    default void frameFinished(Profiler profiler) {
+    }
+
+    /**
+     * Called when the render ended, either because the end of the frame range was reached or because it was
+     * interrupted.
+     *
+     * @param profiler The profiler, with the accumulated metrics of the render
+     */
+    default void renderFinished(Profiler profiler) {
+    }
+}
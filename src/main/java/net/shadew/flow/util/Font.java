@@ -18,7 +18,6 @@ package net.shadew.flow.util;
 
 import org.lwjgl.stb.STBTTFontinfo;
 import org.lwjgl.stb.STBTTVertex;
-import org.lwjgl.system.MemoryUtil;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -28,92 +27,211 @@ import java.nio.IntBuffer;
 import static org.lwjgl.stb.STBTruetype.*;
 import static org.lwjgl.system.MemoryUtil.*;
 
+/**
+ * A TrueType font. The font info is initialized lazily on first use, and is safe to initialize from multiple threads.
+ * A font may have fallback fonts, which are used for codepoints that this font has no glyph for, see {@link
+ * #forCodepoint}.
+ */
 public class Font {
-    private final ByteBuffer buffer;
-    private STBTTFontinfo fontInfo;
+    private static final Font[] NO_FALLBACKS = {};
+
+    private final Data data;
+    private final Font[] fallbacks;
+    private final boolean owner;
 
     public Font(ByteBuffer buffer) {
-        this(buffer.remaining());
-        this.buffer.put(buffer);
-        this.buffer.flip();
+        ByteBuffer copy = memAlloc(buffer.remaining());
+        copy.put(buffer);
+        copy.flip();
+        this.data = new Data(copy, true);
+        this.fallbacks = NO_FALLBACKS;
+        this.owner = true;
     }
 
-    private Font(int bufferSize) {
-        this.buffer = memAlloc(bufferSize);
+    Font(ByteBuffer buffer, boolean freeBuffer) {
+        this.data = new Data(buffer, freeBuffer);
+        this.fallbacks = NO_FALLBACKS;
+        this.owner = true;
     }
 
+    private Font(Font base, Font[] fallbacks) {
+        this.data = base.data;
+        this.fallbacks = fallbacks;
+        this.owner = false;
+    }
+
+    /**
+     * Initializes the font info, if not done already. Calling this is optional, the font info is initialized on first
+     * use otherwise.
+     *
+     * @return True if the font data is a valid font
+     */
     public boolean init() {
-        fontInfo = STBTTFontinfo.malloc();
-        return stbtt_InitFont(fontInfo, buffer);
+        return data.info() != null;
+    }
+
+    private STBTTFontinfo info() {
+        STBTTFontinfo info = data.info();
+        if (info == null) {
+            throw new IllegalStateException("Invalid font data");
+        }
+        return info;
+    }
+
+    /**
+     * Returns a font with the same data as this font, that falls back to the given fonts, in order, for codepoints
+     * this font has no glyph for. The returned font shares its data with this font, and disposing it does nothing.
+     */
+    public Font withFallbacks(Font... fallbacks) {
+        return new Font(this, fallbacks.clone());
+    }
+
+    /**
+     * Returns the first font in the fallback chain of this font that has a glyph for the given codepoint, or this font
+     * when no font has one.
+     */
+    public Font forCodepoint(int codepoint) {
+        if (fallbacks.length == 0 || glyphIndex(codepoint) != 0) {
+            return this;
+        }
+        for (Font fallback : fallbacks) {
+            Font font = fallback.forCodepoint(codepoint);
+            if (font.glyphIndex(codepoint) != 0) {
+                return font;
+            }
+        }
+        return this;
     }
 
     public int glyphIndex(int codepoint) {
-        return stbtt_FindGlyphIndex(fontInfo, codepoint);
+        return stbtt_FindGlyphIndex(info(), codepoint);
     }
 
     public STBTTVertex.Buffer getShape(int glyphIndex) {
-        return stbtt_GetGlyphShape(fontInfo, glyphIndex);
+        return stbtt_GetGlyphShape(info(), glyphIndex);
     }
 
     public boolean isEmpty(int glyphIndex) {
-        return stbtt_IsGlyphEmpty(fontInfo, glyphIndex);
+        return stbtt_IsGlyphEmpty(info(), glyphIndex);
     }
 
     public void getBox(int glyphIndex, IntBuffer x1, IntBuffer y1, IntBuffer x2, IntBuffer y2) {
-        stbtt_GetGlyphBox(fontInfo, glyphIndex, x1, y1, x2, y2);
+        stbtt_GetGlyphBox(info(), glyphIndex, x1, y1, x2, y2);
     }
 
     public void getHMetrics(int glyphIndex, IntBuffer advanceWidth, IntBuffer leftSideBearing) {
-        stbtt_GetGlyphHMetrics(fontInfo, glyphIndex, advanceWidth, leftSideBearing);
+        stbtt_GetGlyphHMetrics(info(), glyphIndex, advanceWidth, leftSideBearing);
     }
 
     public void getVMetrics(IntBuffer ascent, IntBuffer descent, IntBuffer lineGap) {
-        stbtt_GetFontVMetrics(fontInfo, ascent, descent, lineGap);
+        stbtt_GetFontVMetrics(info(), ascent, descent, lineGap);
+    }
+
+    /**
+     * Renders a signed distance field of a glyph, see {@code stbtt_GetGlyphSDF}. Returns null when the glyph is empty.
+     * The returned buffer must be freed with {@link #freeSdf}.
+     */
+    public ByteBuffer getGlyphSdf(int glyphIndex, float scale, int padding, int onEdge, float pixelDistScale, IntBuffer width, IntBuffer height, IntBuffer xoff, IntBuffer yoff) {
+        return stbtt_GetGlyphSDF(info(), scale, glyphIndex, padding, (byte) onEdge, pixelDistScale, width, height, xoff, yoff);
+    }
+
+    public static void freeSdf(ByteBuffer sdf) {
+        stbtt_FreeSDF(sdf);
     }
 
     public float scaleForPixelHeight(float size) {
-        return stbtt_ScaleForPixelHeight(fontInfo, size);
+        return stbtt_ScaleForPixelHeight(info(), size);
     }
 
     public float scaleForEMToPixels(float size) {
-        return stbtt_ScaleForMappingEmToPixels(fontInfo, size);
+        return stbtt_ScaleForMappingEmToPixels(info(), size);
+    }
+
+    /**
+     * Returns an object that identifies the font data of this font. Fonts that share their data, like the fonts
+     * returned by {@link #withFallbacks}, return the same object, so it can be used as key for caches of glyph data.
+     */
+    public Object getDataKey() {
+        return data;
+    }
+
+    ByteBuffer getBuffer() {
+        return data.buffer;
     }
 
     public void dispose() {
-        fontInfo.free();
-        memFree(buffer);
+        if (owner) {
+            data.dispose();
+        }
     }
 
     public static Font load(InputStream in) throws IOException {
+        return new Font(readFully(in), true);
+    }
+
+    // Reads a stream into a native buffer, doubling the buffer when full, so that reading is linear in the size
+    static ByteBuffer readFully(InputStream in) throws IOException {
         try {
-            ByteBuffer data = MemoryUtil.memAlloc(4096);
+            ByteBuffer data = memAlloc(Math.max(4096, in.available() + 1));
 
-            byte[] readBuf = new byte[4096];
+            byte[] readBuf = new byte[8192];
             int r;
-            while ((r = in.read(readBuf)) != -1) {
-                if (r > 0) {
+            try {
+                while ((r = in.read(readBuf)) != -1) {
                     if (data.remaining() < r) {
-                        ByteBuffer newData = MemoryUtil.memAlloc(data.capacity() + 4096);
-                        data.flip();
-                        newData.put(data);
-                        MemoryUtil.memFree(data);
-                        data = newData;
+                        data = memRealloc(data, Math.max(data.capacity() * 2, data.position() + r));
                     }
                     data.put(readBuf, 0, r);
                 }
+            } catch (IOException | RuntimeException exc) {
+                memFree(data);
+                throw exc;
             }
 
             data.flip();
+            return data;
+        } finally {
+            in.close();
+        }
+    }
 
-            Font font = new Font(data.limit());
-            font.buffer.put(data);
-            font.buffer.flip();
+    private static class Data {
+        final ByteBuffer buffer;
+        final boolean freeBuffer;
+        private volatile STBTTFontinfo info;
+        private boolean initialized;
 
-            MemoryUtil.memFree(data);
+        Data(ByteBuffer buffer, boolean freeBuffer) {
+            this.buffer = buffer;
+            this.freeBuffer = freeBuffer;
+        }
 
-            return font;
-        } finally {
-            in.close();
+        STBTTFontinfo info() {
+            STBTTFontinfo info = this.info;
+            if (info != null) return info;
+
+            synchronized (this) {
+                if (!initialized) {
+                    STBTTFontinfo newInfo = STBTTFontinfo.malloc();
+                    if (stbtt_InitFont(newInfo, buffer)) {
+                        this.info = newInfo;
+                    } else {
+                        newInfo.free();
+                    }
+                    initialized = true;
+                }
+                return this.info;
+            }
+        }
+
+        synchronized void dispose() {
+            if (info != null) {
+                info.free();
+                info = null;
+            }
+            if (freeBuffer) {
+                memFree(buffer);
+            }
         }
     }
 }
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.shadew.flow.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * A registry of shared fonts. Font files are memory-mapped instead of read into memory, so only the pages of a font
+ * that are actually used are loaded. Fonts are deduplicated: loading the same file twice, or a file with the same
+ * contents as an already loaded font, returns the same font. The registry is thread safe, and since fonts initialize
+ * lazily, loading a font does not parse it.
+ * <p>
+ * Fonts can be registered under a name, optionally with a chain of fallback fonts for missing glyphs.
+ */
+public final class FontRegistry implements Disposable {
+    private static final FontRegistry GLOBAL = new FontRegistry();
+    private static final int HASH_SAMPLE = 1 << 16;
+
+    private final Map<Path, Font> byPath = new HashMap<>();
+    private final Map<Long, List<Font>> byHash = new HashMap<>();
+    private final Map<String, Font> byName = new HashMap<>();
+    private final List<Font> fonts = new ArrayList<>();
+
+    /**
+     * Returns the global font registry, which lives as long as the application.
+     */
+    public static FontRegistry global() {
+        return GLOBAL;
+    }
+
+    public Font load(File file) throws IOException {
+        return load(file.toPath());
+    }
+
+    /**
+     * Loads a font file by memory-mapping it, or returns the already loaded font for that file or for identical
+     * contents.
+     */
+    public Font load(Path path) throws IOException {
+        Path real = path.toRealPath();
+        synchronized (this) {
+            Font font = byPath.get(real);
+            if (font != null) return font;
+        }
+
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(real, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        synchronized (this) {
+            Font font = byPath.get(real);
+            if (font == null) {
+                font = dedup(buffer, false);
+                byPath.put(real, font);
+            }
+            return font;
+        }
+    }
+
+    /**
+     * Loads a font from a stream, or returns an already loaded font with identical contents. The stream is closed.
+     */
+    public Font load(InputStream in) throws IOException {
+        ByteBuffer buffer = Font.readFully(in);
+        synchronized (this) {
+            return dedup(buffer, true);
+        }
+    }
+
+    // Returns a loaded font with the same contents as the buffer, or creates a new font from the buffer
+    private Font dedup(ByteBuffer buffer, boolean freeBuffer) {
+        long key = hash(buffer);
+        List<Font> candidates = byHash.computeIfAbsent(key, k -> new ArrayList<>(1));
+        for (Font font : candidates) {
+            if (font.getBuffer().equals(buffer)) {
+                if (freeBuffer) {
+                    memFree(buffer);
+                }
+                return font;
+            }
+        }
+
+        Font font = new Font(buffer, freeBuffer);
+        candidates.add(font);
+        fonts.add(font);
+        return font;
+    }
+
+    // Hashes the size and the head and tail of the font, so that mapped fonts are not read entirely. Fonts with equal
+    // hashes are compared in full.
+    private static long hash(ByteBuffer buffer) {
+        int size = buffer.remaining();
+        int sample = Math.min(size, HASH_SAMPLE);
+        byte[] bytes = new byte[sample];
+
+        CRC32 crc = new CRC32();
+        ByteBuffer dup = buffer.duplicate();
+        dup.get(bytes, 0, sample);
+        crc.update(bytes, 0, sample);
+        dup.position(dup.limit() - sample);
+        dup.get(bytes, 0, sample);
+        crc.update(bytes, 0, sample);
+        return (long) size << 32 | crc.getValue();
+    }
+
+    /**
+     * Registers a font under a name, with the given fallback fonts for codepoints the font has no glyph for. Returns
+     * the registered font, which is a {@linkplain Font#withFallbacks fallback chain} when fallbacks are given.
+     */
+    public synchronized Font register(String name, Font font, Font... fallbacks) {
+        Font registered = fallbacks.length == 0 ? font : font.withFallbacks(fallbacks);
+        byName.put(name, registered);
+        return registered;
+    }
+
+    /**
+     * Returns the font registered under the given name, or null if there is none.
+     */
+    public synchronized Font get(String name) {
+        return byName.get(name);
+    }
+
+    /**
+     * Disposes all fonts loaded by this registry.
+     */
+    @Override
+    public synchronized void dispose() {
+        for (Font font : fonts) {
+            font.dispose();
+        }
+        fonts.clear();
+        byPath.clear();
+        byHash.clear();
+        byName.clear();
+    }
+}
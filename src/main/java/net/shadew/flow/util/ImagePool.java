@@ -0,0 +1,205 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.shadew.flow.util;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import static org.lwjgl.system.MemoryUtil.*;
+import static org.lwjgl.system.jemalloc.JEmalloc.*;
+
+/**
+ * A pool of off-heap image memory, allocated through jemalloc. Images acquired from a pool return their memory to the
+ * pool once all their references are {@linkplain NativeImage#release() released}, so that images of the same size are
+ * recycled without allocating. Memory is kept in size classes of at most 25% overhead, so images of slightly different
+ * sizes share memory too.
+ * <p>
+ * A pool has a capacity. When acquiring an image would exceed the capacity, idle memory is freed first, and when that
+ * is not enough, acquiring blocks until other images are released. This way, a producer of images can never run ahead
+ * of its consumers by more than the capacity allows.
+ * <p>
+ * A pool is thread safe: images may be acquired and released from any thread.
+ */
+public final class ImagePool implements Disposable {
+    private static final long MIN_CLASS_SIZE = 1 << 16;
+
+    private final long capacity;
+    private final Map<Long, ArrayDeque<Long>> idle = new HashMap<>();
+
+    private long allocatedBytes;
+    private long idleBytes;
+    private boolean disposed;
+
+    /**
+     * Creates a pool that allocates at most the given amount of bytes.
+     */
+    public ImagePool(long capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Creates a pool without a memory limit.
+     */
+    public ImagePool() {
+        this(Long.MAX_VALUE);
+    }
+
+    /**
+     * Acquires an image of the given size, waiting for other images to be released when the capacity is reached. The
+     * contents of the image are undefined. The returned image has one reference, which must be released by the
+     * caller.
+     *
+     * @throws IllegalArgumentException When the image alone is larger than the capacity of this pool
+     */
+    public NativeImage acquire(int width, int height) throws InterruptedException {
+        long size = classSize(width * height * 4L);
+        if (size > capacity) {
+            throw new IllegalArgumentException("Image of " + width + "x" + height + " exceeds pool capacity");
+        }
+
+        synchronized (this) {
+            long address;
+            while ((address = take(size)) == NULL) {
+                wait();
+            }
+            return new NativeImage(memByteBuffer(address, width * height * 4), width, height, this);
+        }
+    }
+
+    /**
+     * Acquires an image of the given size like {@link #acquire}, but returns null instead of waiting when the capacity
+     * is reached.
+     */
+    public NativeImage tryAcquire(int width, int height) {
+        long size = classSize(width * height * 4L);
+        if (size > capacity) {
+            return null;
+        }
+
+        synchronized (this) {
+            long address = take(size);
+            if (address == NULL) {
+                return null;
+            }
+            return new NativeImage(memByteBuffer(address, width * height * 4), width, height, this);
+        }
+    }
+
+    private long take(long size) {
+        if (disposed) {
+            throw new IllegalStateException("Pool is disposed");
+        }
+
+        ArrayDeque<Long> free = idle.get(size);
+        if (free != null && !free.isEmpty()) {
+            idleBytes -= size;
+            return free.pop();
+        }
+
+        if (allocatedBytes + size > capacity) {
+            evict(allocatedBytes + size - capacity);
+            if (allocatedBytes + size > capacity) {
+                return NULL;
+            }
+        }
+
+        long address = nje_malloc(size);
+        if (address == NULL) {
+            throw new OutOfMemoryError("Failed to allocate " + size + " bytes of image memory");
+        }
+        allocatedBytes += size;
+        return address;
+    }
+
+    // Frees idle memory until at least the given amount of bytes is freed, or no idle memory is left
+    private void evict(long bytes) {
+        long freed = 0;
+        Iterator<Map.Entry<Long, ArrayDeque<Long>>> itr = idle.entrySet().iterator();
+        while (itr.hasNext() && freed < bytes) {
+            Map.Entry<Long, ArrayDeque<Long>> entry = itr.next();
+            long size = entry.getKey();
+            ArrayDeque<Long> free = entry.getValue();
+            while (!free.isEmpty() && freed < bytes) {
+                nje_free(free.pop());
+                freed += size;
+            }
+            if (free.isEmpty()) {
+                itr.remove();
+            }
+        }
+        allocatedBytes -= freed;
+        idleBytes -= freed;
+    }
+
+    synchronized void recycle(long address, long bytes) {
+        long size = classSize(bytes);
+        if (disposed) {
+            nje_free(address);
+            allocatedBytes -= size;
+            return;
+        }
+        idle.computeIfAbsent(size, k -> new ArrayDeque<>()).push(address);
+        idleBytes += size;
+        notifyAll();
+    }
+
+    /**
+     * Frees all idle memory of this pool.
+     */
+    public synchronized void trim() {
+        evict(idleBytes);
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the amount of bytes allocated by this pool, including idle memory.
+     */
+    public synchronized long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public synchronized long getIdleBytes() {
+        return idleBytes;
+    }
+
+    /**
+     * Frees all idle memory and stops recycling. Images that are still in use free their memory once released.
+     */
+    @Override
+    public synchronized void dispose() {
+        trim();
+        disposed = true;
+        notifyAll();
+    }
+
+    static long classSize(long bytes) {
+        if (bytes <= MIN_CLASS_SIZE) {
+            return MIN_CLASS_SIZE;
+        }
+        long step = Long.highestOneBit(bytes - 1) / 4;
+        return (bytes + step - 1) / step * step;
+    }
+}
@@ -24,8 +24,7 @@ import java.io.OutputStream;
 import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
-
-import net.shadew.util.misc.ColorUtil;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.lwjgl.stb.STBImage.*;
 import static org.lwjgl.stb.STBImageResize.*;
@@ -35,13 +34,18 @@ import static org.lwjgl.system.MemoryUtil.*;
 
 public final class NativeImage implements Disposable {
     private final ByteBuffer buf;
+    private final long address;
     private final int width;
     private final int height;
+    private final ImagePool pool;
+    private final AtomicInteger references = new AtomicInteger(1);
 
-    private NativeImage(ByteBuffer buf, int width, int height) {
+    NativeImage(ByteBuffer buf, int width, int height, ImagePool pool) {
         this.buf = buf;
+        this.address = memAddress(buf);
         this.width = width;
         this.height = height;
+        this.pool = pool;
     }
 
     public int getWidth() {
@@ -62,38 +66,195 @@ public final class NativeImage implements Disposable {
     }
 
     public int getColor(int x, int y) {
-        int i = (y * width + x) * 4;
-        int r = buf.get(i) & 0xFF;
-        int g = buf.get(i + 1) & 0xFF;
-        int b = buf.get(i + 2) & 0xFF;
-        int a = buf.get(i + 3) & 0xFF;
-        return ColorUtil.rgba(r, g, b, a);
+        checkPixel(x, y);
+        return PixelOps.swapRedBlue(PixelOps.get(address + (y * width + x) * 4L));
     }
 
     public void setColor(int x, int y, int argb) {
-        int i = (y * width + x) * 4;
-        buf.put(i, (byte) ColorUtil.redi(argb));
-        buf.put(i + 1, (byte) ColorUtil.greeni(argb));
-        buf.put(i + 2, (byte) ColorUtil.bluei(argb));
-        buf.put(i + 3, (byte) ColorUtil.alphai(argb));
+        checkPixel(x, y);
+        PixelOps.put(address + (y * width + x) * 4L, PixelOps.swapRedBlue(argb));
+    }
+
+    /**
+     * Flips this image upside down.
+     */
+    public void flipVertical() {
+        int rowBytes = width * 4;
+        PixelOps.bands(height / 2, width, (from, to) -> {
+            for (int y = from; y < to; y++) {
+                PixelOps.swapRows(address + (long) y * rowBytes, address + (long) (height - y - 1) * rowBytes, rowBytes);
+            }
+        });
+    }
+
+    /**
+     * Swaps the red and blue channels of all pixels, converting between RGBA and BGRA.
+     */
+    public void swapRedBlue() {
+        PixelOps.bands(height, width, (from, to) -> PixelOps.swapRedBlue(rowAddress(from), (to - from) * width));
+    }
+
+    /**
+     * Multiplies the color channels of all pixels by their alpha.
+     */
+    public void premultiply() {
+        PixelOps.bands(height, width, (from, to) -> PixelOps.premultiply(rowAddress(from), (to - from) * width));
+    }
+
+    /**
+     * Divides the color channels of all pixels by their alpha. Fully transparent pixels are left untouched.
+     */
+    public void unpremultiply() {
+        PixelOps.bands(height, width, (from, to) -> PixelOps.unpremultiply(rowAddress(from), (to - from) * width));
+    }
+
+    /**
+     * Composites this image over a background color, in place. When the background is opaque, the result is opaque.
+     *
+     * @param argb          The background color, with straight alpha
+     * @param premultiplied Whether the pixels of this image are premultiplied, the result is in the same form
+     */
+    public void composite(int argb, boolean premultiplied) {
+        int background = PixelOps.premultiply(PixelOps.swapRedBlue(argb));
+        PixelOps.bands(height, width, (from, to) -> PixelOps.composite(rowAddress(from), (to - from) * width, background, premultiplied));
+    }
+
+    public void fill(int argb) {
+        int px = PixelOps.swapRedBlue(argb);
+        PixelOps.bands(height, width, (from, to) -> PixelOps.fill(rowAddress(from), (to - from) * width, px));
+    }
+
+    public void fill(int x, int y, int w, int h, int argb) {
+        checkRect(x, y, w, h);
+        int px = PixelOps.swapRedBlue(argb);
+        PixelOps.bands(h, w, (from, to) -> {
+            for (int row = from; row < to; row++) {
+                PixelOps.fill(rowAddress(y + row) + x * 4L, w, px);
+            }
+        });
+    }
+
+    /**
+     * Copies a rectangle of pixels from the given image into this image. The source image may be this image, even when
+     * the rectangles overlap.
+     */
+    public void copyRect(NativeImage src, int sx, int sy, int w, int h, int dx, int dy) {
+        src.checkRect(sx, sy, w, h);
+        checkRect(dx, dy, w, h);
+
+        long rowBytes = w * 4L;
+        if (src == this && Math.abs(sx - dx) < w && Math.abs(sy - dy) < h) {
+            // Overlapping, copy through a temporary buffer
+            ByteBuffer tmp = memAlloc(w * h * 4);
+            long tmpAddress = memAddress(tmp);
+            try {
+                for (int row = 0; row < h; row++) {
+                    memCopy(rowAddress(sy + row) + sx * 4L, tmpAddress + row * rowBytes, rowBytes);
+                }
+                for (int row = 0; row < h; row++) {
+                    memCopy(tmpAddress + row * rowBytes, rowAddress(dy + row) + dx * 4L, rowBytes);
+                }
+            } finally {
+                memFree(tmp);
+            }
+            return;
+        }
+
+        PixelOps.bands(h, w, (from, to) -> {
+            for (int row = from; row < to; row++) {
+                memCopy(src.rowAddress(sy + row) + sx * 4L, rowAddress(dy + row) + dx * 4L, rowBytes);
+            }
+        });
+    }
+
+    /**
+     * Writes the pixels of this image as packed RGB bytes, dropping alpha.
+     *
+     * @param out   The array to write to, at least {@code width * height * 3} long
+     * @param flipy Whether to write the rows in reverse order
+     * @param bias  A value added to every channel, wrapping around
+     */
+    public void toRgb(byte[] out, boolean flipy, int bias) {
+        if (out.length < width * height * 3) {
+            throw new IllegalArgumentException("Output array too small");
+        }
+
+        long biasWord = PixelOps.repeat((bias & 0xFF) * 0x01010101);
+        int rowBytes = width * 3;
+        PixelOps.bands(height, width, (from, to) -> {
+            for (int y = from; y < to; y++) {
+                int row = flipy ? height - y - 1 : y;
+                PixelOps.toRgb(rowAddress(y), width, out, row * rowBytes, biasWord);
+            }
+        });
+    }
+
+    long rowAddress(int y) {
+        return address + (long) y * width * 4;
+    }
+
+    private void checkPixel(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            throw new IndexOutOfBoundsException("Pixel " + x + ", " + y + " out of bounds");
+        }
+    }
+
+    void checkRect(int x, int y, int w, int h) {
+        if (x < 0 || y < 0 || w < 0 || h < 0 || x + w > width || y + h > height) {
+            throw new IndexOutOfBoundsException("Rectangle " + x + ", " + y + ", " + w + ", " + h + " out of bounds");
+        }
     }
 
     public void blit(int x1, int y1, int w1, int h1, int x2, int y2, int w2, int h2, NativeImage out) {
-        int stride1 = width - w1;
-        int stride2 = out.getWidth() - w2;
+        // Strides are in bytes
+        int stride1 = width * 4;
+        int stride2 = out.getWidth() * 4;
         buf.limit(buf.capacity());
-        buf.position(y1 * width * 4 + x1);
+        buf.position((y1 * width + x1) * 4);
 
         ByteBuffer outBuf = out.getBuffer();
         outBuf.limit(outBuf.capacity());
-        outBuf.position(y2 * out.getWidth() * 4 + x2);
+        outBuf.position((y2 * out.getWidth() + x2) * 4);
 
         stbir_resize_uint8(buf, w1, h1, stride1, outBuf, w2, h2, stride2, 4);
     }
 
+    /**
+     * Adds a reference to this image, which must be {@linkplain #release() released} later. Use this to keep an image
+     * alive beyond the scope it was passed in, e.g. to process it on another thread.
+     */
+    public NativeImage retain() {
+        if (references.getAndIncrement() <= 0) {
+            references.getAndDecrement();
+            throw new IllegalStateException("Image is already freed");
+        }
+        return this;
+    }
+
+    /**
+     * Removes a reference from this image. When the last reference is removed, the memory of this image is freed, or
+     * returned to the pool it was acquired from.
+     */
+    public void release() {
+        int refs = references.decrementAndGet();
+        if (refs > 0) return;
+        if (refs < 0) {
+            throw new IllegalStateException("Image is already freed");
+        }
+
+        if (pool != null) {
+            pool.recycle(address, buf.capacity());
+        } else {
+            memFree(buf);
+        }
+    }
+
+    /**
+     * Same as {@link #release()}.
+     */
     @Override
     public void dispose() {
-        memFree(buf);
+        release();
     }
 
     public boolean savePng(String file, boolean flipy) {
@@ -172,7 +333,7 @@ public final class NativeImage implements Disposable {
     }
 
     public static NativeImage allocate(int width, int height) {
-        return new NativeImage(memCalloc(width * height * 4), width, height);
+        return new NativeImage(memCalloc(width * height * 4), width, height, null);
     }
 
     public static NativeImage load(String file) throws IOException {
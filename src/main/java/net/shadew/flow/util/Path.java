@@ -24,6 +24,8 @@ import org.lwjgl.system.MemoryStack;
 import java.util.ArrayList;
 import java.util.List;
 
+import net.shadew.flow.view.canvas2d.context.CanvasContext;
+import net.shadew.flow.view.canvas2d.context.Winding;
 import net.shadew.util.misc.ColorUtil;
 import net.shadew.util.misc.MathUtil;
 
@@ -289,21 +291,119 @@ public class Path {
 
             nvgBeginPath(nvg);
 
-            boolean closeLast = false;
-            for (Segment segment : segments) {
-                segment.draw(nvg, start, end, closeLast);
-                closeLast = segment.closed;// && end == 1 && start == 0;
-            }
-            if (closeLast) {
-                nvgClosePath(nvg);
-            }
-            nvgPathWinding(nvg, NVG_HOLE);
+            drawSegments(new NvgTarget(nvg), start, end);
 
             if (hasFill) nvgFill(nvg);
             if (hasStroke) nvgStroke(nvg);
         }
     }
 
+    /**
+     * Draws this path on the given {@link CanvasContext}. See {@link #draw(long, float, float)} for the meaning of the
+     * {@code start} and {@code end} parameters.
+     *
+     * @param ctx   The canvas context to render the path on
+     * @param start The start of the path
+     * @param end   The end of the path
+     */
+    public void draw(CanvasContext ctx, float start, float end) {
+        if (segments.size() < 1) {
+            return;
+        }
+
+        boolean hasStroke = strokeWidth > 0 || ColorUtil.alphai(strokeColor) != 0;
+        boolean hasFill = ColorUtil.alphai(fillColor) != 0;
+        if (!hasFill && !hasStroke) {
+            return;
+        }
+
+        ctx.strokeColor(strokeColor);
+        ctx.fillColor(fillColor);
+        ctx.strokeWidth(strokeWidth);
+
+        ctx.beginPath();
+
+        drawSegments(new ContextTarget(ctx), start, end);
+
+        if (hasFill) ctx.fill();
+        if (hasStroke) ctx.stroke();
+    }
+
+    private void drawSegments(Target target, float start, float end) {
+        boolean closeLast = false;
+        for (Segment segment : segments) {
+            segment.draw(target, start, end, closeLast);
+            closeLast = segment.closed;// && end == 1 && start == 0;
+        }
+        if (closeLast) {
+            target.closePath();
+        }
+        target.hole();
+    }
+
+    private interface Target {
+        void moveTo(float x, float y);
+        void lineTo(float x, float y);
+        void closePath();
+        void hole();
+    }
+
+    private static class NvgTarget implements Target {
+        private final long nvg;
+
+        NvgTarget(long nvg) {
+            this.nvg = nvg;
+        }
+
+        @Override
+        public void moveTo(float x, float y) {
+            nvgMoveTo(nvg, x, y);
+        }
+
+        @Override
+        public void lineTo(float x, float y) {
+            nvgLineTo(nvg, x, y);
+        }
+
+        @Override
+        public void closePath() {
+            nvgClosePath(nvg);
+        }
+
+        @Override
+        public void hole() {
+            nvgPathWinding(nvg, NVG_HOLE);
+        }
+    }
+
+    private static class ContextTarget implements Target {
+        private final CanvasContext ctx;
+
+        ContextTarget(CanvasContext ctx) {
+            this.ctx = ctx;
+        }
+
+        @Override
+        public void moveTo(float x, float y) {
+            ctx.moveTo(x, y);
+        }
+
+        @Override
+        public void lineTo(float x, float y) {
+            ctx.lineTo(x, y);
+        }
+
+        @Override
+        public void closePath() {
+            ctx.closePath();
+        }
+
+        @Override
+        public void hole() {
+            ctx.pathWinding(Winding.CLOCKWISE);
+        }
+    }
+
 
     private static class Segment {
         boolean closed;
@@ -317,7 +417,7 @@ public class Path {
             points.add(new Vector2f(x, y));
         }
 
-        void draw(long nvg, float start, float end, boolean closeLastPath) {
+        void draw(Target target, float start, float end, boolean closeLastPath) {
             if (points.size() < 2) {
                 return;
             }
@@ -365,17 +465,17 @@ public class Path {
                         if (!began && s <= 1) {
                             float sx = MathUtil.lerp(c.x, n.x, s);
                             float sy = MathUtil.lerp(c.y, n.y, s);
-                            nvgMoveTo(nvg, sx, sy);
+                            target.moveTo(sx, sy);
                             if (closeLastPath) {
-                                nvgClosePath(nvg);
+                                target.closePath();
                             }
-                            nvgPathWinding(nvg, NVG_HOLE);
+                            target.hole();
                             began = true;
                         }
                         if (e > 0 && began) {
                             float ex = MathUtil.lerp(c.x, n.x, e);
                             float ey = MathUtil.lerp(c.y, n.y, e);
-                            nvgLineTo(nvg, ex, ey);
+                            target.lineTo(ex, ey);
                         }
                     }
                 }
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.shadew.flow.util;
+
+import java.nio.ByteOrder;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * Word-wide pixel loops over off-heap RGBA memory. Pixels are handled as little-endian ints, i.e. {@code 0xAABBGGRR},
+ * regardless of the native byte order. Large images are processed in row bands on the common fork-join pool.
+ */
+final class PixelOps {
+    private static final boolean BIG_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN;
+
+    // Images smaller than this amount of pixels are processed on the calling thread
+    private static final int PARALLEL_THRESHOLD = 1 << 18;
+    private static final int BAND_PIXELS = 1 << 16;
+
+    private static final long LO = 0x00FF00FF_00FF00FFL;
+    private static final long HI = 0xFF00FF00_FF00FF00L;
+    private static final long R_LANES = 0x000000FF_000000FFL;
+    private static final long LOW7 = 0x7F7F7F7F_7F7F7F7FL;
+    private static final long HIGH1 = 0x80808080_80808080L;
+
+    // Fixed point reciprocals of alpha, scaled by 255, for unpremultiplying
+    private static final int[] RECIPROCALS = new int[256];
+
+    static {
+        for (int a = 1; a < 256; a++) {
+            RECIPROCALS[a] = (255 * 65536 + a / 2) / a;
+        }
+    }
+
+    private PixelOps() {
+    }
+
+    static int get(long address) {
+        int px = memGetInt(address);
+        return BIG_ENDIAN ? Integer.reverseBytes(px) : px;
+    }
+
+    static void put(long address, int px) {
+        memPutInt(address, BIG_ENDIAN ? Integer.reverseBytes(px) : px);
+    }
+
+    static long getWord(long address) {
+        long w = memGetLong(address);
+        return BIG_ENDIAN ? Long.reverseBytes(w) : w;
+    }
+
+    static void putWord(long address, long w) {
+        memPutLong(address, BIG_ENDIAN ? Long.reverseBytes(w) : w);
+    }
+
+    // Converts between 0xAARRGGBB and 0xAABBGGRR, the conversion is its own inverse
+    static int swapRedBlue(int px) {
+        return px & 0xFF00FF00 | px >>> 16 & 0xFF | (px & 0xFF) << 16;
+    }
+
+    static long swapRedBlue(long w) {
+        return w & HI | w >>> 16 & R_LANES | (w & R_LANES) << 16;
+    }
+
+    // Adds the bytes of b to the bytes of w, without carrying over to the next byte
+    static long addBytes(long w, long b) {
+        return (w & LOW7) + (b & LOW7) ^ (w ^ b) & HIGH1;
+    }
+
+    static long repeat(int px) {
+        return px & 0xFFFFFFFFL | (long) px << 32;
+    }
+
+    // Multiplies all four channels by f / 255, rounded
+    static int scale(int px, int f) {
+        int rb = (px & 0x00FF00FF) * f + 0x00800080;
+        rb = (rb + (rb >>> 8 & 0x00FF00FF)) >>> 8 & 0x00FF00FF;
+        int ag = (px >>> 8 & 0x00FF00FF) * f + 0x00800080;
+        ag = ag + (ag >>> 8 & 0x00FF00FF) & 0xFF00FF00;
+        return rb | ag;
+    }
+
+    static int premultiply(int px) {
+        int a = px >>> 24;
+        if (a == 255) return px;
+        return scale(px, a) & 0x00FFFFFF | a << 24;
+    }
+
+    static int unpremultiply(int px) {
+        int a = px >>> 24;
+        if (a == 255 || a == 0) return px;
+        int f = RECIPROCALS[a];
+        int r = Math.min(255, ((px & 0xFF) * f + 0x8000) >>> 16);
+        int g = Math.min(255, ((px >>> 8 & 0xFF) * f + 0x8000) >>> 16);
+        int b = Math.min(255, ((px >>> 16 & 0xFF) * f + 0x8000) >>> 16);
+        return r | g << 8 | b << 16 | a << 24;
+    }
+
+    static void swapRedBlue(long address, int pixels) {
+        long end = address + pixels * 4L;
+        long p = address;
+        for (; p + 8 <= end; p += 8) {
+            putWord(p, swapRedBlue(getWord(p)));
+        }
+        if (p < end) {
+            put(p, swapRedBlue(get(p)));
+        }
+    }
+
+    static void fill(long address, int pixels, int px) {
+        if ((px & 0xFF) * 0x01010101 == px) {
+            memSet(address, px & 0xFF, pixels * 4L);
+            return;
+        }
+
+        long word = repeat(px);
+        long end = address + pixels * 4L;
+        long p = address;
+        for (; p + 8 <= end; p += 8) {
+            putWord(p, word);
+        }
+        if (p < end) {
+            put(p, px);
+        }
+    }
+
+    static void swapRows(long a, long b, int bytes) {
+        int i = 0;
+        for (; i + 8 <= bytes; i += 8) {
+            long w = memGetLong(a + i);
+            memPutLong(a + i, memGetLong(b + i));
+            memPutLong(b + i, w);
+        }
+        for (; i < bytes; i += 4) {
+            int w = memGetInt(a + i);
+            memPutInt(a + i, memGetInt(b + i));
+            memPutInt(b + i, w);
+        }
+    }
+
+    static void premultiply(long address, int pixels) {
+        long end = address + pixels * 4L;
+        for (long p = address; p < end; p += 4) {
+            int px = get(p);
+            if (px >>> 24 != 255) {
+                put(p, premultiply(px));
+            }
+        }
+    }
+
+    static void unpremultiply(long address, int pixels) {
+        long end = address + pixels * 4L;
+        for (long p = address; p < end; p += 4) {
+            int px = get(p);
+            int a = px >>> 24;
+            if (a != 255 && a != 0) {
+                put(p, unpremultiply(px));
+            }
+        }
+    }
+
+    // Composites pixels over a premultiplied background color, keeping the pixels premultiplied or straight as they are
+    static void composite(long address, int pixels, int background, boolean premultiplied) {
+        long end = address + pixels * 4L;
+        for (long p = address; p < end; p += 4) {
+            int px = get(p);
+            int a = px >>> 24;
+            if (a == 255) continue;
+
+            int src = premultiplied ? px : premultiply(px);
+            int out = src + scale(background, 255 - a);
+            put(p, premultiplied ? out : unpremultiply(out));
+        }
+    }
+
+    // Writes pixels as packed RGB bytes, with bias added to every channel
+    static void toRgb(long address, int pixels, byte[] out, int offset, long bias) {
+        long end = address + pixels * 4L;
+        long p = address;
+        int d = offset;
+        for (; p + 8 <= end; p += 8, d += 6) {
+            long w = addBytes(getWord(p), bias);
+            out[d] = (byte) w;
+            out[d + 1] = (byte) (w >>> 8);
+            out[d + 2] = (byte) (w >>> 16);
+            out[d + 3] = (byte) (w >>> 32);
+            out[d + 4] = (byte) (w >>> 40);
+            out[d + 5] = (byte) (w >>> 48);
+        }
+        if (p < end) {
+            long w = addBytes(get(p), bias);
+            out[d] = (byte) w;
+            out[d + 1] = (byte) (w >>> 8);
+            out[d + 2] = (byte) (w >>> 16);
+        }
+    }
+
+    /**
+     * Runs the given operation over the rows of an image, splitting the rows in bands that run in parallel when the
+     * image is large enough.
+     */
+    static void bands(int rows, int width, Band band) {
+        if ((long) rows * width < PARALLEL_THRESHOLD || rows < 2) {
+            band.run(0, rows);
+            return;
+        }
+        int bandRows = Math.max(1, BAND_PIXELS / Math.max(1, width));
+        ForkJoinPool.commonPool().invoke(new BandTask(band, 0, rows, bandRows));
+    }
+
+    interface Band {
+        void run(int from, int to);
+    }
+
+    private static class BandTask extends RecursiveAction {
+        private final Band band;
+        private final int from;
+        private final int to;
+        private final int bandRows;
+
+        BandTask(Band band, int from, int to, int bandRows) {
+            this.band = band;
+            this.from = from;
+            this.to = to;
+            this.bandRows = bandRows;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= bandRows) {
+                band.run(from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new BandTask(band, from, mid, bandRows), new BandTask(band, mid, to, bandRows));
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.shadew.flow.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Resamples images with a separable filter. The destination is split in row bands that are resampled in parallel, and
+ * filter kernels are cached per source and destination size, so resampling many frames of the same size only computes
+ * the kernels once. Channels are filtered independently, like {@link NativeImage#blit}.
+ */
+public final class Resampler {
+    private static final int MAX_CACHED_KERNELS = 16;
+
+    private final Filter filter;
+    private final Map<Long, Kernel> kernels = new HashMap<>();
+
+    public Resampler(Filter filter) {
+        this.filter = filter;
+    }
+
+    public Filter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Resamples the whole source image into the whole destination image.
+     */
+    public void resample(NativeImage src, NativeImage dst) {
+        resample(src, 0, 0, src.getWidth(), src.getHeight(), dst, 0, 0, dst.getWidth(), dst.getHeight());
+    }
+
+    /**
+     * Resamples a rectangle of the source image into a rectangle of the destination image. The images must not be the
+     * same image.
+     */
+    public void resample(NativeImage src, int sx, int sy, int sw, int sh, NativeImage dst, int dx, int dy, int dw, int dh) {
+        if (src == dst) {
+            throw new IllegalArgumentException("Cannot resample an image into itself");
+        }
+        src.checkRect(sx, sy, sw, sh);
+        dst.checkRect(dx, dy, dw, dh);
+        if (sw == 0 || sh == 0 || dw == 0 || dh == 0) return;
+
+        Kernel kx = kernel(sw, dw);
+        Kernel ky = kernel(sh, dh);
+
+        PixelOps.bands(dh, dw, (from, to) -> {
+            // Horizontally filter only the source rows this band needs
+            int firstRow = ky.start[from];
+            int lastRow = ky.start[to - 1] + ky.taps;
+            int rows = lastRow - firstRow;
+
+            int[] line = new int[sw];
+            float[] tmp = new float[rows * dw * 4];
+            for (int r = 0; r < rows; r++) {
+                long addr = src.rowAddress(sy + firstRow + r) + sx * 4L;
+                for (int x = 0; x < sw; x++) {
+                    line[x] = PixelOps.get(addr + x * 4L);
+                }
+                filterRow(line, kx, tmp, r * dw * 4, dw);
+            }
+
+            for (int y = from; y < to; y++) {
+                long addr = dst.rowAddress(dy + y) + dx * 4L;
+                int base = (ky.start[y] - firstRow) * dw * 4;
+                int w = y * ky.taps;
+                for (int x = 0; x < dw; x++) {
+                    float r = 0, g = 0, b = 0, a = 0;
+                    int i = base + x * 4;
+                    for (int t = 0; t < ky.taps; t++, i += dw * 4) {
+                        float weight = ky.weights[w + t];
+                        r += tmp[i] * weight;
+                        g += tmp[i + 1] * weight;
+                        b += tmp[i + 2] * weight;
+                        a += tmp[i + 3] * weight;
+                    }
+                    PixelOps.put(addr + x * 4L, clamp(r) | clamp(g) << 8 | clamp(b) << 16 | clamp(a) << 24);
+                }
+            }
+        });
+    }
+
+    private static void filterRow(int[] line, Kernel kx, float[] out, int offset, int dw) {
+        int o = offset;
+        for (int x = 0; x < dw; x++) {
+            float r = 0, g = 0, b = 0, a = 0;
+            int s = kx.start[x];
+            int w = x * kx.taps;
+            for (int t = 0; t < kx.taps; t++) {
+                int px = line[s + t];
+                float weight = kx.weights[w + t];
+                r += (px & 0xFF) * weight;
+                g += (px >>> 8 & 0xFF) * weight;
+                b += (px >>> 16 & 0xFF) * weight;
+                a += (px >>> 24) * weight;
+            }
+            out[o++] = r;
+            out[o++] = g;
+            out[o++] = b;
+            out[o++] = a;
+        }
+    }
+
+    private static int clamp(float v) {
+        int i = (int) (v + 0.5f);
+        return i < 0 ? 0 : i > 255 ? 255 : i;
+    }
+
+    private Kernel kernel(int srcSize, int dstSize) {
+        long key = (long) srcSize << 32 | dstSize;
+        synchronized (kernels) {
+            Kernel kernel = kernels.get(key);
+            if (kernel == null) {
+                if (kernels.size() >= MAX_CACHED_KERNELS) {
+                    kernels.clear();
+                }
+                kernel = new Kernel(filter, srcSize, dstSize);
+                kernels.put(key, kernel);
+            }
+            return kernel;
+        }
+    }
+
+    /**
+     * The weights of a filter for one axis. Every destination pixel has the same amount of taps, starting at a source
+     * pixel that is clamped so that all taps lie inside the source. Taps that would fall outside the source are folded
+     * onto the edge pixels.
+     */
+    private static class Kernel {
+        final int taps;
+        final int[] start;
+        final float[] weights;
+
+        Kernel(Filter filter, int srcSize, int dstSize) {
+            double scale = (double) dstSize / srcSize;
+            double stretch = Math.max(1, 1 / scale);
+            double support = filter.radius * stretch;
+
+            taps = Math.min(srcSize, (int) Math.ceil(support * 2) + 1);
+            start = new int[dstSize];
+            weights = new float[dstSize * taps];
+
+            double[] acc = new double[taps];
+            for (int i = 0; i < dstSize; i++) {
+                double center = (i + 0.5) / scale - 0.5;
+                int s = Math.max(0, Math.min(srcSize - taps, (int) Math.floor(center - support)));
+                start[i] = s;
+
+                Arrays.fill(acc, 0);
+                double sum = 0;
+                int lo = (int) Math.ceil(center - support);
+                int hi = (int) Math.floor(center + support);
+                for (int j = lo; j <= hi; j++) {
+                    double weight = filter.weight((j - center) / stretch);
+                    if (weight == 0) continue;
+                    int k = Math.max(0, Math.min(srcSize - 1, j)) - s;
+                    if (k < 0 || k >= taps) continue;
+                    acc[k] += weight;
+                    sum += weight;
+                }
+
+                if (sum == 0) {
+                    // The filter does not reach any source pixel, fall back to the nearest one
+                    int k = Math.max(0, Math.min(srcSize - 1, (int) Math.round(center))) - s;
+                    acc[Math.max(0, Math.min(taps - 1, k))] = 1;
+                    sum = 1;
+                }
+                for (int t = 0; t < taps; t++) {
+                    weights[i * taps + t] = (float) (acc[t] / sum);
+                }
+            }
+        }
+    }
+
+    public enum Filter {
+        BOX(0.5) {
+            @Override
+            double weight(double x) {
+                return x > -0.5 && x <= 0.5 ? 1 : 0;
+            }
+        },
+        BILINEAR(1) {
+            @Override
+            double weight(double x) {
+                return Math.max(0, 1 - Math.abs(x));
+            }
+        },
+        LANCZOS(3) {
+            @Override
+            double weight(double x) {
+                if (x == 0) return 1;
+                if (x <= -3 || x >= 3) return 0;
+                double px = Math.PI * x;
+                return 3 * Math.sin(px) * Math.sin(px / 3) / (px * px);
+            }
+        };
+
+        final double radius;
+
+        Filter(double radius) {
+            this.radius = radius;
+        }
+
+        abstract double weight(double x);
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.shadew.flow.util;
+
+import org.lwjgl.system.MemoryStack;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * A single channel texture atlas of signed distance fields of the glyphs of one font. Glyphs are rendered once, at a
+ * fixed base size, when they are first requested, and packed in shelves. Distance fields scale well, so the same atlas
+ * serves all font sizes. The atlas grows in height until it reaches its maximum size, after which glyphs that do not
+ * fit are not added.
+ */
+public final class SdfGlyphAtlas implements Disposable {
+    public static final float BASE_SIZE = 48;
+    public static final int PADDING = 6;
+    public static final int ON_EDGE = 128;
+
+    /**
+     * The change in distance field value per pixel of distance, at the base size.
+     */
+    public static final float PIXEL_DIST_SCALE = ON_EDGE / (float) PADDING;
+
+    private static final int WIDTH = 1024;
+    private static final int MAX_HEIGHT = 4096;
+
+    // Cached for glyphs that did not fit, space only runs out further so they will never fit
+    private static final Glyph NO_FIT = new Glyph(0, 0, 0, 0, 0, 0);
+
+    private final Font font;
+    private final float scale;
+    private final Map<Integer, Glyph> glyphs = new HashMap<>();
+
+    private ByteBuffer pixels;
+    private int height = 256;
+
+    private int shelfX;
+    private int shelfY;
+    private int shelfHeight;
+
+    private int version;
+    private int dirtyFrom = Integer.MAX_VALUE;
+    private int dirtyTo;
+
+    public SdfGlyphAtlas(Font font) {
+        this.font = font;
+        this.scale = font.scaleForEMToPixels(BASE_SIZE);
+        this.pixels = memCalloc(WIDTH * height);
+    }
+
+    public Font getFont() {
+        return font;
+    }
+
+    public int getWidth() {
+        return WIDTH;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public ByteBuffer getPixels() {
+        return pixels;
+    }
+
+    /**
+     * Returns a number that changes whenever pixels of this atlas change.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the first row that changed since the last call to {@link #clean()}.
+     */
+    public int getDirtyFrom() {
+        return dirtyFrom;
+    }
+
+    /**
+     * Returns the row after the last row that changed since the last call to {@link #clean()}.
+     */
+    public int getDirtyTo() {
+        return dirtyTo;
+    }
+
+    public void clean() {
+        dirtyFrom = Integer.MAX_VALUE;
+        dirtyTo = 0;
+    }
+
+    /**
+     * Returns the glyph with the given index, rendering it into the atlas if necessary. Returns null when the glyph
+     * does not fit in the atlas anymore.
+     */
+    public Glyph glyph(int glyphIndex) {
+        Glyph glyph = glyphs.get(glyphIndex);
+        if (glyph != null) return glyph == NO_FIT ? null : glyph;
+
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            IntBuffer w = stack.mallocInt(1);
+            IntBuffer h = stack.mallocInt(1);
+            IntBuffer xoff = stack.mallocInt(1);
+            IntBuffer yoff = stack.mallocInt(1);
+            ByteBuffer sdf = font.getGlyphSdf(glyphIndex, scale, PADDING, ON_EDGE, PIXEL_DIST_SCALE, w, h, xoff, yoff);
+            if (sdf == null) {
+                glyph = new Glyph(0, 0, 0, 0, 0, 0);
+            } else {
+                try {
+                    glyph = place(sdf, w.get(0), h.get(0), xoff.get(0), yoff.get(0));
+                } finally {
+                    Font.freeSdf(sdf);
+                }
+                if (glyph == null) {
+                    glyphs.put(glyphIndex, NO_FIT);
+                    return null;
+                }
+            }
+        }
+        glyphs.put(glyphIndex, glyph);
+        return glyph;
+    }
+
+    private Glyph place(ByteBuffer sdf, int w, int h, int xoff, int yoff) {
+        if (w > WIDTH) return null;
+
+        if (shelfX + w > WIDTH) {
+            shelfY += shelfHeight;
+            shelfX = 0;
+            shelfHeight = 0;
+        }
+        while (shelfY + h > height) {
+            if (height >= MAX_HEIGHT) return null;
+            grow();
+        }
+
+        int x = shelfX;
+        int y = shelfY;
+        long src = memAddress(sdf);
+        long dst = memAddress(pixels);
+        for (int row = 0; row < h; row++) {
+            memCopy(src + (long) row * w, dst + (long) (y + row) * WIDTH + x, w);
+        }
+
+        shelfX += w + 1;
+        shelfHeight = Math.max(shelfHeight, h + 1);
+        dirtyFrom = Math.min(dirtyFrom, y);
+        dirtyTo = Math.max(dirtyTo, y + h);
+        version++;
+        return new Glyph(x, y, w, h, xoff, yoff);
+    }
+
+    private void grow() {
+        int newHeight = height * 2;
+        pixels = memRealloc(pixels, WIDTH * newHeight);
+        memSet(memAddress(pixels) + (long) WIDTH * height, 0, (long) WIDTH * (newHeight - height));
+        height = newHeight;
+
+        // Texture needs to be reallocated entirely
+        dirtyFrom = 0;
+        dirtyTo = height;
+        version++;
+    }
+
+    @Override
+    public void dispose() {
+        memFree(pixels);
+    }
+
+    /**
+     * A glyph in the atlas. Positions are in atlas pixels, offsets are in pixels at the base size, relative to the
+     * glyph origin, with Y pointing down.
+     */
+    public static final class Glyph {
+        public final int x;
+        public final int y;
+        public final int width;
+        public final int height;
+        public final int xoff;
+        public final int yoff;
+
+        Glyph(int x, int y, int width, int height, int xoff, int yoff) {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+            this.xoff = xoff;
+            this.yoff = yoff;
+        }
+
+        public boolean isEmpty() {
+            return width == 0 || height == 0;
+        }
+    }
+}
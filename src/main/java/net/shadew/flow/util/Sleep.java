@@ -0,0 +1,62 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shadew.flow.util;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Accurate sleeping for frame pacing. {@link Thread#sleep} tends to overshoot by a millisecond or more depending on the
+ * platform timer resolution, which is a large share of a frame at 60 fps. The methods in this class park the thread for
+ * the bulk of the wait and then spin for the last stretch, so they wake up very close to the requested deadline.
+ */
+public final class Sleep {
+    private static final long SPIN_NANOS = 1500000L;
+
+    private Sleep() {
+    }
+
+    /**
+     * Sleeps until {@link System#nanoTime} reaches the given deadline. Returns immediately when the deadline has
+     * already passed or when the thread is interrupted, in which case the interrupt flag remains set.
+     *
+     * @param deadline The deadline, in terms of {@link System#nanoTime}
+     */
+    public static void until(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > SPIN_NANOS) {
+            LockSupport.parkNanos(remaining - SPIN_NANOS);
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+        }
+        while (deadline - System.nanoTime() > 0) {
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Sleeps for the given amount of nanoseconds.
+     *
+     * @param nanos The amount of nanoseconds to sleep
+     * @see #until
+     */
+    public static void nanos(long nanos) {
+        if (nanos > 0) {
+            until(System.nanoTime() + nanos);
+        }
+    }
+}
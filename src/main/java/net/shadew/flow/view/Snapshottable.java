@@ -0,0 +1,36 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shadew.flow.view;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A {@link ViewLayer} whose animated state can be written to and restored from a binary snapshot. Layers implementing
+ * this are included in the snapshots of a {@link ViewStack}.
+ */
+public interface Snapshottable {
+    void writeState(DataOutput out) throws IOException;
+
+    /**
+     * Restores state previously written by {@link #writeState}.
+     *
+     * @throws IllegalArgumentException When the snapshot does not match the structure of this layer
+     */
+    void readState(DataInput in) throws IOException;
+}
@@ -16,14 +16,22 @@
 
 package net.shadew.flow.view;
 
+import java.io.*;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+
+import net.shadew.flow.profile.Phase;
+import net.shadew.flow.profile.Profiler;
 
 import static org.lwjgl.opengl.GL11.*;
 
 public class ViewStack {
     private boolean init;
     private final List<ViewLayer> layers = new ArrayList<>();
+    private final Map<ViewLayer, Phase> layerPhases = new IdentityHashMap<>();
+    private Profiler profiler;
 
     public int layerCount() {
         return layers.size();
@@ -62,12 +70,87 @@ public class ViewStack {
         }
     }
 
+    /**
+     * Sets the profiler to time the rendering of each layer with. Each layer gets its own phase, named after its index
+     * and class.
+     */
+    public void setProfiler(Profiler profiler) {
+        this.profiler = profiler;
+        layerPhases.clear();
+    }
+
+    private Phase layerPhase(int index, ViewLayer layer) {
+        Phase phase = layerPhases.get(layer);
+        if (phase == null) {
+            phase = profiler.phase(Profiler.RENDER + "[" + index + "] " + layer.getClass().getSimpleName());
+            layerPhases.put(layer, phase);
+        }
+        return phase;
+    }
+
     public void render(Viewport vp, double time) {
-        for (ViewLayer layer : layers) {
+        for (int i = 0, s = layers.size(); i < s; i++) {
+            ViewLayer layer = layers.get(i);
+            Phase phase = profiler == null ? null : layerPhase(i, layer);
+            if (phase != null) phase.start();
+
             // Clear depth and stencil buffers so next layer is not accidentally clipped by them
             glClear(GL_DEPTH_BUFFER_BIT | GL_STENCIL_BUFFER_BIT);
 
             layer.render(vp, time);
+
+            if (phase != null) phase.stop();
+        }
+    }
+
+    /**
+     * Takes a snapshot of the state of all layers that are {@link Snapshottable}.
+     */
+    public byte[] snapshot() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            ByteArrayOutputStream layerBytes = new ByteArrayOutputStream();
+            for (int i = 0, s = layers.size(); i < s; i++) {
+                ViewLayer layer = layers.get(i);
+                if (layer instanceof Snapshottable) {
+                    layerBytes.reset();
+                    try (DataOutputStream layerOut = new DataOutputStream(layerBytes)) {
+                        ((Snapshottable) layer).writeState(layerOut);
+                    }
+                    out.writeInt(i);
+                    out.writeInt(layerBytes.size());
+                    layerBytes.writeTo(out);
+                }
+            }
+            out.writeInt(-1);
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Restores a snapshot taken by {@link #snapshot()}. The layers must be the same as when the snapshot was taken.
+     *
+     * @throws IllegalArgumentException When the snapshot does not match the layers of this stack
+     */
+    public void restore(byte[] snapshot) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(snapshot))) {
+            int index;
+            while ((index = in.readInt()) >= 0) {
+                byte[] data = new byte[in.readInt()];
+                in.readFully(data);
+
+                ViewLayer layer = index < layers.size() ? layers.get(index) : null;
+                if (!(layer instanceof Snapshottable)) {
+                    throw new IllegalArgumentException("Snapshot does not match view stack: no snapshottable layer at " + index);
+                }
+                try (DataInputStream layerIn = new DataInputStream(new ByteArrayInputStream(data))) {
+                    ((Snapshottable) layer).readState(layerIn);
+                }
+            }
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
         }
     }
 
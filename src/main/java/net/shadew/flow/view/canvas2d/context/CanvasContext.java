@@ -71,6 +71,13 @@ public interface CanvasContext extends Disposable {
     CanvasContext globalCompositeBlendFunc(BlendFactor srcC, BlendFactor dstC, BlendFactor srcA, BlendFactor dstA);
     CanvasContext globalCompositeOperation(CompositeOperation op);
 
+    /**
+     * Limits drawing to the given rectangle, in local coordinates of the current transform, replacing the current
+     * scissor. The scissor is part of the {@linkplain #save() saved} state.
+     */
+    CanvasContext scissor(float x, float y, float w, float h);
+    CanvasContext resetScissor();
+
     Texture newTexture(NativeImage image, int flags);
 
     CanvasContext save();
@@ -131,4 +138,18 @@ public interface CanvasContext extends Disposable {
     CanvasContext glyph(int cp, float srcX, float srcY, float fontSize, Font font);
     CanvasContext glyph(char ch, float srcX, float srcY, float fontSize, Font font);
     CanvasContext text(String text, float srcX, float srcY, float fontSize, Font font);
+
+    /**
+     * Draws a glyph from a signed distance field atlas, filled and optionally outlined with the given colors. Unlike
+     * {@link #glyph}, this draws the glyph immediately. Contexts that do not support distance fields draw the glyph as
+     * a path, which replaces the current path and sets the fill color, stroke color and stroke width.
+     */
+    CanvasContext sdfGlyph(int cp, float srcX, float srcY, float fontSize, Font font, int fillArgb, int strokeArgb, float strokeWidth);
+
+    /**
+     * Draws all instances in the given list, each filled with its own color and all stroked with the same stroke.
+     * Contexts that support instancing draw the list in a single draw call, others draw each instance as a path, which
+     * replaces the current path and sets the fill color, stroke color and stroke width.
+     */
+    CanvasContext shapes(ShapeInstances instances, int strokeArgb, float strokeWidth);
 }
@@ -0,0 +1,1229 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.shadew.flow.view.canvas2d.context;
+
+import org.joml.*;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.shadew.flow.util.Font;
+import net.shadew.flow.util.NativeImage;
+import net.shadew.util.misc.ColorUtil;
+
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * A {@link CanvasContext} that records all calls into a compact off-heap command buffer, to be replayed into another
+ * context with {@link #replay}. A list can be recorded once and replayed as often as needed, and it can be recorded on
+ * any thread, as long as only one thread records it at a time and it is not replayed while being recorded.
+ * <p>
+ * Transforms are recorded relative to the transform of the target context at the time of replaying, so transform
+ * queries on a display list answer in the coordinate space of the list itself. Fonts, textures and strings are
+ * referenced, not copied. Shape instances are copied into the list. Textures can't be created by a display list.
+ */
+public final class DisplayList implements CanvasContext {
+    private static final int BEGIN_PATH = 0;
+    private static final int MOVE_TO = 1;
+    private static final int LINE_TO = 2;
+    private static final int QUAD_TO = 3;
+    private static final int CURVE_TO = 4;
+    private static final int ARC_TO = 5;
+    private static final int CLOSE_PATH = 6;
+    private static final int FILL = 7;
+    private static final int STROKE = 8;
+    private static final int FILL_COLOR = 9;
+    private static final int FILL_LINEAR_GRADIENT = 10;
+    private static final int FILL_RADIAL_GRADIENT = 11;
+    private static final int FILL_BOX_GRADIENT = 12;
+    private static final int FILL_TEXTURE = 13;
+    private static final int STROKE_COLOR = 14;
+    private static final int STROKE_LINEAR_GRADIENT = 15;
+    private static final int STROKE_RADIAL_GRADIENT = 16;
+    private static final int STROKE_BOX_GRADIENT = 17;
+    private static final int STROKE_TEXTURE = 18;
+    private static final int STROKE_WIDTH = 19;
+    private static final int LINE_CAP = 20;
+    private static final int LINE_JOIN = 21;
+    private static final int MITER_LIMIT = 22;
+    private static final int PATH_WINDING = 23;
+    private static final int GLOBAL_ALPHA = 24;
+    private static final int BLEND_FUNC = 25;
+    private static final int BLEND_FUNC_SEPARATE = 26;
+    private static final int COMPOSITE_OPERATION = 27;
+    private static final int SAVE = 28;
+    private static final int RESTORE = 29;
+    private static final int RESET = 30;
+    private static final int PUSH_TRANSFORM = 31;
+    private static final int POP_TRANSFORM = 32;
+    private static final int SET_TRANSFORM = 33;
+    private static final int TRANSFORM = 34;
+    private static final int TRANSLATE = 35;
+    private static final int ROTATE = 36;
+    private static final int SCALE = 37;
+    private static final int SKEW_X = 38;
+    private static final int SKEW_Y = 39;
+    private static final int ARC = 40;
+    private static final int CIRCLE = 41;
+    private static final int ELLIPSE = 42;
+    private static final int RECT = 43;
+    private static final int ROUNDED_RECT = 44;
+    private static final int ROUNDED_RECT_VARYING = 45;
+    private static final int GLYPH = 46;
+    private static final int TEXT = 47;
+    private static final int SDF_GLYPH = 48;
+    private static final int SHAPES = 49;
+    private static final int SCISSOR = 50;
+    private static final int RESET_SCISSOR = 51;
+
+    private static final LineCap[] LINE_CAPS = LineCap.values();
+    private static final LineJoin[] LINE_JOINS = LineJoin.values();
+    private static final Winding[] WINDINGS = Winding.values();
+    private static final BlendFactor[] BLEND_FACTORS = BlendFactor.values();
+    private static final CompositeOperation[] COMPOSITE_OPERATIONS = CompositeOperation.values();
+    private static final ShapeInstances.Kind[] SHAPE_KINDS = ShapeInstances.Kind.values();
+
+    private ByteBuffer buffer;
+    private long address;
+    private int size;
+    private final List<Object> refs = new ArrayList<>();
+
+    private final Matrix3x2fStack transform = new Matrix3x2fStack(256);
+    private final Matrix3x2f temp = new Matrix3x2f();
+
+    public DisplayList() {
+        this(1024);
+    }
+
+    public DisplayList(int initialCapacity) {
+        buffer = memAlloc(Math.max(initialCapacity, 64));
+        address = memAddress(buffer);
+    }
+
+    /**
+     * Returns the amount of bytes of recorded commands.
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all recorded commands and resets the transform, so the list can be recorded again.
+     */
+    public void clear() {
+        size = 0;
+        refs.clear();
+        transform.clear();
+    }
+
+    @Override
+    public void dispose() {
+        if (buffer != null) {
+            memFree(buffer);
+            buffer = null;
+            address = 0;
+            size = 0;
+            refs.clear();
+        }
+    }
+
+    private void begin(int op, int args) {
+        int required = size + 4 + args * 4;
+        if (required > buffer.capacity()) {
+            buffer = memRealloc(buffer, Math.max(buffer.capacity() * 2, required));
+            address = memAddress(buffer);
+        }
+        memPutInt(address + size, op);
+        size += 4;
+    }
+
+    private void f(float v) {
+        memPutFloat(address + size, v);
+        size += 4;
+    }
+
+    private void i(int v) {
+        memPutInt(address + size, v);
+        size += 4;
+    }
+
+    private void ref(Object o) {
+        i(refs.size());
+        refs.add(o);
+    }
+
+    private static int ordinal(Enum<?> e) {
+        return e == null ? -1 : e.ordinal();
+    }
+
+    private static <E> E value(E[] values, int ordinal) {
+        return ordinal < 0 ? null : values[ordinal];
+    }
+
+    /**
+     * Plays all recorded commands into the given context. Transforms are applied relative to the current transform of
+     * the given context. The state of the given context is not saved, so a list that leaves the state changed leaves
+     * the given context in that state.
+     */
+    public void replay(CanvasContext ctx) {
+        if (buffer == null) {
+            throw new IllegalStateException("Display list is disposed");
+        }
+
+        Matrix3x2f base = ctx.getTransform(new Matrix3x2f());
+        Matrix3x2f mat = new Matrix3x2f();
+        ShapeInstances[] shapes = new ShapeInstances[SHAPE_KINDS.length];
+
+        long p = address;
+        long end = address + size;
+        while (p < end) {
+            int op = memGetInt(p);
+            p += 4;
+            switch (op) {
+                case BEGIN_PATH:
+                    ctx.beginPath();
+                    break;
+                case MOVE_TO:
+                    ctx.moveTo(memGetFloat(p), memGetFloat(p + 4));
+                    p += 8;
+                    break;
+                case LINE_TO:
+                    ctx.lineTo(memGetFloat(p), memGetFloat(p + 4));
+                    p += 8;
+                    break;
+                case QUAD_TO:
+                    ctx.quadTo(memGetFloat(p), memGetFloat(p + 4), memGetFloat(p + 8), memGetFloat(p + 12));
+                    p += 16;
+                    break;
+                case CURVE_TO:
+                    ctx.curveTo(
+                        memGetFloat(p), memGetFloat(p + 4),
+                        memGetFloat(p + 8), memGetFloat(p + 12),
+                        memGetFloat(p + 16), memGetFloat(p + 20)
+                    );
+                    p += 24;
+                    break;
+                case ARC_TO:
+                    ctx.arcTo(memGetFloat(p), memGetFloat(p + 4), memGetFloat(p + 8), memGetFloat(p + 12), memGetFloat(p + 16));
+                    p += 20;
+                    break;
+                case CLOSE_PATH:
+                    ctx.closePath();
+                    break;
+                case FILL:
+                    ctx.fill();
+                    break;
+                case STROKE:
+                    ctx.stroke();
+                    break;
+                case FILL_COLOR:
+                    ctx.fillColor(memGetInt(p));
+                    p += 4;
+                    break;
+                case FILL_LINEAR_GRADIENT:
+                    ctx.fillLinearGradient(
+                        memGetInt(p), memGetFloat(p + 4), memGetFloat(p + 8),
+                        memGetInt(p + 12), memGetFloat(p + 16), memGetFloat(p + 20)
+                    );
+                    p += 24;
+                    break;
+                case FILL_RADIAL_GRADIENT:
+                    ctx.fillRadialGradient(
+                        memGetFloat(p), memGetFloat(p + 4),
+                        memGetInt(p + 8), memGetFloat(p + 12),
+                        memGetInt(p + 16), memGetFloat(p + 20)
+                    );
+                    p += 24;
+                    break;
+                case FILL_BOX_GRADIENT:
+                    ctx.fillBoxGradient(
+                        memGetFloat(p), memGetFloat(p + 4), memGetFloat(p + 8), memGetFloat(p + 12),
+                        memGetFloat(p + 16), memGetFloat(p + 20), memGetInt(p + 24), memGetInt(p + 28)
+                    );
+                    p += 32;
+                    break;
+                case FILL_TEXTURE:
+                    ctx.fillTexture(
+                        (Texture) refs.get(memGetInt(p)),
+                        memGetFloat(p + 4), memGetFloat(p + 8), memGetFloat(p + 12),
+                        memGetFloat(p + 16), memGetFloat(p + 20), memGetFloat(p + 24)
+                    );
+                    p += 28;
+                    break;
+                case STROKE_COLOR:
+                    ctx.strokeColor(memGetInt(p));
+                    p += 4;
+                    break;
+                case STROKE_LINEAR_GRADIENT:
+                    ctx.strokeLinearGradient(
+                        memGetInt(p), memGetFloat(p + 4), memGetFloat(p + 8),
+                        memGetInt(p + 12), memGetFloat(p + 16), memGetFloat(p + 20)
+                    );
+                    p += 24;
+                    break;
+                case STROKE_RADIAL_GRADIENT:
+                    ctx.strokeRadialGradient(
+                        memGetFloat(p), memGetFloat(p + 4),
+                        memGetInt(p + 8), memGetFloat(p + 12),
+                        memGetInt(p + 16), memGetFloat(p + 20)
+                    );
+                    p += 24;
+                    break;
+                case STROKE_BOX_GRADIENT:
+                    ctx.strokeBoxGradient(
+                        memGetFloat(p), memGetFloat(p + 4), memGetFloat(p + 8), memGetFloat(p + 12),
+                        memGetFloat(p + 16), memGetFloat(p + 20), memGetInt(p + 24), memGetInt(p + 28)
+                    );
+                    p += 32;
+                    break;
+                case STROKE_TEXTURE:
+                    ctx.strokeTexture(
+                        (Texture) refs.get(memGetInt(p)),
+                        memGetFloat(p + 4), memGetFloat(p + 8), memGetFloat(p + 12),
+                        memGetFloat(p + 16), memGetFloat(p + 20), memGetFloat(p + 24)
+                    );
+                    p += 28;
+                    break;
+                case STROKE_WIDTH:
+                    ctx.strokeWidth(memGetFloat(p));
+                    p += 4;
+                    break;
+                case LINE_CAP:
+                    ctx.lineCap(value(LINE_CAPS, memGetInt(p)));
+                    p += 4;
+                    break;
+                case LINE_JOIN:
+                    ctx.lineJoin(value(LINE_JOINS, memGetInt(p)));
+                    p += 4;
+                    break;
+                case MITER_LIMIT:
+                    ctx.miterLimit(memGetFloat(p));
+                    p += 4;
+                    break;
+                case PATH_WINDING:
+                    ctx.pathWinding(value(WINDINGS, memGetInt(p)));
+                    p += 4;
+                    break;
+                case GLOBAL_ALPHA:
+                    ctx.globalAlpha(memGetFloat(p));
+                    p += 4;
+                    break;
+                case BLEND_FUNC:
+                    ctx.globalCompositeBlendFunc(value(BLEND_FACTORS, memGetInt(p)), value(BLEND_FACTORS, memGetInt(p + 4)));
+                    p += 8;
+                    break;
+                case BLEND_FUNC_SEPARATE:
+                    ctx.globalCompositeBlendFunc(
+                        value(BLEND_FACTORS, memGetInt(p)), value(BLEND_FACTORS, memGetInt(p + 4)),
+                        value(BLEND_FACTORS, memGetInt(p + 8)), value(BLEND_FACTORS, memGetInt(p + 12))
+                    );
+                    p += 16;
+                    break;
+                case COMPOSITE_OPERATION:
+                    ctx.globalCompositeOperation(value(COMPOSITE_OPERATIONS, memGetInt(p)));
+                    p += 4;
+                    break;
+                case SCISSOR:
+                    ctx.scissor(memGetFloat(p), memGetFloat(p + 4), memGetFloat(p + 8), memGetFloat(p + 12));
+                    p += 16;
+                    break;
+                case RESET_SCISSOR:
+                    ctx.resetScissor();
+                    break;
+                case SAVE:
+                    ctx.save();
+                    break;
+                case RESTORE:
+                    ctx.restore();
+                    break;
+                case RESET:
+                    ctx.reset();
+                    ctx.setTransform(base);
+                    break;
+                case PUSH_TRANSFORM:
+                    ctx.pushTransform();
+                    break;
+                case POP_TRANSFORM:
+                    ctx.popTransform();
+                    break;
+                case SET_TRANSFORM:
+                    mat.set(
+                        memGetFloat(p), memGetFloat(p + 4),
+                        memGetFloat(p + 8), memGetFloat(p + 12),
+                        memGetFloat(p + 16), memGetFloat(p + 20)
+                    );
+                    ctx.setTransform(base.mul(mat, mat));
+                    p += 24;
+                    break;
+                case TRANSFORM:
+                    mat.set(
+                        memGetFloat(p), memGetFloat(p + 4),
+                        memGetFloat(p + 8), memGetFloat(p + 12),
+                        memGetFloat(p + 16), memGetFloat(p + 20)
+                    );
+                    ctx.transform(mat);
+                    p += 24;
+                    break;
+                case TRANSLATE:
+                    ctx.translate(memGetFloat(p), memGetFloat(p + 4));
+                    p += 8;
+                    break;
+                case ROTATE:
+                    ctx.rotate(memGetFloat(p));
+                    p += 4;
+                    break;
+                case SCALE:
+                    ctx.scale(memGetFloat(p), memGetFloat(p + 4));
+                    p += 8;
+                    break;
+                case SKEW_X:
+                    ctx.skewX(memGetFloat(p));
+                    p += 4;
+                    break;
+                case SKEW_Y:
+                    ctx.skewY(memGetFloat(p));
+                    p += 4;
+                    break;
+                case ARC:
+                    ctx.arc(
+                        memGetFloat(p), memGetFloat(p + 4), memGetFloat(p + 8),
+                        memGetFloat(p + 12), memGetFloat(p + 16), value(WINDINGS, memGetInt(p + 20))
+                    );
+                    p += 24;
+                    break;
+                case CIRCLE:
+                    ctx.circle(memGetFloat(p), memGetFloat(p + 4), memGetFloat(p + 8));
+                    p += 12;
+                    break;
+                case ELLIPSE:
+                    ctx.ellipse(memGetFloat(p), memGetFloat(p + 4), memGetFloat(p + 8), memGetFloat(p + 12));
+                    p += 16;
+                    break;
+                case RECT:
+                    ctx.rect(memGetFloat(p), memGetFloat(p + 4), memGetFloat(p + 8), memGetFloat(p + 12));
+                    p += 16;
+                    break;
+                case ROUNDED_RECT:
+                    ctx.roundedRect(memGetFloat(p), memGetFloat(p + 4), memGetFloat(p + 8), memGetFloat(p + 12), memGetFloat(p + 16));
+                    p += 20;
+                    break;
+                case ROUNDED_RECT_VARYING:
+                    ctx.roundedRect(
+                        memGetFloat(p), memGetFloat(p + 4), memGetFloat(p + 8), memGetFloat(p + 12),
+                        memGetFloat(p + 16), memGetFloat(p + 20), memGetFloat(p + 24), memGetFloat(p + 28)
+                    );
+                    p += 32;
+                    break;
+                case GLYPH:
+                    ctx.glyph(memGetInt(p), memGetFloat(p + 4), memGetFloat(p + 8), memGetFloat(p + 12), (Font) refs.get(memGetInt(p + 16)));
+                    p += 20;
+                    break;
+                case TEXT:
+                    ctx.text(
+                        (String) refs.get(memGetInt(p)),
+                        memGetFloat(p + 4), memGetFloat(p + 8), memGetFloat(p + 12),
+                        (Font) refs.get(memGetInt(p + 16))
+                    );
+                    p += 20;
+                    break;
+                case SDF_GLYPH:
+                    ctx.sdfGlyph(
+                        memGetInt(p), memGetFloat(p + 4), memGetFloat(p + 8), memGetFloat(p + 12),
+                        (Font) refs.get(memGetInt(p + 16)), memGetInt(p + 20), memGetInt(p + 24), memGetFloat(p + 28)
+                    );
+                    p += 32;
+                    break;
+                case SHAPES: {
+                    int kind = memGetInt(p);
+                    int count = memGetInt(p + 4);
+                    int strokeArgb = memGetInt(p + 8);
+                    float strokeWidth = memGetFloat(p + 12);
+                    p += 16;
+
+                    ShapeInstances instances = shapes[kind];
+                    if (instances == null) {
+                        instances = shapes[kind] = new ShapeInstances(SHAPE_KINDS[kind]);
+                    }
+                    instances.clear();
+                    for (int i = 0; i < count; i++) {
+                        instances.add(
+                            memGetFloat(p), memGetFloat(p + 4), memGetFloat(p + 8), memGetFloat(p + 12),
+                            memGetFloat(p + 16), memGetInt(p + 20)
+                        );
+                        p += 24;
+                    }
+                    ctx.shapes(instances, strokeArgb, strokeWidth);
+                    break;
+                }
+                default:
+                    throw new IllegalStateException("Corrupt display list: unknown command " + op);
+            }
+        }
+    }
+
+    /**
+     * Clears this list, so that recording a frame replaces the previous one. The frame size is not recorded.
+     */
+    @Override
+    public void beginFrame(float width, float height, float pixelRatio) {
+        clear();
+    }
+
+    @Override
+    public void endFrame() {
+    }
+
+    @Override
+    public CanvasContext beginPath() {
+        begin(BEGIN_PATH, 0);
+        return this;
+    }
+
+    @Override
+    public CanvasContext moveTo(float x, float y) {
+        begin(MOVE_TO, 2);
+        f(x);
+        f(y);
+        return this;
+    }
+
+    @Override
+    public CanvasContext moveTo(Vector2fc v) {
+        return moveTo(v.x(), v.y());
+    }
+
+    @Override
+    public CanvasContext lineTo(float x, float y) {
+        begin(LINE_TO, 2);
+        f(x);
+        f(y);
+        return this;
+    }
+
+    @Override
+    public CanvasContext lineTo(Vector2fc v) {
+        return lineTo(v.x(), v.y());
+    }
+
+    @Override
+    public CanvasContext quadTo(float cx, float cy, float x, float y) {
+        begin(QUAD_TO, 4);
+        f(cx);
+        f(cy);
+        f(x);
+        f(y);
+        return this;
+    }
+
+    @Override
+    public CanvasContext quadTo(Vector2fc c, Vector2fc v) {
+        return quadTo(c.x(), c.y(), v.x(), v.y());
+    }
+
+    @Override
+    public CanvasContext curveTo(float cx1, float cy1, float cx2, float cy2, float x, float y) {
+        begin(CURVE_TO, 6);
+        f(cx1);
+        f(cy1);
+        f(cx2);
+        f(cy2);
+        f(x);
+        f(y);
+        return this;
+    }
+
+    @Override
+    public CanvasContext curveTo(Vector2fc c1, Vector2fc c2, Vector2fc v) {
+        return curveTo(c1.x(), c1.y(), c2.x(), c2.y(), v.x(), v.y());
+    }
+
+    @Override
+    public CanvasContext arcTo(float x1, float y1, float x2, float y2, float radius) {
+        begin(ARC_TO, 5);
+        f(x1);
+        f(y1);
+        f(x2);
+        f(y2);
+        f(radius);
+        return this;
+    }
+
+    @Override
+    public CanvasContext arcTo(Vector2fc p1, Vector2fc p2, float radius) {
+        return arcTo(p1.x(), p1.y(), p2.x(), p2.y(), radius);
+    }
+
+    @Override
+    public CanvasContext closePath() {
+        begin(CLOSE_PATH, 0);
+        return this;
+    }
+
+    @Override
+    public void fill() {
+        begin(FILL, 0);
+    }
+
+    @Override
+    public void stroke() {
+        begin(STROKE, 0);
+    }
+
+    @Override
+    public CanvasContext fillColor(int argb) {
+        begin(FILL_COLOR, 1);
+        i(argb);
+        return this;
+    }
+
+    @Override
+    public CanvasContext fillColor(float r, float g, float b, float a) {
+        return fillColor(ColorUtil.rgba(r, g, b, a));
+    }
+
+    @Override
+    public CanvasContext fillLinearGradient(int sargb, float sx, float sy, int eargb, float ex, float ey) {
+        begin(FILL_LINEAR_GRADIENT, 6);
+        i(sargb);
+        f(sx);
+        f(sy);
+        i(eargb);
+        f(ex);
+        f(ey);
+        return this;
+    }
+
+    @Override
+    public CanvasContext fillRadialGradient(float cx, float cy, int iargb, float ir, int oargb, float or) {
+        begin(FILL_RADIAL_GRADIENT, 6);
+        f(cx);
+        f(cy);
+        i(iargb);
+        f(ir);
+        i(oargb);
+        f(or);
+        return this;
+    }
+
+    @Override
+    public CanvasContext fillBoxGradient(float x, float y, float w, float h, float r, float f, int iargb, int oargb) {
+        begin(FILL_BOX_GRADIENT, 8);
+        f(x);
+        f(y);
+        f(w);
+        f(h);
+        f(r);
+        f(f);
+        i(iargb);
+        i(oargb);
+        return this;
+    }
+
+    @Override
+    public CanvasContext fillTexture(Texture texture, float ox, float oy, float w, float h, float angle, float alpha) {
+        if (texture == null) {
+            throw new NullPointerException();
+        }
+        begin(FILL_TEXTURE, 7);
+        ref(texture);
+        f(ox);
+        f(oy);
+        f(w);
+        f(h);
+        f(angle);
+        f(alpha);
+        return this;
+    }
+
+    @Override
+    public CanvasContext strokeColor(int argb) {
+        begin(STROKE_COLOR, 1);
+        i(argb);
+        return this;
+    }
+
+    @Override
+    public CanvasContext strokeColor(float r, float g, float b, float a) {
+        return strokeColor(ColorUtil.rgba(r, g, b, a));
+    }
+
+    @Override
+    public CanvasContext strokeLinearGradient(int sargb, float sx, float sy, int eargb, float ex, float ey) {
+        begin(STROKE_LINEAR_GRADIENT, 6);
+        i(sargb);
+        f(sx);
+        f(sy);
+        i(eargb);
+        f(ex);
+        f(ey);
+        return this;
+    }
+
+    @Override
+    public CanvasContext strokeRadialGradient(float cx, float cy, int iargb, float ir, int oargb, float or) {
+        begin(STROKE_RADIAL_GRADIENT, 6);
+        f(cx);
+        f(cy);
+        i(iargb);
+        f(ir);
+        i(oargb);
+        f(or);
+        return this;
+    }
+
+    @Override
+    public CanvasContext strokeBoxGradient(float x, float y, float w, float h, float r, float f, int iargb, int oargb) {
+        begin(STROKE_BOX_GRADIENT, 8);
+        f(x);
+        f(y);
+        f(w);
+        f(h);
+        f(r);
+        f(f);
+        i(iargb);
+        i(oargb);
+        return this;
+    }
+
+    @Override
+    public CanvasContext strokeTexture(Texture texture, float ox, float oy, float w, float h, float angle, float alpha) {
+        if (texture == null) {
+            throw new NullPointerException();
+        }
+        begin(STROKE_TEXTURE, 7);
+        ref(texture);
+        f(ox);
+        f(oy);
+        f(w);
+        f(h);
+        f(angle);
+        f(alpha);
+        return this;
+    }
+
+    @Override
+    public CanvasContext strokeWidth(float width) {
+        begin(STROKE_WIDTH, 1);
+        f(width);
+        return this;
+    }
+
+    @Override
+    public CanvasContext lineCap(LineCap cap) {
+        begin(LINE_CAP, 1);
+        i(ordinal(cap));
+        return this;
+    }
+
+    @Override
+    public CanvasContext lineJoin(LineJoin join) {
+        begin(LINE_JOIN, 1);
+        i(ordinal(join));
+        return this;
+    }
+
+    @Override
+    public CanvasContext miterLimit(float lim) {
+        begin(MITER_LIMIT, 1);
+        f(lim);
+        return this;
+    }
+
+    @Override
+    public CanvasContext pathWinding(Winding winding) {
+        begin(PATH_WINDING, 1);
+        i(ordinal(winding));
+        return this;
+    }
+
+    @Override
+    public CanvasContext globalAlpha(float alpha) {
+        begin(GLOBAL_ALPHA, 1);
+        f(alpha);
+        return this;
+    }
+
+    @Override
+    public CanvasContext globalCompositeBlendFunc(BlendFactor src, BlendFactor dst) {
+        begin(BLEND_FUNC, 2);
+        i(ordinal(src));
+        i(ordinal(dst));
+        return this;
+    }
+
+    @Override
+    public CanvasContext globalCompositeBlendFunc(BlendFactor srcC, BlendFactor dstC, BlendFactor srcA, BlendFactor dstA) {
+        begin(BLEND_FUNC_SEPARATE, 4);
+        i(ordinal(srcC));
+        i(ordinal(dstC));
+        i(ordinal(srcA));
+        i(ordinal(dstA));
+        return this;
+    }
+
+    @Override
+    public CanvasContext globalCompositeOperation(CompositeOperation op) {
+        begin(COMPOSITE_OPERATION, 1);
+        i(ordinal(op));
+        return this;
+    }
+
+    @Override
+    public CanvasContext scissor(float x, float y, float w, float h) {
+        begin(SCISSOR, 4);
+        f(x);
+        f(y);
+        f(w);
+        f(h);
+        return this;
+    }
+
+    @Override
+    public CanvasContext resetScissor() {
+        begin(RESET_SCISSOR, 0);
+        return this;
+    }
+
+    @Override
+    public Texture newTexture(NativeImage image, int flags) {
+        throw new UnsupportedOperationException("Textures must be created by the context that draws them");
+    }
+
+    @Override
+    public CanvasContext save() {
+        transform.pushMatrix();
+        begin(SAVE, 0);
+        return this;
+    }
+
+    @Override
+    public CanvasContext restore() {
+        transform.popMatrix();
+        begin(RESTORE, 0);
+        return this;
+    }
+
+    @Override
+    public CanvasContext reset() {
+        transform.identity();
+        begin(RESET, 0);
+        return this;
+    }
+
+    @Override
+    public CanvasContext pushTransform() {
+        transform.pushMatrix();
+        begin(PUSH_TRANSFORM, 0);
+        return this;
+    }
+
+    @Override
+    public CanvasContext popTransform() {
+        transform.popMatrix();
+        begin(POP_TRANSFORM, 0);
+        return this;
+    }
+
+    @Override
+    public CanvasContext setIdentity() {
+        return setTransform(1, 0, 0, 0, 1, 0);
+    }
+
+    @Override
+    public CanvasContext setTransform(float m00, float m10, float m20, float m01, float m11, float m21) {
+        transform.set(m00, m01, m10, m11, m20, m21);
+        begin(SET_TRANSFORM, 6);
+        f(m00);
+        f(m01);
+        f(m10);
+        f(m11);
+        f(m20);
+        f(m21);
+        return this;
+    }
+
+    @Override
+    public CanvasContext setTransform(Matrix3x2fc mat) {
+        return setTransform(mat.m00(), mat.m10(), mat.m20(), mat.m01(), mat.m11(), mat.m21());
+    }
+
+    @Override
+    public CanvasContext transform(float m00, float m10, float m20, float m01, float m11, float m21) {
+        transform.mul(temp.set(m00, m01, m10, m11, m20, m21));
+        begin(TRANSFORM, 6);
+        f(m00);
+        f(m01);
+        f(m10);
+        f(m11);
+        f(m20);
+        f(m21);
+        return this;
+    }
+
+    @Override
+    public CanvasContext transform(Matrix3x2fc mat) {
+        return transform(mat.m00(), mat.m10(), mat.m20(), mat.m01(), mat.m11(), mat.m21());
+    }
+
+    @Override
+    public CanvasContext translate(float x, float y) {
+        transform.translate(x, y);
+        begin(TRANSLATE, 2);
+        f(x);
+        f(y);
+        return this;
+    }
+
+    @Override
+    public CanvasContext translate(Vector2fc v) {
+        return translate(v.x(), v.y());
+    }
+
+    @Override
+    public CanvasContext rotate(float angle) {
+        transform.rotate(angle);
+        begin(ROTATE, 1);
+        f(angle);
+        return this;
+    }
+
+    @Override
+    public CanvasContext rotateDegrees(float angle) {
+        return rotate((float) Math.toRadians(angle));
+    }
+
+    @Override
+    public CanvasContext scale(float s) {
+        return scale(s, s);
+    }
+
+    @Override
+    public CanvasContext scale(float x, float y) {
+        transform.scale(x, y);
+        begin(SCALE, 2);
+        f(x);
+        f(y);
+        return this;
+    }
+
+    @Override
+    public CanvasContext scale(Vector2fc v) {
+        return scale(v.x(), v.y());
+    }
+
+    @Override
+    public CanvasContext mirrorX() {
+        return scale(-1, 1);
+    }
+
+    @Override
+    public CanvasContext mirrorY() {
+        return scale(1, -1);
+    }
+
+    @Override
+    public CanvasContext skewX(float angle) {
+        transform.mul(temp.set(1, 0, (float) Math.tan(angle), 1, 0, 0));
+        begin(SKEW_X, 1);
+        f(angle);
+        return this;
+    }
+
+    @Override
+    public CanvasContext skewXDegrees(float angle) {
+        return skewX((float) Math.toRadians(angle));
+    }
+
+    @Override
+    public CanvasContext skewY(float angle) {
+        transform.mul(temp.set(1, (float) Math.tan(angle), 0, 1, 0, 0));
+        begin(SKEW_Y, 1);
+        f(angle);
+        return this;
+    }
+
+    @Override
+    public CanvasContext skewYDegrees(float angle) {
+        return skewY((float) Math.toRadians(angle));
+    }
+
+    @Override
+    public Matrix3x2f getTransform() {
+        return getTransform(new Matrix3x2f());
+    }
+
+    @Override
+    public Matrix3x2f getTransform(Matrix3x2f mat) {
+        if (mat == null) {
+            mat = new Matrix3x2f();
+        }
+        return mat.set(transform);
+    }
+
+    @Override
+    public Vector2f transformPoint(float x, float y) {
+        return transformPoint(x, y, new Vector2f());
+    }
+
+    @Override
+    public Vector2f transformPoint(float x, float y, Vector2f out) {
+        if (out == null) {
+            out = new Vector2f();
+        }
+        return transform.transformPosition(out.set(x, y));
+    }
+
+    @Override
+    public Vector2f transformPoint(Vector2fc in) {
+        return transformPoint(in.x(), in.y(), new Vector2f());
+    }
+
+    @Override
+    public Vector2f transformPoint(Vector2fc in, Vector2f out) {
+        return transformPoint(in.x(), in.y(), out);
+    }
+
+    @Override
+    public Vector2f transformPointInverse(float x, float y) {
+        return transformPointInverse(x, y, new Vector2f());
+    }
+
+    @Override
+    public Vector2f transformPointInverse(float x, float y, Vector2f out) {
+        if (out == null) {
+            out = new Vector2f();
+        }
+        return transform.invert(temp).transformPosition(out.set(x, y));
+    }
+
+    @Override
+    public Vector2f transformPointInverse(Vector2fc in) {
+        return transformPointInverse(in.x(), in.y(), new Vector2f());
+    }
+
+    @Override
+    public Vector2f transformPointInverse(Vector2fc in, Vector2f out) {
+        return transformPointInverse(in.x(), in.y(), out);
+    }
+
+    @Override
+    public CanvasContext line(float x1, float y1, float x2, float y2) {
+        moveTo(x1, y1);
+        return lineTo(x2, y2);
+    }
+
+    @Override
+    public CanvasContext line(Vector2fc v1, Vector2fc v2) {
+        return line(v1.x(), v1.y(), v2.x(), v2.y());
+    }
+
+    @Override
+    public CanvasContext arc(float cx, float cy, float radius, float angle1, float angle2, Winding winding) {
+        begin(ARC, 6);
+        f(cx);
+        f(cy);
+        f(radius);
+        f(angle1);
+        f(angle2);
+        i(ordinal(winding));
+        return this;
+    }
+
+    @Override
+    public CanvasContext arc(Vector2fc center, float radius, float angle1, float angle2, Winding winding) {
+        return arc(center.x(), center.y(), radius, angle1, angle2, winding);
+    }
+
+    @Override
+    public CanvasContext arcDegrees(float cx, float cy, float radius, float angle1, float angle2, Winding winding) {
+        return arc(cx, cy, radius, (float) Math.toRadians(angle1), (float) Math.toRadians(angle2), winding);
+    }
+
+    @Override
+    public CanvasContext arcDegrees(Vector2fc center, float radius, float angle1, float angle2, Winding winding) {
+        return arcDegrees(center.x(), center.y(), radius, angle1, angle2, winding);
+    }
+
+    @Override
+    public CanvasContext circle(float cx, float cy, float radius) {
+        begin(CIRCLE, 3);
+        f(cx);
+        f(cy);
+        f(radius);
+        return this;
+    }
+
+    @Override
+    public CanvasContext circle(Vector2fc center, float radius) {
+        return circle(center.x(), center.y(), radius);
+    }
+
+    @Override
+    public CanvasContext ellipse(float cx, float cy, float rx, float ry) {
+        begin(ELLIPSE, 4);
+        f(cx);
+        f(cy);
+        f(rx);
+        f(ry);
+        return this;
+    }
+
+    @Override
+    public CanvasContext ellipse(Vector2fc center, float rx, float ry) {
+        return ellipse(center.x(), center.y(), rx, ry);
+    }
+
+    @Override
+    public CanvasContext ellipse(Vector2fc center, Vector2fc radius) {
+        return ellipse(center.x(), center.y(), radius.x(), radius.y());
+    }
+
+    @Override
+    public CanvasContext rect(float x, float y, float w, float h) {
+        begin(RECT, 4);
+        f(x);
+        f(y);
+        f(w);
+        f(h);
+        return this;
+    }
+
+    @Override
+    public CanvasContext rect(Vector2fc pos, float w, float h) {
+        return rect(pos.x(), pos.y(), w, h);
+    }
+
+    @Override
+    public CanvasContext rect(Vector2fc pos, Vector2fc size) {
+        return rect(pos.x(), pos.y(), size.x(), size.y());
+    }
+
+    @Override
+    public CanvasContext roundedRect(float x, float y, float w, float h, float r) {
+        begin(ROUNDED_RECT, 5);
+        f(x);
+        f(y);
+        f(w);
+        f(h);
+        f(r);
+        return this;
+    }
+
+    @Override
+    public CanvasContext roundedRect(Vector2fc pos, float w, float h, float r) {
+        return roundedRect(pos.x(), pos.y(), w, h, r);
+    }
+
+    @Override
+    public CanvasContext roundedRect(Vector2fc pos, Vector2fc size, float r) {
+        return roundedRect(pos.x(), pos.y(), size.x(), size.y(), r);
+    }
+
+    @Override
+    public CanvasContext roundedRect(float x, float y, float w, float h, float rtl, float rtr, float rbr, float rbl) {
+        begin(ROUNDED_RECT_VARYING, 8);
+        f(x);
+        f(y);
+        f(w);
+        f(h);
+        f(rtl);
+        f(rtr);
+        f(rbr);
+        f(rbl);
+        return this;
+    }
+
+    @Override
+    public CanvasContext roundedRect(Vector2fc pos, float w, float h, float rtl, float rtr, float rbr, float rbl) {
+        return roundedRect(pos.x(), pos.y(), w, h, rtl, rtr, rbr, rbl);
+    }
+
+    @Override
+    public CanvasContext roundedRect(Vector2fc pos, Vector2fc size, float rtl, float rtr, float rbr, float rbl) {
+        return roundedRect(pos.x(), pos.y(), size.x(), size.y(), rtl, rtr, rbr, rbl);
+    }
+
+    @Override
+    public CanvasContext glyph(int cp, float srcX, float srcY, float fontSize, Font font) {
+        begin(GLYPH, 5);
+        i(cp);
+        f(srcX);
+        f(srcY);
+        f(fontSize);
+        ref(font);
+        return this;
+    }
+
+    @Override
+    public CanvasContext glyph(char ch, float srcX, float srcY, float fontSize, Font font) {
+        return glyph((int) ch, srcX, srcY, fontSize, font);
+    }
+
+    @Override
+    public CanvasContext text(String text, float srcX, float srcY, float fontSize, Font font) {
+        begin(TEXT, 5);
+        ref(text);
+        f(srcX);
+        f(srcY);
+        f(fontSize);
+        ref(font);
+        return this;
+    }
+
+    @Override
+    public CanvasContext sdfGlyph(int cp, float srcX, float srcY, float fontSize, Font font, int fillArgb, int strokeArgb, float strokeWidth) {
+        begin(SDF_GLYPH, 8);
+        i(cp);
+        f(srcX);
+        f(srcY);
+        f(fontSize);
+        ref(font);
+        i(fillArgb);
+        i(strokeArgb);
+        f(strokeWidth);
+        return this;
+    }
+
+    @Override
+    public CanvasContext shapes(ShapeInstances instances, int strokeArgb, float strokeWidth) {
+        int count = instances.size();
+        begin(SHAPES, 4 + count * 6);
+        i(instances.getKind().ordinal());
+        i(count);
+        i(strokeArgb);
+        f(strokeWidth);
+
+        float[] geometry = instances.geometry();
+        int[] colors = instances.colors();
+        for (int n = 0; n < count; n++) {
+            int g = n * ShapeInstances.STRIDE;
+            f(geometry[g]);
+            f(geometry[g + 1]);
+            f(geometry[g + 2]);
+            f(geometry[g + 3]);
+            f(geometry[g + 4]);
+            i(colors[n]);
+        }
+        return this;
+    }
+}
@@ -0,0 +1,512 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.shadew.flow.view.canvas2d.context;
+
+import org.joml.Matrix3x2fc;
+import org.lwjgl.nanovg.NVGColor;
+
+import java.util.Arrays;
+
+import net.shadew.flow.util.Colors;
+
+import static org.lwjgl.nanovg.NanoVG.*;
+
+/**
+ * Collects the current path in Java and queues solid color fills and strokes, so that draws with the same paint can be
+ * submitted to NanoVG as one path. A draw joins an earlier group of the same paint only when it does not overlap any
+ * draw queued after that group, so the painter's order of overlapping draws is kept. Within a group, draws may only
+ * overlap when their color is opaque and their paths have no explicit winding, since NanoVG fills a merged path with
+ * the non-zero rule and a translucent color would be blended only once where draws overlap.
+ */
+final class DrawBatcher {
+    static final int MOVE_TO = 0;
+    static final int LINE_TO = 1;
+    static final int QUAD_TO = 2;
+    static final int BEZIER_TO = 3;
+    static final int ARC_TO = 4;
+    static final int CLOSE_PATH = 5;
+    static final int PATH_WINDING = 6;
+    static final int ARC = 7;
+    static final int CIRCLE = 8;
+    static final int ELLIPSE = 9;
+    static final int RECT = 10;
+    static final int ROUNDED_RECT = 11;
+    static final int ROUNDED_RECT_VARYING = 12;
+
+    private static final int[] ARGS = {2, 2, 4, 6, 5, 0, 1, 6, 3, 4, 4, 5, 8};
+
+    private static final int MAX_DRAWS = 1024;
+    private static final int MAX_LOOKBACK = 8;
+
+    private final long nvg;
+    private final NVGColor color;
+
+    // Current path
+    private int[] pathOps = new int[64];
+    private float[] pathArgs = new float[256];
+    private int pathOpCount;
+    private int pathArgCount;
+    private boolean pathWinding;
+    private float minX, minY, maxX, maxY;
+
+    // Queue
+    private int[] ops = new int[1024];
+    private float[] args = new float[4096];
+    private int opCount;
+    private int argCount;
+    private Draw[] draws = new Draw[64];
+    private int drawCount;
+    private Group[] groups = new Group[16];
+    private int groupCount;
+
+    DrawBatcher(long nvg, NVGColor color) {
+        this.nvg = nvg;
+        this.color = color;
+    }
+
+    void beginPath() {
+        pathOpCount = 0;
+        pathArgCount = 0;
+        pathWinding = false;
+        minX = minY = Float.POSITIVE_INFINITY;
+        maxX = maxY = Float.NEGATIVE_INFINITY;
+    }
+
+    boolean hasPath() {
+        return pathOpCount != 0;
+    }
+
+    private void op(int op) {
+        if (pathOpCount == pathOps.length) {
+            pathOps = Arrays.copyOf(pathOps, pathOpCount * 2);
+        }
+        if (pathArgCount + 8 > pathArgs.length) {
+            pathArgs = Arrays.copyOf(pathArgs, pathArgs.length * 2);
+        }
+        pathOps[pathOpCount++] = op;
+    }
+
+    private void arg(float v) {
+        pathArgs[pathArgCount++] = v;
+    }
+
+    private void include(float x, float y) {
+        if (x < minX) minX = x;
+        if (x > maxX) maxX = x;
+        if (y < minY) minY = y;
+        if (y > maxY) maxY = y;
+    }
+
+    private void include(float x, float y, float rx, float ry) {
+        include(x - rx, y - ry);
+        include(x + rx, y + ry);
+    }
+
+    void moveTo(float x, float y) {
+        op(MOVE_TO);
+        arg(x);
+        arg(y);
+        include(x, y);
+    }
+
+    void lineTo(float x, float y) {
+        op(LINE_TO);
+        arg(x);
+        arg(y);
+        include(x, y);
+    }
+
+    void quadTo(float cx, float cy, float x, float y) {
+        op(QUAD_TO);
+        arg(cx);
+        arg(cy);
+        arg(x);
+        arg(y);
+        include(cx, cy);
+        include(x, y);
+    }
+
+    void bezierTo(float cx1, float cy1, float cx2, float cy2, float x, float y) {
+        op(BEZIER_TO);
+        arg(cx1);
+        arg(cy1);
+        arg(cx2);
+        arg(cy2);
+        arg(x);
+        arg(y);
+        include(cx1, cy1);
+        include(cx2, cy2);
+        include(x, y);
+    }
+
+    void arcTo(float x1, float y1, float x2, float y2, float radius) {
+        op(ARC_TO);
+        arg(x1);
+        arg(y1);
+        arg(x2);
+        arg(y2);
+        arg(radius);
+        // The arc lies within the triangle of the previous point and both given points
+        include(x1, y1);
+        include(x2, y2);
+    }
+
+    void closePath() {
+        op(CLOSE_PATH);
+    }
+
+    void pathWinding(int dir) {
+        op(PATH_WINDING);
+        arg(dir);
+        pathWinding = true;
+    }
+
+    void arc(float cx, float cy, float r, float a0, float a1, int dir) {
+        op(ARC);
+        arg(cx);
+        arg(cy);
+        arg(r);
+        arg(a0);
+        arg(a1);
+        arg(dir);
+        include(cx, cy, r, r);
+    }
+
+    void circle(float cx, float cy, float r) {
+        op(CIRCLE);
+        arg(cx);
+        arg(cy);
+        arg(r);
+        include(cx, cy, r, r);
+    }
+
+    void ellipse(float cx, float cy, float rx, float ry) {
+        op(ELLIPSE);
+        arg(cx);
+        arg(cy);
+        arg(rx);
+        arg(ry);
+        include(cx, cy, rx, ry);
+    }
+
+    void rect(float x, float y, float w, float h) {
+        op(RECT);
+        arg(x);
+        arg(y);
+        arg(w);
+        arg(h);
+        include(x, y);
+        include(x + w, y + h);
+    }
+
+    void roundedRect(float x, float y, float w, float h, float r) {
+        op(ROUNDED_RECT);
+        arg(x);
+        arg(y);
+        arg(w);
+        arg(h);
+        arg(r);
+        include(x, y);
+        include(x + w, y + h);
+    }
+
+    void roundedRect(float x, float y, float w, float h, float rtl, float rtr, float rbr, float rbl) {
+        op(ROUNDED_RECT_VARYING);
+        arg(x);
+        arg(y);
+        arg(w);
+        arg(h);
+        arg(rtl);
+        arg(rtr);
+        arg(rbr);
+        arg(rbl);
+        include(x, y);
+        include(x + w, y + h);
+    }
+
+    /**
+     * Submits the current path to NanoVG, appending it to NanoVG's current path.
+     */
+    void replayPath() {
+        replay(pathOps, 0, pathOpCount, pathArgs, 0);
+    }
+
+    private void replay(int[] ops, int from, int to, float[] a, int i) {
+        for (int o = from; o < to; o++) {
+            switch (ops[o]) {
+                case MOVE_TO: nvgMoveTo(nvg, a[i], a[i + 1]); break;
+                case LINE_TO: nvgLineTo(nvg, a[i], a[i + 1]); break;
+                case QUAD_TO: nvgQuadTo(nvg, a[i], a[i + 1], a[i + 2], a[i + 3]); break;
+                case BEZIER_TO: nvgBezierTo(nvg, a[i], a[i + 1], a[i + 2], a[i + 3], a[i + 4], a[i + 5]); break;
+                case ARC_TO: nvgArcTo(nvg, a[i], a[i + 1], a[i + 2], a[i + 3], a[i + 4]); break;
+                case CLOSE_PATH: nvgClosePath(nvg); break;
+                case PATH_WINDING: nvgPathWinding(nvg, (int) a[i]); break;
+                case ARC: nvgArc(nvg, a[i], a[i + 1], a[i + 2], a[i + 3], a[i + 4], (int) a[i + 5]); break;
+                case CIRCLE: nvgCircle(nvg, a[i], a[i + 1], a[i + 2]); break;
+                case ELLIPSE: nvgEllipse(nvg, a[i], a[i + 1], a[i + 2], a[i + 3]); break;
+                case RECT: nvgRect(nvg, a[i], a[i + 1], a[i + 2], a[i + 3]); break;
+                case ROUNDED_RECT: nvgRoundedRect(nvg, a[i], a[i + 1], a[i + 2], a[i + 3], a[i + 4]); break;
+                case ROUNDED_RECT_VARYING:
+                    nvgRoundedRectVarying(nvg, a[i], a[i + 1], a[i + 2], a[i + 3], a[i + 4], a[i + 5], a[i + 6], a[i + 7]);
+                    break;
+            }
+            i += ARGS[ops[o]];
+        }
+    }
+
+    boolean isEmpty() {
+        return groupCount == 0;
+    }
+
+    boolean isFull() {
+        return drawCount == MAX_DRAWS;
+    }
+
+    /**
+     * Queues a fill of the current path with a solid color, under the given transform.
+     */
+    void fill(int argb, Matrix3x2fc transform) {
+        queue(false, argb, 0, 0, transform);
+    }
+
+    /**
+     * Queues a stroke of the current path with a solid color, under the given transform. The miter limit is only used
+     * to estimate the bounds of the stroke.
+     */
+    void stroke(int argb, float width, float miterLimit, Matrix3x2fc transform) {
+        queue(true, argb, width, miterLimit, transform);
+    }
+
+    private void queue(boolean stroke, int argb, float width, float miterLimit, Matrix3x2fc t) {
+        if (pathOpCount == 0) return;
+
+        Draw draw = nextDraw();
+        draw.set(t);
+        draw.winding = pathWinding;
+        draw.bounds(minX, minY, maxX, maxY);
+
+        // Expand by the antialiasing fringe, and for strokes by the stroke width as NanoVG scales it, including miters
+        // and square caps. NanoVG scales the stroke width by the transform at the time of stroking, so strokes can only
+        // be grouped when that scale is the same.
+        float pad = 1;
+        float scale = 0;
+        if (stroke) {
+            scale = (float) (Math.sqrt(t.m00() * t.m00() + t.m01() * t.m01()) + Math.sqrt(t.m10() * t.m10() + t.m11() * t.m11())) / 2;
+            pad += width / 2 * scale * Math.max(miterLimit, 1.5f);
+        }
+        draw.minX -= pad;
+        draw.minY -= pad;
+        draw.maxX += pad;
+        draw.maxY += pad;
+
+        draw.opStart = opCount;
+        draw.argStart = argCount;
+        copyPath();
+        draw.opEnd = opCount;
+
+        boolean overlappable = (argb >>> 24) == 0xFF && !draw.winding;
+        for (int g = groupCount - 1, end = Math.max(0, groupCount - MAX_LOOKBACK); g >= end; g--) {
+            Group group = groups[g];
+            boolean overlaps = group.overlaps(draw);
+            if (group.stroke == stroke && group.argb == argb && group.width == width && group.scale == scale) {
+                if (!overlaps || overlappable && group.overlappable) {
+                    group.add(draw);
+                    group.overlappable &= overlappable;
+                    return;
+                }
+            }
+            if (overlaps) break;
+        }
+
+        Group group = nextGroup();
+        group.stroke = stroke;
+        group.argb = argb;
+        group.width = width;
+        group.scale = scale;
+        group.overlappable = overlappable;
+        group.first = group.last = null;
+        group.add(draw);
+    }
+
+    private void copyPath() {
+        if (opCount + pathOpCount > ops.length) {
+            ops = Arrays.copyOf(ops, Math.max(ops.length * 2, opCount + pathOpCount));
+        }
+        if (argCount + pathArgCount > args.length) {
+            args = Arrays.copyOf(args, Math.max(args.length * 2, argCount + pathArgCount));
+        }
+        System.arraycopy(pathOps, 0, ops, opCount, pathOpCount);
+        System.arraycopy(pathArgs, 0, args, argCount, pathArgCount);
+        opCount += pathOpCount;
+        argCount += pathArgCount;
+    }
+
+    private Draw nextDraw() {
+        if (drawCount == draws.length) {
+            draws = Arrays.copyOf(draws, drawCount * 2);
+        }
+        Draw draw = draws[drawCount];
+        if (draw == null) {
+            draw = draws[drawCount] = new Draw();
+        }
+        drawCount++;
+        draw.next = null;
+        return draw;
+    }
+
+    private Group nextGroup() {
+        if (groupCount == groups.length) {
+            groups = Arrays.copyOf(groups, groupCount * 2);
+        }
+        Group group = groups[groupCount];
+        if (group == null) {
+            group = groups[groupCount] = new Group();
+        }
+        groupCount++;
+        return group;
+    }
+
+    /**
+     * Submits all queued groups to NanoVG, one path and one fill or stroke per group. This changes NanoVG's current path
+     * and its solid fill and stroke paints. The transform is set back to the given transform afterwards.
+     */
+    void flush(Matrix3x2fc current) {
+        if (groupCount == 0) return;
+
+        Draw transformed = null;
+        for (int g = 0; g < groupCount; g++) {
+            Group group = groups[g];
+            nvgBeginPath(nvg);
+            for (Draw draw = group.first; draw != null; draw = draw.next) {
+                if (transformed == null || !draw.sameTransform(transformed)) {
+                    nvgResetTransform(nvg);
+                    nvgTransform(nvg, draw.a, draw.b, draw.c, draw.d, draw.e, draw.f);
+                    transformed = draw;
+                }
+                replay(ops, draw.opStart, draw.opEnd, args, draw.argStart);
+            }
+
+            Colors.rgba(color, group.argb);
+            if (group.stroke) {
+                nvgStrokeColor(nvg, color);
+                nvgStrokeWidth(nvg, group.width);
+                nvgStroke(nvg);
+            } else {
+                nvgFillColor(nvg, color);
+                nvgFill(nvg);
+            }
+        }
+
+        nvgResetTransform(nvg);
+        nvgTransform(nvg, current.m00(), current.m01(), current.m10(), current.m11(), current.m20(), current.m21());
+        clear();
+    }
+
+    /**
+     * Drops all queued draws without submitting them.
+     */
+    void clear() {
+        for (int g = 0; g < groupCount; g++) {
+            groups[g].first = groups[g].last = null;
+        }
+        groupCount = 0;
+        drawCount = 0;
+        opCount = 0;
+        argCount = 0;
+    }
+
+    private static final class Draw {
+        float a, b, c, d, e, f;
+        float minX, minY, maxX, maxY;
+        int opStart, opEnd, argStart;
+        boolean winding;
+        Draw next;
+
+        void set(Matrix3x2fc t) {
+            a = t.m00();
+            b = t.m01();
+            c = t.m10();
+            d = t.m11();
+            e = t.m20();
+            f = t.m21();
+        }
+
+        boolean sameTransform(Draw o) {
+            return a == o.a && b == o.b && c == o.c && d == o.d && e == o.e && f == o.f;
+        }
+
+        void bounds(float x0, float y0, float x1, float y1) {
+            minX = minY = Float.POSITIVE_INFINITY;
+            maxX = maxY = Float.NEGATIVE_INFINITY;
+            corner(x0, y0);
+            corner(x1, y0);
+            corner(x0, y1);
+            corner(x1, y1);
+        }
+
+        private void corner(float x, float y) {
+            float tx = x * a + y * c + e;
+            float ty = x * b + y * d + f;
+            if (tx < minX) minX = tx;
+            if (tx > maxX) maxX = tx;
+            if (ty < minY) minY = ty;
+            if (ty > maxY) maxY = ty;
+        }
+
+        boolean overlaps(Draw o) {
+            return minX < o.maxX && o.minX < maxX && minY < o.maxY && o.minY < maxY;
+        }
+    }
+
+    private static final class Group {
+        boolean stroke;
+        int argb;
+        float width;
+        float scale;
+        boolean overlappable;
+        float minX, minY, maxX, maxY;
+        Draw first, last;
+
+        void add(Draw draw) {
+            if (first == null) {
+                first = last = draw;
+                minX = draw.minX;
+                minY = draw.minY;
+                maxX = draw.maxX;
+                maxY = draw.maxY;
+            } else {
+                last.next = draw;
+                last = draw;
+                minX = Math.min(minX, draw.minX);
+                minY = Math.min(minY, draw.minY);
+                maxX = Math.max(maxX, draw.maxX);
+                maxY = Math.max(maxY, draw.maxY);
+            }
+        }
+
+        boolean overlaps(Draw draw) {
+            if (!(minX < draw.maxX && draw.minX < maxX && minY < draw.maxY && draw.minY < maxY)) {
+                return false;
+            }
+            for (Draw d = first; d != null; d = d.next) {
+                if (d.overlaps(draw)) return true;
+            }
+            return false;
+        }
+    }
+}
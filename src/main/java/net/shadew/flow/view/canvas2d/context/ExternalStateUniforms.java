@@ -0,0 +1,97 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.shadew.flow.view.canvas2d.context;
+
+import static org.lwjgl.nanovg.NanoVG.*;
+import static org.lwjgl.opengl.GL32.*;
+
+/**
+ * Applies a {@link NanoVGContext.ExternalState} to the shader of an external batch, the same way NanoVG applies it to
+ * its own draws. Fragment shaders include {@link #GLSL} and multiply their premultiplied color by {@code
+ * stateMask(pos)}, where {@code pos} is the fragment position in view coordinates. That applies the global alpha and
+ * the scissor, the composite operation is applied as blend function.
+ */
+final class ExternalStateUniforms {
+    static final String GLSL = String.join("\n",
+        "uniform float globalAlpha;",
+        "uniform vec3 scissorX;",
+        "uniform vec3 scissorY;",
+        "uniform vec2 scissorExt;",
+        "uniform vec2 scissorScale;",
+        "float stateMask(vec2 pos) {",
+        "    vec3 p = vec3(pos, 1.0);",
+        "    vec2 sc = abs(vec2(dot(scissorX, p), dot(scissorY, p))) - scissorExt;",
+        "    sc = vec2(0.5) - sc * scissorScale;",
+        "    return globalAlpha * clamp(sc.x, 0.0, 1.0) * clamp(sc.y, 0.0, 1.0);",
+        "}"
+    );
+
+    private final int globalAlphaLoc;
+    private final int scissorXLoc;
+    private final int scissorYLoc;
+    private final int scissorExtLoc;
+    private final int scissorScaleLoc;
+
+    ExternalStateUniforms(int program) {
+        globalAlphaLoc = glGetUniformLocation(program, "globalAlpha");
+        scissorXLoc = glGetUniformLocation(program, "scissorX");
+        scissorYLoc = glGetUniformLocation(program, "scissorY");
+        scissorExtLoc = glGetUniformLocation(program, "scissorExt");
+        scissorScaleLoc = glGetUniformLocation(program, "scissorScale");
+    }
+
+    /**
+     * Sets the uniforms and the blend function for the given state. The program must be in use.
+     */
+    void apply(NanoVGContext.ExternalState state, float pixelRatio) {
+        float[] s = state.scissorInverse;
+        glUniform1f(globalAlphaLoc, state.alpha);
+        glUniform3f(scissorXLoc, s[0], s[2], s[4]);
+        glUniform3f(scissorYLoc, s[1], s[3], s[5]);
+        glUniform2f(scissorExtLoc, state.scissorExtX, state.scissorExtY);
+        // The scissor edge is antialiased over one device pixel
+        glUniform2f(scissorScaleLoc, state.scissorScaleX * pixelRatio, state.scissorScaleY * pixelRatio);
+
+        int srcRgb = toGl(state.srcRgb);
+        int dstRgb = toGl(state.dstRgb);
+        int srcAlpha = toGl(state.srcAlpha);
+        int dstAlpha = toGl(state.dstAlpha);
+        if (srcRgb < 0 || dstRgb < 0 || srcAlpha < 0 || dstAlpha < 0) {
+            // NanoVG falls back to source over for invalid factors
+            glBlendFuncSeparate(GL_ONE, GL_ONE_MINUS_SRC_ALPHA, GL_ONE, GL_ONE_MINUS_SRC_ALPHA);
+        } else {
+            glBlendFuncSeparate(srcRgb, dstRgb, srcAlpha, dstAlpha);
+        }
+    }
+
+    private static int toGl(int factor) {
+        switch (factor) {
+            case NVG_ZERO: return GL_ZERO;
+            case NVG_ONE: return GL_ONE;
+            case NVG_SRC_COLOR: return GL_SRC_COLOR;
+            case NVG_ONE_MINUS_SRC_COLOR: return GL_ONE_MINUS_SRC_COLOR;
+            case NVG_DST_COLOR: return GL_DST_COLOR;
+            case NVG_ONE_MINUS_DST_COLOR: return GL_ONE_MINUS_DST_COLOR;
+            case NVG_SRC_ALPHA: return GL_SRC_ALPHA;
+            case NVG_ONE_MINUS_SRC_ALPHA: return GL_ONE_MINUS_SRC_ALPHA;
+            case NVG_DST_ALPHA: return GL_DST_ALPHA;
+            case NVG_ONE_MINUS_DST_ALPHA: return GL_ONE_MINUS_DST_ALPHA;
+            case NVG_SRC_ALPHA_SATURATE: return GL_SRC_ALPHA_SATURATE;
+        }
+        return -1;
+    }
+}
@@ -32,4 +32,10 @@ public class GL2NanoVGContext extends NanoVGContext {
     protected long createContext(int flags) {
         return NanoVGGL2.nvgCreate(flags);
     }
+
+    @Override
+    protected int createImageFromHandle(long nvg, int textureId, int width, int height, int flags) {
+        int nvgFlags = backendImageFlags(flags, NanoVGGL2.NVG_IMAGE_NODELETE);
+        return NanoVGGL2.nvglCreateImageFromHandle(nvg, textureId, width, height, nvgFlags);
+    }
 }
@@ -16,13 +16,77 @@
 
 package net.shadew.flow.view.canvas2d.context;
 
+import org.joml.Matrix3x2f;
 import org.lwjgl.nanovg.NanoVGGL3;
 
+import net.shadew.flow.util.Font;
+import net.shadew.flow.util.SdfGlyphAtlas;
+
 public class GL3NanoVGContext extends NanoVGContext {
+    private final Matrix3x2f batchTransform = new Matrix3x2f();
+    private SdfTextRenderer sdfText;
+    private InstancedShapeRenderer instancedShapes;
+    private Boolean instancingSupported;
+
     public GL3NanoVGContext(int flags) {
         super(flags);
     }
 
+    @Override
+    public CanvasContext sdfGlyph(int cp, float srcX, float srcY, float fontSize, Font font, int fillArgb, int strokeArgb, float strokeWidth) {
+        if (sdfText == null) {
+            sdfText = new SdfTextRenderer();
+        }
+
+        Font glyphFont = font.forCodepoint(cp);
+        SdfGlyphAtlas.Glyph glyph = sdfText.glyph(glyphFont, glyphFont.glyphIndex(cp));
+        if (glyph == null) {
+            // Atlas is full
+            return super.sdfGlyph(cp, srcX, srcY, fontSize, font, fillArgb, strokeArgb, strokeWidth);
+        }
+        if (glyph.isEmpty()) {
+            return this;
+        }
+
+        useExternal(sdfText);
+        sdfText.add(
+            glyphFont, glyph, srcX, srcY, fontSize, getTransform(batchTransform),
+            fillArgb, strokeArgb, strokeWidth, externalState()
+        );
+        return this;
+    }
+
+    @Override
+    public CanvasContext shapes(ShapeInstances instances, int strokeArgb, float strokeWidth) {
+        if (instancingSupported == null) {
+            instancingSupported = InstancedShapeRenderer.isSupported();
+        }
+        if (!instancingSupported) {
+            return super.shapes(instances, strokeArgb, strokeWidth);
+        }
+        if (instances.size() == 0) {
+            return this;
+        }
+
+        if (instancedShapes == null) {
+            instancedShapes = new InstancedShapeRenderer();
+        }
+        useExternal(instancedShapes);
+        instancedShapes.add(instances, getTransform(batchTransform), strokeArgb, strokeWidth, externalState());
+        return this;
+    }
+
+    @Override
+    public void dispose() {
+        if (sdfText != null) {
+            sdfText.dispose();
+        }
+        if (instancedShapes != null) {
+            instancedShapes.dispose();
+        }
+        super.dispose();
+    }
+
     @Override
     protected void disposeContext(long nvg) {
         NanoVGGL3.nvgDelete(nvg);
@@ -32,4 +96,10 @@ public class GL3NanoVGContext extends NanoVGContext {
     protected long createContext(int flags) {
         return NanoVGGL3.nvgCreate(flags);
     }
+
+    @Override
+    protected int createImageFromHandle(long nvg, int textureId, int width, int height, int flags) {
+        int nvgFlags = backendImageFlags(flags, NanoVGGL3.NVG_IMAGE_NODELETE);
+        return NanoVGGL3.nvglCreateImageFromHandle(nvg, textureId, width, height, nvgFlags);
+    }
 }
@@ -0,0 +1,323 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.shadew.flow.view.canvas2d.context;
+
+import org.joml.Matrix3x2fc;
+import org.lwjgl.opengl.ARBInstancedArrays;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL33;
+import org.lwjgl.opengl.GLCapabilities;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.shadew.flow.util.Disposable;
+
+import static org.lwjgl.opengl.GL32.*;
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * Draws {@link ShapeInstances} with instanced rendering. The shapes are evaluated analytically in the fragment shader,
+ * so every instance is a single quad, regardless of its kind. Instance data of all queued lists is streamed into one
+ * vertex buffer per flush, and each list is drawn with one instanced draw call.
+ */
+final class InstancedShapeRenderer implements NanoVGContext.ExternalBatch, Disposable {
+    private static final String VERTEX_SHADER = String.join("\n",
+        "#version 150 core",
+        "uniform vec2 viewSize;",
+        "uniform vec3 transformX;",
+        "uniform vec3 transformY;",
+        "uniform float pad;",
+        "in vec2 corner;",
+        "in vec4 bounds;",
+        "in float rotation;",
+        "in vec4 color;",
+        "out vec2 fPos;",
+        "out vec2 fLocal;",
+        "out vec2 fHalfSize;",
+        "out vec4 fColor;",
+        "void main() {",
+        "    vec2 halfSize = abs(bounds.zw) * 0.5;",
+        "    vec2 local = corner * (halfSize + pad);",
+        "    float c = cos(rotation);",
+        "    float s = sin(rotation);",
+        "    vec3 p = vec3(bounds.xy + vec2(c * local.x - s * local.y, s * local.x + c * local.y), 1.0);",
+        "    vec2 view = vec2(dot(transformX, p), dot(transformY, p));",
+        "    fPos = view;",
+        "    fLocal = local;",
+        "    fHalfSize = halfSize;",
+        "    fColor = color;",
+        "    gl_Position = vec4(2.0 * view.x / viewSize.x - 1.0, 1.0 - 2.0 * view.y / viewSize.y, 0.0, 1.0);",
+        "}"
+    );
+
+    private static final String FRAGMENT_SHADER = String.join("\n",
+        "#version 150 core",
+        "uniform int ellipse;",
+        "uniform vec4 strokeColor;",
+        "uniform float halfStroke;",
+        ExternalStateUniforms.GLSL,
+        "in vec2 fPos;",
+        "in vec2 fLocal;",
+        "in vec2 fHalfSize;",
+        "in vec4 fColor;",
+        "out vec4 outColor;",
+        "void main() {",
+        "    float d;",
+        "    if (ellipse != 0) {",
+        "        vec2 r = max(fHalfSize, vec2(0.0001));",
+        "        float k0 = length(fLocal / r);",
+        "        float k1 = length(fLocal / (r * r));",
+        "        d = k0 * (k0 - 1.0) / max(k1, 0.0001);",
+        "    } else {",
+        "        vec2 q = abs(fLocal) - fHalfSize;",
+        "        d = length(max(q, 0.0)) + min(max(q.x, q.y), 0.0);",
+        "    }",
+        "    float w = max(fwidth(d), 0.0001);",
+        "    vec4 color = vec4(fColor.rgb, 1.0) * fColor.a * clamp(0.5 - d / w, 0.0, 1.0);",
+        "    if (halfStroke > 0.0) {",
+        "        vec4 s = vec4(strokeColor.rgb, 1.0) * strokeColor.a * clamp(0.5 - (abs(d) - halfStroke) / w, 0.0, 1.0);",
+        "        color = s + color * (1.0 - s.a);",
+        "    }",
+        "    outColor = color * stateMask(fPos);",
+        "}"
+    );
+
+    private static final int STRIDE = 24;
+
+    private final List<Draw> draws = new ArrayList<>();
+
+    private ByteBuffer instances = memAlloc(STRIDE * 1024);
+    private int instanceCount;
+
+    private int program;
+    private int vao;
+    private int cornerVbo;
+    private int instanceVbo;
+    private int viewSizeLoc;
+    private int transformXLoc;
+    private int transformYLoc;
+    private int padLoc;
+    private int ellipseLoc;
+    private int strokeColorLoc;
+    private int halfStrokeLoc;
+    private ExternalStateUniforms stateUniforms;
+
+    /**
+     * Returns whether the current GL context supports instanced vertex attributes.
+     */
+    static boolean isSupported() {
+        GLCapabilities caps = GL.getCapabilities();
+        return caps.OpenGL33 || caps.GL_ARB_instanced_arrays;
+    }
+
+    void add(ShapeInstances shapes, Matrix3x2fc transform, int strokeArgb, float strokeWidth,
+             NanoVGContext.ExternalState state) {
+        int n = shapes.size();
+        if (n == 0) return;
+
+        int needed = (instanceCount + n) * STRIDE;
+        if (needed > instances.capacity()) {
+            instances = memRealloc(instances, Math.max(needed, instances.capacity() * 2));
+        }
+
+        float[] geometry = shapes.geometry();
+        int[] colors = shapes.colors();
+        long address = memAddress(instances) + (long) instanceCount * STRIDE;
+        for (int i = 0; i < n; i++, address += STRIDE) {
+            int g = i * ShapeInstances.STRIDE;
+            memPutFloat(address, geometry[g]);
+            memPutFloat(address + 4, geometry[g + 1]);
+            memPutFloat(address + 8, geometry[g + 2]);
+            memPutFloat(address + 12, geometry[g + 3]);
+            memPutFloat(address + 16, geometry[g + 4]);
+            int argb = colors[i];
+            memPutByte(address + 20, (byte) (argb >>> 16));
+            memPutByte(address + 21, (byte) (argb >>> 8));
+            memPutByte(address + 22, (byte) argb);
+            memPutByte(address + 23, (byte) (argb >>> 24));
+        }
+
+        boolean stroke = strokeWidth > 0 && (strokeArgb >>> 24) != 0;
+        draws.add(new Draw(
+            shapes.getKind(), transform, stroke ? strokeArgb : 0, stroke ? strokeWidth / 2 : 0, state, instanceCount, n
+        ));
+        instanceCount += n;
+    }
+
+    @Override
+    public void flush(float width, float height, float pixelRatio) {
+        if (draws.isEmpty()) return;
+        if (program == 0) {
+            setup();
+        }
+
+        glUseProgram(program);
+        glUniform2f(viewSizeLoc, width, height);
+
+        glBindVertexArray(vao);
+        glBindBuffer(GL_ARRAY_BUFFER, instanceVbo);
+        instances.position(0).limit(instanceCount * STRIDE);
+        glBufferData(GL_ARRAY_BUFFER, instances, GL_STREAM_DRAW);
+        instances.clear();
+
+        glEnable(GL_BLEND);
+        glDisable(GL_CULL_FACE);
+        glDisable(GL_DEPTH_TEST);
+        glDisable(GL_STENCIL_TEST);
+        glDisable(GL_SCISSOR_TEST);
+
+        NanoVGContext.ExternalState applied = null;
+        for (Draw draw : draws) {
+            if (draw.state != applied) {
+                stateUniforms.apply(draw.state, pixelRatio);
+                applied = draw.state;
+            }
+
+            long offset = (long) draw.first * STRIDE;
+            glVertexAttribPointer(1, 4, GL_FLOAT, false, STRIDE, offset);
+            glVertexAttribPointer(2, 1, GL_FLOAT, false, STRIDE, offset + 16);
+            glVertexAttribPointer(3, 4, GL_UNSIGNED_BYTE, true, STRIDE, offset + 20);
+
+            float[] t = draw.transform;
+            glUniform3f(transformXLoc, t[0], t[2], t[4]);
+            glUniform3f(transformYLoc, t[1], t[3], t[5]);
+
+            // Pad quads by half the stroke and about a pixel for antialiasing, in local units
+            float scale = (float) Math.sqrt(Math.abs(t[0] * t[3] - t[1] * t[2]));
+            glUniform1f(padLoc, draw.halfStroke + 1.5f / Math.max(scale, 0.0001f));
+            glUniform1i(ellipseLoc, draw.kind == ShapeInstances.Kind.ELLIPSE ? 1 : 0);
+            int s = draw.strokeArgb;
+            glUniform4f(strokeColorLoc, (s >>> 16 & 0xFF) / 255f, (s >>> 8 & 0xFF) / 255f, (s & 0xFF) / 255f, (s >>> 24) / 255f);
+            glUniform1f(halfStrokeLoc, draw.halfStroke);
+
+            glDrawArraysInstanced(GL_TRIANGLE_STRIP, 0, 4, draw.count);
+        }
+
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        glBindVertexArray(0);
+        glUseProgram(0);
+
+        draws.clear();
+        instanceCount = 0;
+    }
+
+    private void setup() {
+        int vs = compile(GL_VERTEX_SHADER, VERTEX_SHADER);
+        int fs = compile(GL_FRAGMENT_SHADER, FRAGMENT_SHADER);
+        program = glCreateProgram();
+        glAttachShader(program, vs);
+        glAttachShader(program, fs);
+        glBindAttribLocation(program, 0, "corner");
+        glBindAttribLocation(program, 1, "bounds");
+        glBindAttribLocation(program, 2, "rotation");
+        glBindAttribLocation(program, 3, "color");
+        glLinkProgram(program);
+        glDeleteShader(vs);
+        glDeleteShader(fs);
+        if (glGetProgrami(program, GL_LINK_STATUS) == GL_FALSE) {
+            throw new IllegalStateException("Failed to link instanced shape shader: " + glGetProgramInfoLog(program));
+        }
+
+        viewSizeLoc = glGetUniformLocation(program, "viewSize");
+        transformXLoc = glGetUniformLocation(program, "transformX");
+        transformYLoc = glGetUniformLocation(program, "transformY");
+        padLoc = glGetUniformLocation(program, "pad");
+        ellipseLoc = glGetUniformLocation(program, "ellipse");
+        strokeColorLoc = glGetUniformLocation(program, "strokeColor");
+        halfStrokeLoc = glGetUniformLocation(program, "halfStroke");
+        stateUniforms = new ExternalStateUniforms(program);
+
+        vao = glGenVertexArrays();
+        glBindVertexArray(vao);
+
+        cornerVbo = glGenBuffers();
+        glBindBuffer(GL_ARRAY_BUFFER, cornerVbo);
+        glBufferData(GL_ARRAY_BUFFER, new float[] {-1, -1, 1, -1, -1, 1, 1, 1}, GL_STATIC_DRAW);
+        glEnableVertexAttribArray(0);
+        glVertexAttribPointer(0, 2, GL_FLOAT, false, 8, 0);
+
+        instanceVbo = glGenBuffers();
+        glBindBuffer(GL_ARRAY_BUFFER, instanceVbo);
+        for (int attrib = 1; attrib <= 3; attrib++) {
+            glEnableVertexAttribArray(attrib);
+            divisor(attrib, 1);
+        }
+
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        glBindVertexArray(0);
+    }
+
+    private static void divisor(int attrib, int divisor) {
+        if (GL.getCapabilities().OpenGL33) {
+            GL33.glVertexAttribDivisor(attrib, divisor);
+        } else {
+            ARBInstancedArrays.glVertexAttribDivisorARB(attrib, divisor);
+        }
+    }
+
+    private static int compile(int type, String source) {
+        int shader = glCreateShader(type);
+        glShaderSource(shader, source);
+        glCompileShader(shader);
+        if (glGetShaderi(shader, GL_COMPILE_STATUS) == GL_FALSE) {
+            String log = glGetShaderInfoLog(shader);
+            glDeleteShader(shader);
+            throw new IllegalStateException("Failed to compile instanced shape shader: " + log);
+        }
+        return shader;
+    }
+
+    @Override
+    public void dispose() {
+        if (program != 0) {
+            glDeleteProgram(program);
+            glDeleteVertexArrays(vao);
+            glDeleteBuffers(cornerVbo);
+            glDeleteBuffers(instanceVbo);
+            program = 0;
+        }
+        memFree(instances);
+    }
+
+    private static class Draw {
+        final ShapeInstances.Kind kind;
+        final float[] transform;
+        final int strokeArgb;
+        final float halfStroke;
+        final NanoVGContext.ExternalState state;
+        final int first;
+        final int count;
+
+        Draw(ShapeInstances.Kind kind, Matrix3x2fc transform, int strokeArgb, float halfStroke,
+             NanoVGContext.ExternalState state, int first, int count) {
+            this.kind = kind;
+            this.transform = new float[] {
+                transform.m00(), transform.m01(),
+                transform.m10(), transform.m11(),
+                transform.m20(), transform.m21()
+            };
+            this.strokeArgb = strokeArgb;
+            this.halfStroke = halfStroke;
+            this.state = state;
+            this.first = first;
+            this.count = count;
+        }
+    }
+}
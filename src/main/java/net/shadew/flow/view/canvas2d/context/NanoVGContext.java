@@ -34,17 +34,67 @@ import net.shadew.util.misc.ColorUtil;
 import static org.lwjgl.nanovg.NanoVG.*;
 
 public abstract class NanoVGContext implements CanvasContext {
+    // NanoVG keeps at most 32 states, one of which is taken by nvgBeginFrame, saves beyond that are ignored by NanoVG
+    private static final int MAX_SAVES = 31;
+
     private final long nvg;
     private final NVGColor fill = NVGColor.malloc();
     private final NVGColor stroke = NVGColor.malloc();
     private final NVGPaint fillPaint = NVGPaint.malloc();
     private final NVGPaint strokePaint = NVGPaint.malloc();
 
-    private final Matrix3x2f transform = new Matrix3x2f();
-    private final Matrix3x2fStack transformStack = new Matrix3x2fStack(256);
+    // The current transform, tracked in Java and only pushed to NanoVG when NanoVG needs it
+    private final Matrix3x2fStack transform = new Matrix3x2fStack(256);
+    private final Matrix3x2f temp = new Matrix3x2f();
+    private boolean transformDirty;
+
+    private float frameWidth;
+    private float frameHeight;
+    private float framePixelRatio;
+    private ExternalBatch external;
+
+    private final DrawBatcher batcher;
+    private boolean batching = true;
+    private boolean recordPath;
+
+    // Render state, mirrored in Java so solid paints can be applied when a batch is submitted, and so all state can
+    // be restored when the frame restarts for an external batch
+    private final RenderState paint = new RenderState();
+    private final RenderState[] savedPaints = new RenderState[MAX_SAVES];
+    private int savedPaintCount;
 
     public NanoVGContext(int flags) {
         this.nvg = createContext(flags);
+        this.batcher = new DrawBatcher(nvg, fill);
+        for (int i = 0; i < savedPaints.length; i++) {
+            savedPaints[i] = new RenderState();
+        }
+    }
+
+    /**
+     * Sets whether fills and strokes with solid colors are batched. When batching, paths are recorded in Java and draws
+     * with the same color are submitted to NanoVG as one path, as far as painter's order permits. Draws may be
+     * submitted later than they are issued, but never later than the next change to render state other than solid
+     * colors, stroke width or transform, or the end of the frame. Batching is enabled by default.
+     */
+    public NanoVGContext batching(boolean batching) {
+        if (this.batching && !batching) {
+            pinPath();
+            flushBatch();
+            if (paint.fillSolid) {
+                nvgFillColor(nvg, Colors.rgba(fill, paint.fillArgb));
+            }
+            if (paint.strokeSolid) {
+                nvgStrokeColor(nvg, Colors.rgba(stroke, paint.strokeArgb));
+            }
+            nvgStrokeWidth(nvg, paint.strokeWidth);
+        }
+        this.batching = batching;
+        return this;
+    }
+
+    public boolean isBatching() {
+        return batching;
     }
 
     @Override
@@ -53,35 +103,244 @@ public abstract class NanoVGContext implements CanvasContext {
         stroke.free();
         fillPaint.free();
         strokePaint.free();
+        paint.free();
+        for (RenderState state : savedPaints) {
+            state.free();
+        }
         disposeContext(nvg);
     }
 
     protected abstract void disposeContext(long nvg);
     protected abstract long createContext(int flags);
+    protected abstract int createImageFromHandle(long nvg, int textureId, int width, int height, int flags);
+
+    /**
+     * Replaces the {@link Texture#NO_DELETE} flag in the given image flags with the equivalent flag of a backend.
+     */
+    protected static int backendImageFlags(int flags, int noDelete) {
+        return flags & ~Texture.NO_DELETE | ((flags & Texture.NO_DELETE) != 0 ? noDelete : 0);
+    }
 
     @Override
     public void beginFrame(float width, float height, float pixelRatio) {
+        frameWidth = width;
+        frameHeight = height;
+        framePixelRatio = pixelRatio;
+        batcher.clear();
+        recordPath = false;
+        paint.reset();
+        savedPaintCount = 0;
+        transform.clear();
+        transformDirty = false;
         nvgBeginFrame(nvg, width, height, pixelRatio);
     }
 
     public void cancelFrame() {
+        external = null;
+        batcher.clear();
         nvgCancelFrame(nvg);
     }
 
     @Override
     public void endFrame() {
+        flushBatch();
         nvgEndFrame(nvg);
+        if (external != null) {
+            ExternalBatch batch = external;
+            external = null;
+            batch.flush(frameWidth, frameHeight, framePixelRatio);
+        }
+    }
+
+    /**
+     * A batch of draws that bypasses NanoVG and renders with GL directly. Batches apply the {@link ExternalState} that
+     * was current when a draw was queued.
+     */
+    protected interface ExternalBatch {
+        void flush(float width, float height, float pixelRatio);
+    }
+
+    /**
+     * The render state that external batches apply themselves, as NanoVG would: the global alpha, the blend factors of
+     * the composite operation and the scissor. Blend factors are NanoVG constants, the scissor is given as the inverse
+     * of its transform in view coordinates, its half extent and the scale of its axes. Without scissor, the inverse is
+     * all zeros. A state is immutable, the same instance is used until any of its values changes.
+     */
+    protected static final class ExternalState {
+        final float alpha;
+        final int srcRgb;
+        final int dstRgb;
+        final int srcAlpha;
+        final int dstAlpha;
+        final float[] scissorInverse = new float[6];
+        final float scissorExtX;
+        final float scissorExtY;
+        final float scissorScaleX;
+        final float scissorScaleY;
+
+        private ExternalState(RenderState state) {
+            alpha = state.alpha;
+            srcRgb = state.srcRgb;
+            dstRgb = state.dstRgb;
+            srcAlpha = state.srcAlpha;
+            dstAlpha = state.dstAlpha;
+
+            if (state.scissorExtX < 0) {
+                scissorExtX = scissorExtY = 1;
+                scissorScaleX = scissorScaleY = 1;
+            } else {
+                Matrix3x2f s = state.scissor;
+                Matrix3x2f inv = s.invert(new Matrix3x2f());
+                scissorInverse[0] = inv.m00;
+                scissorInverse[1] = inv.m01;
+                scissorInverse[2] = inv.m10;
+                scissorInverse[3] = inv.m11;
+                scissorInverse[4] = inv.m20;
+                scissorInverse[5] = inv.m21;
+                scissorExtX = state.scissorExtX;
+                scissorExtY = state.scissorExtY;
+                scissorScaleX = (float) Math.sqrt(s.m00 * s.m00 + s.m10 * s.m10);
+                scissorScaleY = (float) Math.sqrt(s.m01 * s.m01 + s.m11 * s.m11);
+            }
+        }
+    }
+
+    /**
+     * Returns the current render state for draws queued into an external batch.
+     */
+    protected ExternalState externalState() {
+        if (paint.external == null) {
+            paint.external = new ExternalState(paint);
+        }
+        return paint.external;
+    }
+
+    /**
+     * Makes the given batch the pending external batch, before queueing draws into it. Everything drawn through NanoVG
+     * so far is drawn before the batch, everything drawn after is drawn after it. To achieve this, the NanoVG frame is
+     * ended and restarted when a new path begins while a batch is pending. After the restart, the save stack and all
+     * render state of NanoVG are restored from their Java mirror, so the restart can't be observed.
+     */
+    protected void useExternal(ExternalBatch batch) {
+        if (external != batch) {
+            flushExternal();
+            external = batch;
+        }
+    }
+
+    private void flushExternal() {
+        if (external == null) return;
+
+        ExternalBatch batch = external;
+        external = null;
+
+        flushBatch();
+        nvgEndFrame(nvg);
+        batch.flush(frameWidth, frameHeight, framePixelRatio);
+        nvgBeginFrame(nvg, frameWidth, frameHeight, framePixelRatio);
+
+        nvgResetTransform(nvg);
+        for (int i = 0; i < savedPaintCount; i++) {
+            applyState(savedPaints[i]);
+            nvgSave(nvg);
+        }
+        applyState(paint);
+        transformDirty = true;
+    }
+
+    // Sets the NanoVG state to the given state, the NanoVG transform must be the identity
+    private void applyState(RenderState state) {
+        if (state.fillSolid) {
+            nvgFillColor(nvg, Colors.rgba(fill, state.fillArgb));
+        } else {
+            nvgFillPaint(nvg, state.fillPaint);
+        }
+        if (state.strokeSolid) {
+            nvgStrokeColor(nvg, Colors.rgba(stroke, state.strokeArgb));
+        } else {
+            nvgStrokePaint(nvg, state.strokePaint);
+        }
+        nvgStrokeWidth(nvg, state.strokeWidth);
+        nvgMiterLimit(nvg, state.miterLimit);
+        nvgLineCap(nvg, state.lineCap);
+        nvgLineJoin(nvg, state.lineJoin);
+        nvgGlobalAlpha(nvg, state.alpha);
+        nvgGlobalCompositeBlendFuncSeparate(nvg, state.srcRgb, state.dstRgb, state.srcAlpha, state.dstAlpha);
+        if (state.scissorExtX < 0) {
+            nvgResetScissor(nvg);
+        } else {
+            Matrix3x2f s = state.scissor;
+            nvgTransform(nvg, s.m00, s.m01, s.m10, s.m11, s.m20, s.m21);
+            nvgScissor(nvg, -state.scissorExtX, -state.scissorExtY, state.scissorExtX * 2, state.scissorExtY * 2);
+            nvgResetTransform(nvg);
+        }
+    }
+
+    // Stores a paint in the mirrored state, in view coordinates like NanoVG stores it
+    private void storePaint(NVGPaint src, NVGPaint dst) {
+        dst.set(src);
+        FloatBuffer xf = dst.xform();
+        transform.mul(temp.set(xf.get(0), xf.get(1), xf.get(2), xf.get(3), xf.get(4), xf.get(5)), temp);
+        xf.put(0, temp.m00).put(1, temp.m01).put(2, temp.m10).put(3, temp.m11).put(4, temp.m20).put(5, temp.m21);
+    }
+
+    /**
+     * Submits all batched draws to NanoVG.
+     */
+    protected void flushBatch() {
+        if (!batcher.isEmpty()) {
+            batcher.flush(transform);
+            transformDirty = false;
+        }
+    }
+
+    /**
+     * Pushes the current transform to NanoVG, if it changed since it was last pushed. This must be called before any
+     * NanoVG call that uses the transform: path commands, paints other than colors, and strokes.
+     */
+    private void syncTransform() {
+        if (transformDirty) {
+            nvgResetTransform(nvg);
+            nvgTransform(nvg, transform.m00, transform.m01, transform.m10, transform.m11, transform.m20, transform.m21);
+            transformDirty = false;
+        }
+    }
+
+    /**
+     * Called before the transform changes. A path that is being recorded is submitted to NanoVG with the transform it
+     * was built under, and the rest of the path goes directly to NanoVG.
+     */
+    private void pinPath() {
+        if (recordPath && batcher.hasPath()) {
+            flushBatch();
+            syncTransform();
+            nvgBeginPath(nvg);
+            batcher.replayPath();
+            recordPath = false;
+        }
     }
 
     @Override
     public CanvasContext beginPath() {
-        nvgBeginPath(nvg);
+        flushExternal();
+        recordPath = batching;
+        if (recordPath) {
+            batcher.beginPath();
+        } else {
+            nvgBeginPath(nvg);
+        }
         return this;
     }
 
     @Override
     public CanvasContext moveTo(float x, float y) {
-        nvgMoveTo(nvg, x, y);
+        if (recordPath) {
+            batcher.moveTo(x, y);
+        } else {
+            syncTransform();
+
+            nvgMoveTo(nvg, x, y);
+        }
         return this;
     }
 
@@ -93,7 +352,13 @@ public abstract class NanoVGContext implements CanvasContext {
 
     @Override
     public CanvasContext lineTo(float x, float y) {
-        nvgLineTo(nvg, x, y);
+        if (recordPath) {
+            batcher.lineTo(x, y);
+        } else {
+            syncTransform();
+
+            nvgLineTo(nvg, x, y);
+        }
         return this;
     }
 
@@ -105,7 +370,13 @@ public abstract class NanoVGContext implements CanvasContext {
 
     @Override
     public CanvasContext quadTo(float cx, float cy, float x, float y) {
-        nvgQuadTo(nvg, cx, cy, x, y);
+        if (recordPath) {
+            batcher.quadTo(cx, cy, x, y);
+        } else {
+            syncTransform();
+
+            nvgQuadTo(nvg, cx, cy, x, y);
+        }
         return this;
     }
 
@@ -117,7 +388,13 @@ public abstract class NanoVGContext implements CanvasContext {
 
     @Override
     public CanvasContext curveTo(float cx1, float cy1, float cx2, float cy2, float x, float y) {
-        nvgBezierTo(nvg, cx1, cy1, cx2, cy2, x, y);
+        if (recordPath) {
+            batcher.bezierTo(cx1, cy1, cx2, cy2, x, y);
+        } else {
+            syncTransform();
+
+            nvgBezierTo(nvg, cx1, cy1, cx2, cy2, x, y);
+        }
         return this;
     }
 
@@ -129,7 +406,13 @@ public abstract class NanoVGContext implements CanvasContext {
 
     @Override
     public CanvasContext arcTo(float x1, float y1, float x2, float y2, float radius) {
-        nvgArcTo(nvg, x1, y1, x2, y2, radius);
+        if (recordPath) {
+            batcher.arcTo(x1, y1, x2, y2, radius);
+        } else {
+            syncTransform();
+
+            nvgArcTo(nvg, x1, y1, x2, y2, radius);
+        }
         return this;
     }
 
@@ -141,23 +424,80 @@ public abstract class NanoVGContext implements CanvasContext {
 
     @Override
     public CanvasContext closePath() {
-        nvgClosePath(nvg);
+        if (recordPath) {
+            batcher.closePath();
+        } else {
+            syncTransform();
+
+            nvgClosePath(nvg);
+        }
         return this;
     }
 
     @Override
     public void fill() {
+        if (!batching) {
+            syncTransform();
+            nvgFill(nvg);
+            return;
+        }
+
+        if (recordPath && paint.fillSolid) {
+            if (batcher.isFull()) {
+                flushBatch();
+            }
+            batcher.fill(paint.fillArgb, transform);
+            return;
+        }
+
+        if (recordPath) {
+            flushBatch();
+            syncTransform();
+            nvgBeginPath(nvg);
+            batcher.replayPath();
+        } else if (paint.fillSolid) {
+            nvgFillColor(nvg, Colors.rgba(fill, paint.fillArgb));
+        }
         nvgFill(nvg);
     }
 
     @Override
     public void stroke() {
+        if (!batching) {
+            syncTransform();
+            nvgStroke(nvg);
+            return;
+        }
+
+        if (recordPath && paint.strokeSolid) {
+            if (batcher.isFull()) {
+                flushBatch();
+            }
+            batcher.stroke(paint.strokeArgb, paint.strokeWidth, paint.miterLimit, transform);
+            return;
+        }
+
+        if (recordPath) {
+            flushBatch();
+            syncTransform();
+            nvgBeginPath(nvg);
+            batcher.replayPath();
+        }
+        syncTransform();
+        if (paint.strokeSolid) {
+            nvgStrokeColor(nvg, Colors.rgba(stroke, paint.strokeArgb));
+        }
+        nvgStrokeWidth(nvg, paint.strokeWidth);
         nvgStroke(nvg);
     }
 
     @Override
     public CanvasContext fillColor(int argb) {
-        nvgFillColor(nvg, Colors.rgba(fill, argb));
+        paint.fillArgb = argb;
+        paint.fillSolid = true;
+        if (!batching) {
+            nvgFillColor(nvg, Colors.rgba(fill, argb));
+        }
         return this;
     }
 
@@ -173,7 +513,11 @@ public abstract class NanoVGContext implements CanvasContext {
             NVGColor a = NVGColor.mallocStack(stack);
             NVGColor b = NVGColor.mallocStack(stack);
             nvgLinearGradient(nvg, sx, sy, ex, ey, Colors.rgba(a, sargb), Colors.rgba(b, eargb), fillPaint);
+            storePaint(fillPaint, paint.fillPaint);
+            flushBatch();
+            syncTransform();
             nvgFillPaint(nvg, fillPaint);
+            paint.fillSolid = false;
         }
         return this;
     }
@@ -184,7 +528,11 @@ public abstract class NanoVGContext implements CanvasContext {
             NVGColor a = NVGColor.mallocStack(stack);
             NVGColor b = NVGColor.mallocStack(stack);
             nvgRadialGradient(nvg, cx, cy, ir, or, Colors.rgba(a, iargb), Colors.rgba(b, oargb), fillPaint);
+            storePaint(fillPaint, paint.fillPaint);
+            flushBatch();
+            syncTransform();
             nvgFillPaint(nvg, fillPaint);
+            paint.fillSolid = false;
         }
         return this;
     }
@@ -195,7 +543,11 @@ public abstract class NanoVGContext implements CanvasContext {
             NVGColor a = NVGColor.mallocStack(stack);
             NVGColor b = NVGColor.mallocStack(stack);
             nvgBoxGradient(nvg, x, y, w, h, r, f, Colors.rgba(a, iargb), Colors.rgba(b, oargb), fillPaint);
+            storePaint(fillPaint, paint.fillPaint);
+            flushBatch();
+            syncTransform();
             nvgFillPaint(nvg, fillPaint);
+            paint.fillSolid = false;
         }
         return this;
     }
@@ -214,21 +566,28 @@ public abstract class NanoVGContext implements CanvasContext {
             throw new IllegalArgumentException("Image not part of current context");
         }
 
+        flushBatch();
+        syncTransform();
         nvgImagePattern(nvg, ox, oy, w, h, angle, i.handle, alpha, fillPaint);
+        storePaint(fillPaint, paint.fillPaint);
         nvgFillPaint(nvg, fillPaint);
+        paint.fillSolid = false;
         return this;
     }
 
     @Override
     public CanvasContext strokeColor(int argb) {
-        nvgStrokeColor(nvg, Colors.rgba(stroke, argb));
+        paint.strokeArgb = argb;
+        paint.strokeSolid = true;
+        if (!batching) {
+            nvgStrokeColor(nvg, Colors.rgba(stroke, argb));
+        }
         return this;
     }
 
     @Override
     public CanvasContext strokeColor(float r, float g, float b, float a) {
-        nvgStrokeColor(nvg, Colors.rgba(stroke, r, g, b, a));
-        return this;
+        return strokeColor(ColorUtil.rgba(r, g, b, a));
     }
 
     @Override
@@ -237,7 +596,11 @@ public abstract class NanoVGContext implements CanvasContext {
             NVGColor a = NVGColor.mallocStack(stack);
             NVGColor b = NVGColor.mallocStack(stack);
             nvgLinearGradient(nvg, sx, sy, ex, ey, Colors.rgba(a, sargb), Colors.rgba(b, eargb), strokePaint);
-            nvgFillPaint(nvg, strokePaint);
+            storePaint(strokePaint, paint.strokePaint);
+            flushBatch();
+            syncTransform();
+            nvgStrokePaint(nvg, strokePaint);
+            paint.strokeSolid = false;
         }
         return this;
     }
@@ -248,7 +611,11 @@ public abstract class NanoVGContext implements CanvasContext {
             NVGColor a = NVGColor.mallocStack(stack);
             NVGColor b = NVGColor.mallocStack(stack);
             nvgRadialGradient(nvg, cx, cy, ir, or, Colors.rgba(a, iargb), Colors.rgba(b, oargb), strokePaint);
+            storePaint(strokePaint, paint.strokePaint);
+            flushBatch();
+            syncTransform();
             nvgStrokePaint(nvg, strokePaint);
+            paint.strokeSolid = false;
         }
         return this;
     }
@@ -259,7 +626,11 @@ public abstract class NanoVGContext implements CanvasContext {
             NVGColor a = NVGColor.mallocStack(stack);
             NVGColor b = NVGColor.mallocStack(stack);
             nvgBoxGradient(nvg, x, y, w, h, r, f, Colors.rgba(a, iargb), Colors.rgba(b, oargb), strokePaint);
+            storePaint(strokePaint, paint.strokePaint);
+            flushBatch();
+            syncTransform();
             nvgStrokePaint(nvg, strokePaint);
+            paint.strokeSolid = false;
         }
         return this;
     }
@@ -278,14 +649,21 @@ public abstract class NanoVGContext implements CanvasContext {
             throw new IllegalArgumentException("Image not part of current context");
         }
 
+        flushBatch();
+        syncTransform();
         nvgImagePattern(nvg, ox, oy, w, h, angle, i.handle, alpha, strokePaint);
+        storePaint(strokePaint, paint.strokePaint);
         nvgStrokePaint(nvg, strokePaint);
+        paint.strokeSolid = false;
         return this;
     }
 
     @Override
     public CanvasContext strokeWidth(float width) {
-        nvgStrokeWidth(nvg, width);
+        paint.strokeWidth = width;
+        if (!batching) {
+            nvgStrokeWidth(nvg, width);
+        }
         return this;
     }
 
@@ -295,6 +673,11 @@ public abstract class NanoVGContext implements CanvasContext {
         return new TextureImpl(img, nvg);
     }
 
+    public Texture wrapTexture(int textureId, int width, int height, int flags) {
+        int img = createImageFromHandle(nvg, textureId, width, height, flags);
+        return new TextureImpl(img, nvg);
+    }
+
     private static class TextureImpl implements Texture {
         private final int handle;
         private final long nvg;
@@ -312,40 +695,59 @@ public abstract class NanoVGContext implements CanvasContext {
 
     @Override
     public CanvasContext save() {
+        pinPath();
+        flushBatch();
+        if (savedPaintCount < savedPaints.length) {
+            savedPaints[savedPaintCount++].set(paint);
+            transform.pushMatrix();
+        }
         nvgSave(nvg);
         return this;
     }
 
     @Override
     public CanvasContext reset() {
+        pinPath();
+        flushBatch();
+        paint.reset();
+        transform.identity();
+        transformDirty = false;
         nvgReset(nvg);
         return this;
     }
 
     @Override
     public CanvasContext restore() {
+        pinPath();
+        flushBatch();
+        if (savedPaintCount > 0) {
+            paint.set(savedPaints[--savedPaintCount]);
+            transform.popMatrix();
+            transformDirty = true;
+        }
         nvgRestore(nvg);
         return this;
     }
 
     @Override
     public CanvasContext pushTransform() {
-        getTransform(transformStack);
-        transformStack.pushMatrix();
+        transform.pushMatrix();
         return this;
     }
 
     @Override
     public CanvasContext popTransform() {
-        transformStack.popMatrix();
-        setTransform(transformStack);
+        pinPath();
+        transform.popMatrix();
+        transformDirty = true;
         return this;
     }
 
     @Override
     public CanvasContext setTransform(float m00, float m10, float m20, float m01, float m11, float m21) {
-        nvgResetTransform(nvg);
-        nvgTransform(nvg, m00, m01, m10, m11, m20, m21);
+        pinPath();
+        transform.set(m00, m01, m10, m11, m20, m21);
+        transformDirty = true;
         return this;
     }
 
@@ -356,7 +758,9 @@ public abstract class NanoVGContext implements CanvasContext {
 
     @Override
     public CanvasContext transform(float m00, float m10, float m20, float m01, float m11, float m21) {
-        nvgTransform(nvg, m00, m01, m10, m11, m20, m21);
+        pinPath();
+        transform.mul(temp.set(m00, m01, m10, m11, m20, m21));
+        transformDirty = true;
         return this;
     }
 
@@ -367,86 +771,90 @@ public abstract class NanoVGContext implements CanvasContext {
 
     @Override
     public CanvasContext setIdentity() {
-        nvgResetTransform(nvg);
+        pinPath();
+        transform.identity();
+        transformDirty = true;
         return this;
     }
 
     @Override
     public CanvasContext translate(float x, float y) {
-        nvgTranslate(nvg, x, y);
+        pinPath();
+        transform.translate(x, y);
+        transformDirty = true;
         return this;
     }
 
     @Override
     public CanvasContext translate(Vector2fc v) {
-        nvgTranslate(nvg, v.x(), v.y());
-        return this;
+        return translate(v.x(), v.y());
     }
 
     @Override
     public CanvasContext rotate(float angle) {
-        nvgRotate(nvg, angle);
+        pinPath();
+        transform.rotate(angle);
+        transformDirty = true;
         return this;
     }
 
     @Override
     public CanvasContext rotateDegrees(float angle) {
-        nvgRotate(nvg, nvgDegToRad(angle));
-        return this;
+        return rotate(nvgDegToRad(angle));
     }
 
     @Override
     public CanvasContext scale(float s) {
-        nvgScale(nvg, s, s);
-        return this;
+        return scale(s, s);
     }
 
     @Override
     public CanvasContext scale(float x, float y) {
-        nvgScale(nvg, x, y);
+        pinPath();
+        transform.scale(x, y);
+        transformDirty = true;
         return this;
     }
 
     @Override
     public CanvasContext scale(Vector2fc v) {
-        nvgScale(nvg, v.x(), v.y());
-        return this;
+        return scale(v.x(), v.y());
     }
 
     @Override
     public CanvasContext mirrorX() {
-        nvgScale(nvg, -1, 1);
-        return this;
+        return scale(-1, 1);
     }
 
     @Override
     public CanvasContext mirrorY() {
-        nvgScale(nvg, 1, -1);
-        return this;
+        return scale(1, -1);
     }
 
     @Override
     public CanvasContext skewX(float angle) {
-        nvgSkewX(nvg, angle);
+        pinPath();
+        transform.mul(temp.set(1, 0, (float) Math.tan(angle), 1, 0, 0));
+        transformDirty = true;
         return this;
     }
 
     @Override
     public CanvasContext skewXDegrees(float angle) {
-        nvgSkewX(nvg, nvgDegToRad(angle));
-        return this;
+        return skewX(nvgDegToRad(angle));
     }
 
     @Override
     public CanvasContext skewY(float angle) {
-        nvgSkewY(nvg, angle);
+        pinPath();
+        transform.mul(temp.set(1, (float) Math.tan(angle), 0, 1, 0, 0));
+        transformDirty = true;
         return this;
     }
 
     @Override
     public CanvasContext skewYDegrees(float angle) {
-        nvgSkewY(nvg, nvgDegToRad(angle));
-        return this;
+        return skewY(nvgDegToRad(angle));
     }
 
     @Override
@@ -454,12 +862,7 @@ public abstract class NanoVGContext implements CanvasContext {
         if (mat == null) {
             mat = new Matrix3x2f();
         }
-        try (MemoryStack stack = MemoryStack.stackPush()) {
-            FloatBuffer buf = stack.mallocFloat(6);
-            nvgCurrentTransform(nvg, buf);
-            mat.set(buf);
-        }
-        return mat;
+        return mat.set(transform);
     }
 
     @Override
@@ -472,10 +875,7 @@ public abstract class NanoVGContext implements CanvasContext {
         if (out == null) {
             out = new Vector2f();
         }
-        Matrix3x2f t = getTransform(transform);
-        out.x = x * t.m00 + y * t.m10 + t.m20;
-        out.y = x * t.m01 + y * t.m11 + t.m21;
-        return out;
+        return transform.transformPosition(x, y, out);
     }
 
     @Override
@@ -498,11 +898,7 @@ public abstract class NanoVGContext implements CanvasContext {
         if (out == null) {
             out = new Vector2f();
         }
-        Matrix3x2f t = getTransform(transform);
-        t.invert();
-        out.x = x * t.m00 + y * t.m10 + t.m20;
-        out.y = x * t.m01 + y * t.m11 + t.m21;
-        return out;
+        return transform.invert(temp).transformPosition(x, y, out);
     }
 
     @Override
@@ -536,7 +932,14 @@ public abstract class NanoVGContext implements CanvasContext {
 
     @Override
     public CanvasContext arc(float cx, float cy, float radius, float angle1, float angle2, Winding winding) {
-        nvgArc(nvg, cx, cy, radius, angle1, angle2, winding == Winding.CLOCKWISE ? NVG_CW : NVG_CCW);
+        int dir = winding == Winding.CLOCKWISE ? NVG_CW : NVG_CCW;
+        if (recordPath) {
+            batcher.arc(cx, cy, radius, angle1, angle2, dir);
+        } else {
+            syncTransform();
+
+            nvgArc(nvg, cx, cy, radius, angle1, angle2, dir);
+        }
         return this;
     }
 
@@ -557,7 +960,13 @@ public abstract class NanoVGContext implements CanvasContext {
 
     @Override
     public CanvasContext circle(float cx, float cy, float radius) {
-        nvgCircle(nvg, cx, cy, radius);
+        if (recordPath) {
+            batcher.circle(cx, cy, radius);
+        } else {
+            syncTransform();
+
+            nvgCircle(nvg, cx, cy, radius);
+        }
         return this;
     }
 
@@ -568,7 +977,13 @@ public abstract class NanoVGContext implements CanvasContext {
 
     @Override
     public CanvasContext ellipse(float cx, float cy, float rx, float ry) {
-        nvgEllipse(nvg, cx, cy, rx, ry);
+        if (recordPath) {
+            batcher.ellipse(cx, cy, rx, ry);
+        } else {
+            syncTransform();
+
+            nvgEllipse(nvg, cx, cy, rx, ry);
+        }
         return this;
     }
 
@@ -584,7 +999,13 @@ public abstract class NanoVGContext implements CanvasContext {
 
     @Override
     public CanvasContext rect(float cx, float cy, float w, float h) {
-        nvgRect(nvg, cx, cy, w, h);
+        if (recordPath) {
+            batcher.rect(cx, cy, w, h);
+        } else {
+            syncTransform();
+
+            nvgRect(nvg, cx, cy, w, h);
+        }
         return this;
     }
 
@@ -600,7 +1021,13 @@ public abstract class NanoVGContext implements CanvasContext {
 
     @Override
     public CanvasContext roundedRect(float cx, float cy, float w, float h, float r) {
-        nvgRoundedRect(nvg, cx, cy, w, h, r);
+        if (recordPath) {
+            batcher.roundedRect(cx, cy, w, h, r);
+        } else {
+            syncTransform();
+
+            nvgRoundedRect(nvg, cx, cy, w, h, r);
+        }
         return this;
     }
 
@@ -616,7 +1043,13 @@ public abstract class NanoVGContext implements CanvasContext {
 
     @Override
     public CanvasContext roundedRect(float cx, float cy, float w, float h, float rtl, float rtr, float rbr, float rbl) {
-        nvgRoundedRectVarying(nvg, cx, cy, w, h, rtl, rtr, rbr, rbl);
+        if (recordPath) {
+            batcher.roundedRect(cx, cy, w, h, rtl, rtr, rbr, rbl);
+        } else {
+            syncTransform();
+
+            nvgRoundedRectVarying(nvg, cx, cy, w, h, rtl, rtr, rbr, rbl);
+        }
         return this;
     }
 
@@ -632,51 +1065,91 @@ public abstract class NanoVGContext implements CanvasContext {
 
     @Override
     public CanvasContext lineCap(LineCap cap) {
+        flushBatch();
         switch (cap == null ? LineCap.BUTT : cap) {
             case BUTT:
-                nvgLineCap(nvg, NVG_BUTT);
+                paint.lineCap = NVG_BUTT;
                 break;
             case ROUND:
-                nvgLineCap(nvg, NVG_ROUND);
+                paint.lineCap = NVG_ROUND;
                 break;
             case SQUARE:
-                nvgLineCap(nvg, NVG_SQUARE);
+                paint.lineCap = NVG_SQUARE;
                 break;
         }
+        nvgLineCap(nvg, paint.lineCap);
         return this;
     }
 
     @Override
     public CanvasContext lineJoin(LineJoin join) {
+        flushBatch();
         switch (join == null ? LineJoin.MITER : join) {
             case MITER:
-                nvgLineJoin(nvg, NVG_MITER);
+                paint.lineJoin = NVG_MITER;
                 break;
             case ROUND:
-                nvgLineJoin(nvg, NVG_ROUND);
+                paint.lineJoin = NVG_ROUND;
                 break;
             case BEVEL:
-                nvgLineJoin(nvg, NVG_BEVEL);
+                paint.lineJoin = NVG_BEVEL;
                 break;
         }
+        nvgLineJoin(nvg, paint.lineJoin);
         return this;
     }
 
     @Override
     public CanvasContext miterLimit(float lim) {
+        flushBatch();
+        paint.miterLimit = lim;
         nvgMiterLimit(nvg, lim);
         return this;
     }
 
     @Override
     public CanvasContext globalAlpha(float alpha) {
+        flushBatch();
+        paint.alpha = alpha;
+        paint.external = null;
         nvgGlobalAlpha(nvg, alpha);
         return this;
     }
 
+    @Override
+    public CanvasContext scissor(float x, float y, float w, float h) {
+        flushBatch();
+        syncTransform();
+        w = Math.max(0, w);
+        h = Math.max(0, h);
+        paint.scissor.set(transform).translate(x + w / 2, y + h / 2);
+        paint.scissorExtX = w / 2;
+        paint.scissorExtY = h / 2;
+        paint.external = null;
+        nvgScissor(nvg, x, y, w, h);
+        return this;
+    }
+
+    @Override
+    public CanvasContext resetScissor() {
+        flushBatch();
+        paint.scissorExtX = -1;
+        paint.scissorExtY = -1;
+        paint.external = null;
+        nvgResetScissor(nvg);
+        return this;
+    }
+
     @Override
     public CanvasContext pathWinding(Winding winding) {
-        nvgPathWinding(nvg, winding == Winding.CLOCKWISE ? NVG_CW : NVG_CCW);
+        int dir = winding == Winding.CLOCKWISE ? NVG_CW : NVG_CCW;
+        if (recordPath) {
+            batcher.pathWinding(dir);
+        } else {
+            syncTransform();
+
+            nvgPathWinding(nvg, dir);
+        }
         return this;
     }
 
@@ -702,43 +1175,49 @@ public abstract class NanoVGContext implements CanvasContext {
 
     @Override
     public CanvasContext globalCompositeBlendFunc(BlendFactor src, BlendFactor dst) {
-        nvgGlobalCompositeBlendFunc(nvg, toNvg(src, NVG_SRC_ALPHA), toNvg(dst, NVG_ONE_MINUS_SRC_ALPHA));
-        return this;
+        int s = toNvg(src, NVG_SRC_ALPHA);
+        int d = toNvg(dst, NVG_ONE_MINUS_SRC_ALPHA);
+        return globalBlend(s, d, s, d);
     }
 
     @Override
     public CanvasContext globalCompositeBlendFunc(BlendFactor srcC, BlendFactor dstC, BlendFactor srcA, BlendFactor dstA) {
-        nvgGlobalCompositeBlendFuncSeparate(
-            nvg,
+        return globalBlend(
             toNvg(srcC, NVG_SRC_ALPHA), toNvg(dstC, NVG_ONE_MINUS_SRC_ALPHA),
             toNvg(srcA, NVG_ZERO), toNvg(dstA, NVG_ONE)
         );
-        return this;
     }
 
-    private static int toNvg(CompositeOperation factor, int nullValue) {
-        if (factor == null) {
-            return nullValue;
-        }
-        switch (factor) {
-            case SRC_OVER: return NVG_SOURCE_OVER;
-            case SRC_IN: return NVG_SOURCE_IN;
-            case SRC_OUT: return NVG_SOURCE_OUT;
-            case SRC_ATOP: return NVG_ATOP;
-            case DST_OVER: return NVG_DESTINATION_OVER;
-            case DST_IN: return NVG_DESTINATION_IN;
-            case DST_OUT: return NVG_DESTINATION_OUT;
-            case DST_ATOP: return NVG_DESTINATION_ATOP;
-            case LIGHTER: return NVG_LIGHTER;
-            case COPY: return NVG_COPY;
-            case XOR: return NVG_XOR;
+    // The blend factors of each composite operation are the ones NanoVG uses for that operation
+    @Override
+    public CanvasContext globalCompositeOperation(CompositeOperation op) {
+        switch (op == null ? CompositeOperation.SRC_OVER : op) {
+            case SRC_IN: return globalBlend(NVG_DST_ALPHA, NVG_ZERO);
+            case SRC_OUT: return globalBlend(NVG_ONE_MINUS_DST_ALPHA, NVG_ZERO);
+            case SRC_ATOP: return globalBlend(NVG_DST_ALPHA, NVG_ONE_MINUS_SRC_ALPHA);
+            case DST_OVER: return globalBlend(NVG_ONE_MINUS_DST_ALPHA, NVG_ONE);
+            case DST_IN: return globalBlend(NVG_ZERO, NVG_SRC_ALPHA);
+            case DST_OUT: return globalBlend(NVG_ZERO, NVG_ONE_MINUS_SRC_ALPHA);
+            case DST_ATOP: return globalBlend(NVG_ONE_MINUS_DST_ALPHA, NVG_SRC_ALPHA);
+            case LIGHTER: return globalBlend(NVG_ONE, NVG_ONE);
+            case COPY: return globalBlend(NVG_ONE, NVG_ZERO);
+            case XOR: return globalBlend(NVG_ONE_MINUS_DST_ALPHA, NVG_ONE_MINUS_SRC_ALPHA);
+            default: return globalBlend(NVG_ONE, NVG_ONE_MINUS_SRC_ALPHA);
         }
-        return nullValue;
     }
 
-    @Override
-    public CanvasContext globalCompositeOperation(CompositeOperation op) {
-        nvgGlobalCompositeOperation(nvg, toNvg(op, NVG_SOURCE_OVER));
+    private CanvasContext globalBlend(int src, int dst) {
+        return globalBlend(src, dst, src, dst);
+    }
+
+    private CanvasContext globalBlend(int srcRgb, int dstRgb, int srcAlpha, int dstAlpha) {
+        flushBatch();
+        paint.srcRgb = srcRgb;
+        paint.dstRgb = dstRgb;
+        paint.srcAlpha = srcAlpha;
+        paint.dstAlpha = dstAlpha;
+        paint.external = null;
+        nvgGlobalCompositeBlendFuncSeparate(nvg, srcRgb, dstRgb, srcAlpha, dstAlpha);
         return this;
     }
 
@@ -804,7 +1283,8 @@ public abstract class NanoVGContext implements CanvasContext {
 
     @Override
     public CanvasContext glyph(int cp, float srcX, float srcY, float fontSize, Font font) {
-        pathGlyph(font.glyphIndex(cp), srcX, srcY, fontSize, font);
+        Font glyphFont = font.forCodepoint(cp);
+        pathGlyph(glyphFont.glyphIndex(cp), srcX, srcY, fontSize, glyphFont);
         return this;
     }
 
@@ -813,6 +1293,61 @@ public abstract class NanoVGContext implements CanvasContext {
         return glyph((int) ch, srcX, srcY, fontSize, font);
     }
 
+    @Override
+    public CanvasContext sdfGlyph(int cp, float srcX, float srcY, float fontSize, Font font, int fillArgb, int strokeArgb, float strokeWidth) {
+        beginPath();
+        glyph(cp, srcX, srcY, fontSize, font);
+        if (ColorUtil.alphai(fillArgb) != 0) {
+            fillColor(fillArgb);
+            fill();
+        }
+        if (strokeWidth > 0 && ColorUtil.alphai(strokeArgb) != 0) {
+            strokeColor(strokeArgb);
+            strokeWidth(strokeWidth);
+            stroke();
+        }
+        return this;
+    }
+
+    @Override
+    public CanvasContext shapes(ShapeInstances instances, int strokeArgb, float strokeWidth) {
+        boolean stroke = strokeWidth > 0 && ColorUtil.alphai(strokeArgb) != 0;
+        float[] geometry = instances.geometry();
+        int[] colors = instances.colors();
+        boolean ellipse = instances.getKind() == ShapeInstances.Kind.ELLIPSE;
+
+        for (int i = 0, n = instances.size(); i < n; i++) {
+            int g = i * ShapeInstances.STRIDE;
+            float x = geometry[g], y = geometry[g + 1];
+            float w = geometry[g + 2], h = geometry[g + 3];
+            float rotation = geometry[g + 4];
+            int color = colors[i];
+            boolean fill = ColorUtil.alphai(color) != 0;
+            if (!fill && !stroke) continue;
+
+            pushTransform();
+            translate(x, y);
+            if (rotation != 0) rotate(rotation);
+            beginPath();
+            if (ellipse) {
+                ellipse(0, 0, w / 2, h / 2);
+            } else {
+                rect(-w / 2, -h / 2, w, h);
+            }
+            if (fill) {
+                fillColor(color);
+                fill();
+            }
+            if (stroke) {
+                strokeColor(strokeArgb);
+                strokeWidth(strokeWidth);
+                stroke();
+            }
+            popTransform();
+        }
+        return this;
+    }
+
     private float curX, curY;
 
     @Override
@@ -832,9 +1367,88 @@ public abstract class NanoVGContext implements CanvasContext {
         curY = srcY;
         for (String ln : lns) {
             curX = srcX;
-            ln.codePoints().forEachOrdered(i -> curX = pathGlyph(font.glyphIndex(i), curX, curY, fontSize, font));
+            ln.codePoints().forEachOrdered(i -> {
+                Font glyphFont = font.forCodepoint(i);
+                curX = pathGlyph(glyphFont.glyphIndex(i), curX, curY, fontSize, glyphFont);
+            });
             curY += hgt;
         }
         return this;
     }
+
+    private static final class RenderState {
+        int fillArgb;
+        boolean fillSolid;
+        int strokeArgb;
+        boolean strokeSolid;
+        float strokeWidth;
+        float miterLimit;
+        int lineCap;
+        int lineJoin;
+        float alpha;
+        int srcRgb;
+        int dstRgb;
+        int srcAlpha;
+        int dstAlpha;
+
+        // Paints other than colors, in view coordinates
+        final NVGPaint fillPaint = NVGPaint.calloc();
+        final NVGPaint strokePaint = NVGPaint.calloc();
+
+        // The scissor transform in view coordinates and the half extent of the scissor, negative without scissor
+        final Matrix3x2f scissor = new Matrix3x2f();
+        float scissorExtX;
+        float scissorExtY;
+
+        ExternalState external;
+
+        RenderState() {
+            reset();
+        }
+
+        void reset() {
+            // Same as the defaults of NanoVG
+            fillArgb = 0xFFFFFFFF;
+            fillSolid = true;
+            strokeArgb = 0xFF000000;
+            strokeSolid = true;
+            strokeWidth = 1;
+            miterLimit = 10;
+            lineCap = NVG_BUTT;
+            lineJoin = NVG_MITER;
+            alpha = 1;
+            srcRgb = srcAlpha = NVG_ONE;
+            dstRgb = dstAlpha = NVG_ONE_MINUS_SRC_ALPHA;
+            scissor.identity();
+            scissorExtX = scissorExtY = -1;
+            external = null;
+        }
+
+        void set(RenderState state) {
+            fillArgb = state.fillArgb;
+            fillSolid = state.fillSolid;
+            strokeArgb = state.strokeArgb;
+            strokeSolid = state.strokeSolid;
+            strokeWidth = state.strokeWidth;
+            miterLimit = state.miterLimit;
+            lineCap = state.lineCap;
+            lineJoin = state.lineJoin;
+            alpha = state.alpha;
+            srcRgb = state.srcRgb;
+            dstRgb = state.dstRgb;
+            srcAlpha = state.srcAlpha;
+            dstAlpha = state.dstAlpha;
+            fillPaint.set(state.fillPaint);
+            strokePaint.set(state.strokePaint);
+            scissor.set(state.scissor);
+            scissorExtX = state.scissorExtX;
+            scissorExtY = state.scissorExtY;
+            external = state.external;
+        }
+
+        void free() {
+            fillPaint.free();
+            strokePaint.free();
+        }
+    }
 }
@@ -0,0 +1,356 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.shadew.flow.view.canvas2d.context;
+
+import org.joml.Matrix3x2fc;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.shadew.flow.util.Disposable;
+import net.shadew.flow.util.Font;
+import net.shadew.flow.util.SdfGlyphAtlas;
+
+import static org.lwjgl.opengl.GL32.*;
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * Draws glyphs as textured quads from signed distance field atlases, using a GL 3.2 core shader. Quads are queued with
+ * their final view coordinates and drawn in as few draw calls as possible when flushed, one per run of glyphs that
+ * share an atlas and render state.
+ */
+final class SdfTextRenderer implements NanoVGContext.ExternalBatch, Disposable {
+    private static final String VERTEX_SHADER = String.join("\n",
+        "#version 150 core",
+        "uniform vec2 viewSize;",
+        "uniform vec2 atlasSize;",
+        "in vec2 pos;",
+        "in vec2 uv;",
+        "in vec4 fill;",
+        "in vec4 stroke;",
+        "in float halfStroke;",
+        "out vec2 fPos;",
+        "out vec2 fUv;",
+        "out vec4 fFill;",
+        "out vec4 fStroke;",
+        "out float fHalfStroke;",
+        "void main() {",
+        "    fPos = pos;",
+        "    fUv = uv / atlasSize;",
+        "    fFill = fill;",
+        "    fStroke = stroke;",
+        "    fHalfStroke = halfStroke;",
+        "    gl_Position = vec4(2.0 * pos.x / viewSize.x - 1.0, 1.0 - 2.0 * pos.y / viewSize.y, 0.0, 1.0);",
+        "}"
+    );
+
+    private static final String FRAGMENT_SHADER = String.join("\n",
+        "#version 150 core",
+        "uniform sampler2D atlas;",
+        ExternalStateUniforms.GLSL,
+        "in vec2 fPos;",
+        "in vec2 fUv;",
+        "in vec4 fFill;",
+        "in vec4 fStroke;",
+        "in float fHalfStroke;",
+        "out vec4 outColor;",
+        "void main() {",
+        "    float d = texture(atlas, fUv).r;",
+        "    float w = max(fwidth(d) * 0.5, 0.0001);",
+        "    vec4 color = vec4(fFill.rgb, 1.0) * fFill.a * smoothstep(0.5 - w, 0.5 + w, d);",
+        "    if (fHalfStroke > 0.0) {",
+        "        float inner = smoothstep(0.5 - fHalfStroke - w, 0.5 - fHalfStroke + w, d);",
+        "        float outer = smoothstep(0.5 + fHalfStroke - w, 0.5 + fHalfStroke + w, d);",
+        "        vec4 s = vec4(fStroke.rgb, 1.0) * fStroke.a * inner * (1.0 - outer);",
+        "        color = s + color * (1.0 - s.a);",
+        "    }",
+        "    outColor = color * stateMask(fPos);",
+        "}"
+    );
+
+    private static final int STRIDE = 32;
+    private static final int VERTICES_PER_GLYPH = 6;
+
+    // Half strokes wider than this exceed the padding of the distance field
+    private static final float MAX_HALF_STROKE = 0.45f;
+
+    // Keyed by font data, so fonts that share their data share an atlas
+    private final Map<Object, AtlasTexture> atlases = new HashMap<>();
+    private final List<Run> runs = new ArrayList<>();
+
+    private ByteBuffer vertices = memAlloc(STRIDE * VERTICES_PER_GLYPH * 256);
+    private int vertexCount;
+
+    private int program;
+    private int vao;
+    private int vbo;
+    private int viewSizeLoc;
+    private int atlasSizeLoc;
+    private ExternalStateUniforms stateUniforms;
+
+    /**
+     * Returns the atlas glyph for a glyph of a font, or null if the atlas of the font is full.
+     */
+    SdfGlyphAtlas.Glyph glyph(Font font, int glyphIndex) {
+        return atlas(font).atlas.glyph(glyphIndex);
+    }
+
+    private AtlasTexture atlas(Font font) {
+        return atlases.computeIfAbsent(font.getDataKey(), k -> new AtlasTexture(new SdfGlyphAtlas(font)));
+    }
+
+    /**
+     * Queues a glyph, previously obtained from {@link #glyph}, at the given origin in local coordinates.
+     */
+    void add(Font font, SdfGlyphAtlas.Glyph glyph, float x, float y, float fontSize, Matrix3x2fc transform, int fillArgb, int strokeArgb, float strokeWidth, NanoVGContext.ExternalState state) {
+        AtlasTexture atlas = atlas(font);
+        Run last = runs.isEmpty() ? null : runs.get(runs.size() - 1);
+        if (last == null || last.atlas != atlas || last.state != state) {
+            last = new Run(atlas, state, vertexCount);
+            runs.add(last);
+        }
+
+        float k = fontSize / SdfGlyphAtlas.BASE_SIZE;
+        float x0 = x + glyph.xoff * k;
+        float y0 = y + glyph.yoff * k;
+        float x1 = x0 + glyph.width * k;
+        float y1 = y0 + glyph.height * k;
+
+        float halfStroke = 0;
+        if (strokeWidth > 0 && (strokeArgb >>> 24) != 0) {
+            halfStroke = strokeWidth / 2 / k * SdfGlyphAtlas.PIXEL_DIST_SCALE / 255;
+            halfStroke = Math.min(halfStroke, MAX_HALF_STROKE);
+        }
+
+        ensureCapacity(VERTICES_PER_GLYPH);
+        int u0 = glyph.x, v0 = glyph.y, u1 = glyph.x + glyph.width, v1 = glyph.y + glyph.height;
+        vertex(transform, x0, y0, u0, v0, fillArgb, strokeArgb, halfStroke);
+        vertex(transform, x1, y0, u1, v0, fillArgb, strokeArgb, halfStroke);
+        vertex(transform, x1, y1, u1, v1, fillArgb, strokeArgb, halfStroke);
+        vertex(transform, x0, y0, u0, v0, fillArgb, strokeArgb, halfStroke);
+        vertex(transform, x1, y1, u1, v1, fillArgb, strokeArgb, halfStroke);
+        vertex(transform, x0, y1, u0, v1, fillArgb, strokeArgb, halfStroke);
+        last.count += VERTICES_PER_GLYPH;
+    }
+
+    private void vertex(Matrix3x2fc t, float x, float y, float u, float v, int fill, int stroke, float halfStroke) {
+        int i = vertexCount * STRIDE;
+        vertices.putFloat(i, t.m00() * x + t.m10() * y + t.m20());
+        vertices.putFloat(i + 4, t.m01() * x + t.m11() * y + t.m21());
+        vertices.putFloat(i + 8, u);
+        vertices.putFloat(i + 12, v);
+        putColor(i + 16, fill);
+        putColor(i + 20, stroke);
+        vertices.putFloat(i + 24, halfStroke);
+        vertexCount++;
+    }
+
+    private void putColor(int i, int argb) {
+        vertices.put(i, (byte) (argb >>> 16));
+        vertices.put(i + 1, (byte) (argb >>> 8));
+        vertices.put(i + 2, (byte) argb);
+        vertices.put(i + 3, (byte) (argb >>> 24));
+    }
+
+    private void ensureCapacity(int extraVertices) {
+        int needed = (vertexCount + extraVertices) * STRIDE;
+        if (needed > vertices.capacity()) {
+            vertices = memRealloc(vertices, Math.max(needed, vertices.capacity() * 2));
+        }
+    }
+
+    @Override
+    public void flush(float width, float height, float pixelRatio) {
+        if (vertexCount == 0) return;
+        if (program == 0) {
+            setup();
+        }
+
+        glUseProgram(program);
+        glUniform2f(viewSizeLoc, width, height);
+
+        glBindVertexArray(vao);
+        glBindBuffer(GL_ARRAY_BUFFER, vbo);
+        vertices.position(0).limit(vertexCount * STRIDE);
+        glBufferData(GL_ARRAY_BUFFER, vertices, GL_STREAM_DRAW);
+        vertices.clear();
+
+        glEnable(GL_BLEND);
+        glDisable(GL_CULL_FACE);
+        glDisable(GL_DEPTH_TEST);
+        glDisable(GL_STENCIL_TEST);
+        glDisable(GL_SCISSOR_TEST);
+        glActiveTexture(GL_TEXTURE0);
+
+        NanoVGContext.ExternalState applied = null;
+        for (Run run : runs) {
+            if (run.state != applied) {
+                stateUniforms.apply(run.state, pixelRatio);
+                applied = run.state;
+            }
+            run.atlas.upload();
+            glUniform2f(atlasSizeLoc, run.atlas.atlas.getWidth(), run.atlas.atlas.getHeight());
+            glDrawArrays(GL_TRIANGLES, run.first, run.count);
+        }
+
+        glBindTexture(GL_TEXTURE_2D, 0);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        glBindVertexArray(0);
+        glUseProgram(0);
+
+        runs.clear();
+        vertexCount = 0;
+    }
+
+    private void setup() {
+        int vs = compile(GL_VERTEX_SHADER, VERTEX_SHADER);
+        int fs = compile(GL_FRAGMENT_SHADER, FRAGMENT_SHADER);
+        program = glCreateProgram();
+        glAttachShader(program, vs);
+        glAttachShader(program, fs);
+        glBindAttribLocation(program, 0, "pos");
+        glBindAttribLocation(program, 1, "uv");
+        glBindAttribLocation(program, 2, "fill");
+        glBindAttribLocation(program, 3, "stroke");
+        glBindAttribLocation(program, 4, "halfStroke");
+        glLinkProgram(program);
+        glDeleteShader(vs);
+        glDeleteShader(fs);
+        if (glGetProgrami(program, GL_LINK_STATUS) == GL_FALSE) {
+            throw new IllegalStateException("Failed to link SDF text shader: " + glGetProgramInfoLog(program));
+        }
+
+        viewSizeLoc = glGetUniformLocation(program, "viewSize");
+        atlasSizeLoc = glGetUniformLocation(program, "atlasSize");
+        stateUniforms = new ExternalStateUniforms(program);
+        glUseProgram(program);
+        glUniform1i(glGetUniformLocation(program, "atlas"), 0);
+        glUseProgram(0);
+
+        vao = glGenVertexArrays();
+        vbo = glGenBuffers();
+        glBindVertexArray(vao);
+        glBindBuffer(GL_ARRAY_BUFFER, vbo);
+        glEnableVertexAttribArray(0);
+        glEnableVertexAttribArray(1);
+        glEnableVertexAttribArray(2);
+        glEnableVertexAttribArray(3);
+        glEnableVertexAttribArray(4);
+        glVertexAttribPointer(0, 2, GL_FLOAT, false, STRIDE, 0);
+        glVertexAttribPointer(1, 2, GL_FLOAT, false, STRIDE, 8);
+        glVertexAttribPointer(2, 4, GL_UNSIGNED_BYTE, true, STRIDE, 16);
+        glVertexAttribPointer(3, 4, GL_UNSIGNED_BYTE, true, STRIDE, 20);
+        glVertexAttribPointer(4, 1, GL_FLOAT, false, STRIDE, 24);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        glBindVertexArray(0);
+    }
+
+    private static int compile(int type, String source) {
+        int shader = glCreateShader(type);
+        glShaderSource(shader, source);
+        glCompileShader(shader);
+        if (glGetShaderi(shader, GL_COMPILE_STATUS) == GL_FALSE) {
+            String log = glGetShaderInfoLog(shader);
+            glDeleteShader(shader);
+            throw new IllegalStateException("Failed to compile SDF text shader: " + log);
+        }
+        return shader;
+    }
+
+    @Override
+    public void dispose() {
+        for (AtlasTexture atlas : atlases.values()) {
+            atlas.dispose();
+        }
+        atlases.clear();
+        if (program != 0) {
+            glDeleteProgram(program);
+            glDeleteVertexArrays(vao);
+            glDeleteBuffers(vbo);
+            program = 0;
+        }
+        memFree(vertices);
+    }
+
+    private static class Run {
+        final AtlasTexture atlas;
+        final NanoVGContext.ExternalState state;
+        final int first;
+        int count;
+
+        Run(AtlasTexture atlas, NanoVGContext.ExternalState state, int first) {
+            this.atlas = atlas;
+            this.state = state;
+            this.first = first;
+        }
+    }
+
+    private static class AtlasTexture implements Disposable {
+        final SdfGlyphAtlas atlas;
+        int texture;
+        int textureHeight;
+        int version = -1;
+
+        AtlasTexture(SdfGlyphAtlas atlas) {
+            this.atlas = atlas;
+        }
+
+        // Binds the texture, uploading the rows of the atlas that changed since the last upload
+        void upload() {
+            if (texture == 0) {
+                texture = glGenTextures();
+                glBindTexture(GL_TEXTURE_2D, texture);
+                glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
+                glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
+                glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+                glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+            } else {
+                glBindTexture(GL_TEXTURE_2D, texture);
+            }
+            if (version == atlas.getVersion()) return;
+
+            int w = atlas.getWidth();
+            ByteBuffer pixels = atlas.getPixels();
+            glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+            if (textureHeight != atlas.getHeight()) {
+                textureHeight = atlas.getHeight();
+                pixels.position(0).limit(w * textureHeight);
+                glTexImage2D(GL_TEXTURE_2D, 0, GL_R8, w, textureHeight, 0, GL_RED, GL_UNSIGNED_BYTE, pixels);
+            } else {
+                int from = atlas.getDirtyFrom();
+                int to = atlas.getDirtyTo();
+                pixels.position(from * w).limit(to * w);
+                glTexSubImage2D(GL_TEXTURE_2D, 0, 0, from, w, to - from, GL_RED, GL_UNSIGNED_BYTE, pixels);
+            }
+            pixels.clear();
+            atlas.clean();
+            version = atlas.getVersion();
+        }
+
+        @Override
+        public void dispose() {
+            if (texture != 0) {
+                glDeleteTextures(texture);
+            }
+            atlas.dispose();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.shadew.flow.view.canvas2d.context;
+
+import java.util.Arrays;
+
+/**
+ * A list of many primitive shapes of the same kind, drawn at once with {@link CanvasContext#shapes}. Every instance has
+ * a center, a size, a rotation and a fill color. Instances are drawn in order.
+ */
+public final class ShapeInstances {
+    static final int STRIDE = 5;
+
+    private final Kind kind;
+    private float[] geometry = new float[STRIDE * 16];
+    private int[] colors = new int[16];
+    private int count;
+
+    public ShapeInstances(Kind kind) {
+        this.kind = kind;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Adds an instance and returns its index.
+     */
+    public int add(float x, float y, float width, float height, float rotation, int argb) {
+        if (count == colors.length) {
+            colors = Arrays.copyOf(colors, count * 2);
+            geometry = Arrays.copyOf(geometry, count * 2 * STRIDE);
+        }
+        int i = count++;
+        set(i, x, y, width, height, rotation, argb);
+        return i;
+    }
+
+    public void set(int i, float x, float y, float width, float height, float rotation, int argb) {
+        checkIndex(i);
+        int g = i * STRIDE;
+        geometry[g] = x;
+        geometry[g + 1] = y;
+        geometry[g + 2] = width;
+        geometry[g + 3] = height;
+        geometry[g + 4] = rotation;
+        colors[i] = argb;
+    }
+
+    public void setPosition(int i, float x, float y) {
+        checkIndex(i);
+        geometry[i * STRIDE] = x;
+        geometry[i * STRIDE + 1] = y;
+    }
+
+    public void setSize(int i, float width, float height) {
+        checkIndex(i);
+        geometry[i * STRIDE + 2] = width;
+        geometry[i * STRIDE + 3] = height;
+    }
+
+    public void setRotation(int i, float rotation) {
+        checkIndex(i);
+        geometry[i * STRIDE + 4] = rotation;
+    }
+
+    public void setColor(int i, int argb) {
+        checkIndex(i);
+        colors[i] = argb;
+    }
+
+    public float getX(int i) {
+        checkIndex(i);
+        return geometry[i * STRIDE];
+    }
+
+    public float getY(int i) {
+        checkIndex(i);
+        return geometry[i * STRIDE + 1];
+    }
+
+    public float getWidth(int i) {
+        checkIndex(i);
+        return geometry[i * STRIDE + 2];
+    }
+
+    public float getHeight(int i) {
+        checkIndex(i);
+        return geometry[i * STRIDE + 3];
+    }
+
+    public float getRotation(int i) {
+        checkIndex(i);
+        return geometry[i * STRIDE + 4];
+    }
+
+    public int getColor(int i) {
+        checkIndex(i);
+        return colors[i];
+    }
+
+    /**
+     * Removes an instance, shifting the instances after it down by one.
+     */
+    public void remove(int i) {
+        checkIndex(i);
+        System.arraycopy(geometry, (i + 1) * STRIDE, geometry, i * STRIDE, (count - i - 1) * STRIDE);
+        System.arraycopy(colors, i + 1, colors, i, count - i - 1);
+        count--;
+    }
+
+    public void clear() {
+        count = 0;
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= count) {
+            throw new IndexOutOfBoundsException("Instance " + i + " out of bounds for " + count + " instances");
+        }
+    }
+
+    // Raw access for renderers: x, y, width, height and rotation of each instance, in order
+    float[] geometry() {
+        return geometry;
+    }
+
+    int[] colors() {
+        return colors;
+    }
+
+    public enum Kind {
+        RECTANGLE,
+        ELLIPSE
+    }
+}
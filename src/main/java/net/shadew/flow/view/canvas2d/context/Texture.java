@@ -26,4 +26,10 @@ public interface Texture extends Disposable {
     int REPEAT_Y = NanoVG.NVG_IMAGE_REPEATY;
     int FLIP_VERTICAL = NanoVG.NVG_IMAGE_FLIPY;
     int NEAREST = NanoVG.NVG_IMAGE_NEAREST;
+
+    /**
+     * Only for {@linkplain NanoVGContext#wrapTexture wrapped} textures: the GL texture is not deleted when this texture
+     * is disposed. Each backend maps this flag to its own flag.
+     */
+    int NO_DELETE = 1 << 16;
 }
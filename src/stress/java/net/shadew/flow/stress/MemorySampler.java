@@ -0,0 +1,88 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.shadew.flow.stress;
+
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import net.shadew.flow.profile.Profiler;
+import net.shadew.flow.profile.ProfilerListener;
+
+/**
+ * Samples heap and direct buffer usage after every frame and keeps the peaks. Memory allocated by LWJGL and native
+ * libraries is not visible to the JVM, so the peak resident set size of the process is read from the OS as well, where
+ * supported (Linux).
+ */
+public class MemorySampler implements ProfilerListener {
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final BufferPoolMXBean direct = findDirectPool();
+
+    private long peakHeap;
+    private long peakDirect;
+
+    private static BufferPoolMXBean findDirectPool() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) {
+                return pool;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void frameFinished(Profiler profiler) {
+        peakHeap = Math.max(peakHeap, memory.getHeapMemoryUsage().getUsed());
+        if (direct != null) {
+            peakDirect = Math.max(peakDirect, direct.getMemoryUsed());
+        }
+    }
+
+    public long getPeakHeap() {
+        return peakHeap;
+    }
+
+    public long getPeakDirect() {
+        return peakDirect;
+    }
+
+    /**
+     * Returns the peak resident set size of this process in bytes, or -1 when unknown.
+     */
+    public static long getPeakResident() {
+        Path status = Paths.get("/proc/self/status");
+        if (!Files.isReadable(status)) {
+            return -1;
+        }
+        try {
+            List<String> lines = Files.readAllLines(status, StandardCharsets.UTF_8);
+            for (String line : lines) {
+                if (line.startsWith("VmHWM:")) {
+                    String kb = line.substring(6).trim().split("\\s+")[0];
+                    return Long.parseLong(kb) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException ignored) {
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.shadew.flow.stress;
+
+import net.shadew.flow.animation.Timeline;
+import net.shadew.flow.flat.RootNode;
+import net.shadew.flow.util.Font;
+
+/**
+ * A generated stress scene. Scenes are generated from a fixed seed so that every run renders exactly the same frames.
+ */
+public interface Scenario {
+    String name();
+
+    void build(RootNode root, Timeline timeline, Font font);
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.shadew.flow.stress;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import net.shadew.flow.animation.ColorPropertyAnimation;
+import net.shadew.flow.animation.Easing;
+import net.shadew.flow.animation.FloatPropertyAnimation;
+import net.shadew.flow.animation.Timeline;
+import net.shadew.flow.flat.EmptyNode;
+import net.shadew.flow.flat.Node2D;
+import net.shadew.flow.flat.RootNode;
+import net.shadew.flow.flat.animations.RotateAnimation;
+import net.shadew.flow.flat.animations.TranslateAnimation;
+import net.shadew.flow.flat.shapes.AbstractShape;
+import net.shadew.flow.flat.shapes.Circle;
+import net.shadew.flow.flat.shapes.Rectangle;
+import net.shadew.flow.flat.shapes.Text;
+import net.shadew.flow.util.Font;
+
+public final class Scenarios {
+    private static final long SEED = 0x5EED;
+
+    private Scenarios() {
+    }
+
+    public static List<Scenario> all() {
+        return Arrays.asList(
+            scenario("shapes10k", Scenarios::shapes),
+            scenario("glyphs50k", Scenarios::glyphs),
+            scenario("transforms5k", Scenarios::transforms),
+            scenario("deepHierarchy", Scenarios::deepHierarchy)
+        );
+    }
+
+    public static Scenario byName(String name) {
+        for (Scenario scenario : all()) {
+            if (scenario.name().equals(name)) {
+                return scenario;
+            }
+        }
+        throw new IllegalArgumentException("Unknown scenario: " + name);
+    }
+
+    private static Scenario scenario(String name, Builder builder) {
+        return new Scenario() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public void build(RootNode root, Timeline timeline, Font font) {
+                builder.build(root, timeline, font, new Random(SEED));
+            }
+        };
+    }
+
+    // 10000 filled and stroked shapes in a grid, a tenth of them with a color and size tween
+    private static void shapes(RootNode root, Timeline timeline, Font font, Random rng) {
+        root.setBackgroundColor(0xFFFFFFFF);
+        for (int i = 0; i < 10000; i++) {
+            float x = (i % 125) * 15.36f + 7.68f;
+            float y = (i / 125) * 13.5f + 6.75f;
+
+            AbstractShape shape;
+            if (i % 2 == 0) {
+                Rectangle rect = new Rectangle();
+                rect.setSize(10, 8);
+                shape = rect;
+            } else {
+                Circle circle = new Circle();
+                circle.setRadius(5);
+                shape = circle;
+            }
+            shape.translate(x, y);
+            shape.setFillColor(0xFF000000 | rng.nextInt(0xFFFFFF));
+            shape.setStrokeColor(0xFF000000);
+            shape.setStrokeWidth(1);
+            root.appendChild(shape);
+
+            if (i % 10 == 0) {
+                AbstractShape s = shape;
+                timeline.append(
+                    new ColorPropertyAnimation(s::getFillColor, s::setFillColor)
+                        .target(0xFF000000 | rng.nextInt(0xFFFFFF))
+                        .start(rng.nextDouble()).duration(1).easing(Easing.EASE_IN_OUT)
+                );
+                timeline.append(
+                    new FloatPropertyAnimation(s::getStrokeWidth, s::setStrokeWidth)
+                        .target(3)
+                        .start(rng.nextDouble()).duration(1).easing(Easing.QUAD_IN_OUT)
+                );
+            }
+        }
+    }
+
+    // 250 text nodes of 200 glyphs each, writing in over the course of the render
+    private static void glyphs(RootNode root, Timeline timeline, Font font, Random rng) {
+        root.setBackgroundColor(0xFFFFFFFF);
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < 5; i++) {
+            if (i > 0) line.append('\n');
+            for (int j = 0; j < 40; j++) {
+                line.append((char) ('!' + rng.nextInt(94)));
+            }
+        }
+        for (int i = 0; i < 250; i++) {
+            Text text = new Text();
+            text.setFont(font);
+            text.setSize(12);
+            text.setText(line.toString());
+            text.setFillColor(0xFF000000);
+            text.setWriteMotionX(10);
+            text.translate((i % 10) * 192 + 96, (i / 10) * 43f + 10);
+            root.appendChild(text);
+
+            text.setWriteProgress(0);
+            timeline.append(
+                new FloatPropertyAnimation(text::getWriteProgress, text::setWriteProgress)
+                    .target(1).start(i % 10 * 0.1).duration(1).easing(Easing.CUBIC_OUT)
+            );
+        }
+    }
+
+    // 2500 shapes with a translate and a rotate animation each, 5000 transform animations in total
+    private static void transforms(RootNode root, Timeline timeline, Font font, Random rng) {
+        root.setBackgroundColor(0xFF202020);
+        for (int i = 0; i < 2500; i++) {
+            Rectangle rect = new Rectangle();
+            rect.setSize(12, 12);
+            rect.setFillColor(0xFF000000 | rng.nextInt(0xFFFFFF));
+            rect.translate(rng.nextFloat() * 1920, rng.nextFloat() * 1080);
+            root.appendChild(rect);
+
+            double start = rng.nextDouble();
+            timeline.append(
+                new TranslateAnimation(rect)
+                    .offset(rng.nextFloat() * 200 - 100, rng.nextFloat() * 200 - 100)
+                    .start(start).duration(1).easing(Easing.EASE)
+            );
+            timeline.append(
+                new RotateAnimation(rect)
+                    .angle((float) Math.PI * 2)
+                    .start(start).duration(1).repeat(0).easing(Easing.LINEAR)
+            );
+        }
+    }
+
+    // 50 chains of 200 nested transformed nodes each, rotating at the roots
+    private static void deepHierarchy(RootNode root, Timeline timeline, Font font, Random rng) {
+        root.setBackgroundColor(0xFFFFFFFF);
+        for (int i = 0; i < 50; i++) {
+            Node2D chain = new EmptyNode();
+            chain.translate((i % 10) * 192 + 96, (i / 10) * 216f + 108);
+            root.appendChild(chain);
+
+            timeline.append(new RotateAnimation(chain).angle((float) Math.PI).start(0).duration(2));
+
+            Node2D parent = chain;
+            for (int j = 0; j < 200; j++) {
+                Circle circle = new Circle();
+                circle.setRadius(2);
+                circle.setFillColor(0xFF000000 | rng.nextInt(0xFFFFFF));
+                circle.translate(0.4f, 0);
+                circle.rotate(0.05f);
+                parent.appendChild(circle);
+                parent = circle;
+            }
+        }
+    }
+
+    private interface Builder {
+        void build(RootNode root, Timeline timeline, Font font, Random rng);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.shadew.flow.stress;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import net.shadew.flow.profile.Phase;
+import net.shadew.flow.profile.Profiler;
+
+/**
+ * The outcome of rendering one scenario, serialized with Gson for baselines.
+ */
+public class StressResult {
+    public String scenario;
+    public String sink;
+    public int width;
+    public int height;
+    public int samples;
+    public long frames;
+    public double seconds;
+    public double fps;
+    public long peakHeapBytes;
+    public long peakDirectBytes;
+    public long peakResidentBytes;
+    public Map<String, Double> phaseMeanMs = new LinkedHashMap<>();
+
+    static StressResult of(String scenario, String sink, int width, int height, int samples, Profiler profiler, MemorySampler memory) {
+        StressResult result = new StressResult();
+        result.scenario = scenario;
+        result.sink = sink;
+        result.width = width;
+        result.height = height;
+        result.samples = samples;
+        result.frames = profiler.getFramesDone();
+        result.seconds = profiler.getElapsedSeconds();
+        result.fps = result.frames / Math.max(result.seconds, 1e-9);
+        result.peakHeapBytes = memory.getPeakHeap();
+        result.peakDirectBytes = memory.getPeakDirect();
+        result.peakResidentBytes = MemorySampler.getPeakResident();
+        for (Phase phase : profiler.getPhases()) {
+            if (phase.getCount() > 0) {
+                result.phaseMeanMs.put(phase.getName(), phase.getMeanNanos() / 1e6);
+            }
+        }
+        return result;
+    }
+
+    public String key() {
+        return scenario + "-" + sink;
+    }
+}
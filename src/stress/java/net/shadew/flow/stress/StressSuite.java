@@ -0,0 +1,223 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.shadew.flow.stress;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.lwjgl.nanovg.NanoVGGL3;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import net.shadew.flow.animation.Timeline;
+import net.shadew.flow.flat.FlatStage;
+import net.shadew.flow.output.*;
+import net.shadew.flow.util.Font;
+import net.shadew.flow.view.ViewStack;
+import net.shadew.flow.view.canvas2d.context.GL3NanoVGContext;
+
+/**
+ * Renders generated stress scenes end to end through {@link OutputContext} and {@link WriteOutput}, and reports
+ * throughput, per-phase times and peak memory. Results are written to {@code build/reports/stress} and compared against
+ * the baselines in {@code src/stress/baselines}, when present. No baselines are shipped, since the numbers depend on
+ * the machine and GL driver: record them on the reference machine with {@code --save-baseline} and commit the written
+ * files. Without baselines, results are reported without comparison.
+ *
+ * Arguments:
+ * <ul>
+ * <li>{@code --scenarios a,b,c}: scenarios to run, all by default</li>
+ * <li>{@code --sinks void,png,mp4}: sinks to render into, {@code void} by default</li>
+ * <li>{@code --frames n}: frames to render per scenario, 120 by default</li>
+ * <li>{@code --size WxH}: output size, 1920x1080 by default</li>
+ * <li>{@code --samples n}: MSAA samples, 4 by default</li>
+ * <li>{@code --save-baseline}: store the results as new baselines in {@code src/stress/baselines}</li>
+ * </ul>
+ *
+ * The suite needs a display for GLFW, on a headless machine run it through {@code xvfb-run}. Set
+ * {@code LIBGL_ALWAYS_SOFTWARE=1} to render with Mesa's software driver for results that don't depend on the GPU.
+ */
+public class StressSuite {
+    private static final int FPS = 60;
+    private static final File REPORTS = new File("build/reports/stress");
+    private static final File BASELINES = new File("src/stress/baselines");
+    private static final File OUTPUT = new File("build/stress-output");
+
+    private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+    private List<String> scenarios = new ArrayList<>();
+    private List<String> sinks = new ArrayList<>();
+    private int frames = 120;
+    private int width = 1920;
+    private int height = 1080;
+    private int samples = 4;
+    private boolean saveBaseline;
+
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--scenarios":
+                    for (String s : args[++i].split(",")) scenarios.add(s);
+                    break;
+                case "--sinks":
+                    for (String s : args[++i].split(",")) sinks.add(s);
+                    break;
+                case "--frames":
+                    frames = Integer.parseInt(args[++i]);
+                    break;
+                case "--size":
+                    String[] size = args[++i].split("x");
+                    width = Integer.parseInt(size[0]);
+                    height = Integer.parseInt(size[1]);
+                    break;
+                case "--samples":
+                    samples = Integer.parseInt(args[++i]);
+                    break;
+                case "--save-baseline":
+                    saveBaseline = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+        if (scenarios.isEmpty()) {
+            for (Scenario scenario : Scenarios.all()) scenarios.add(scenario.name());
+        }
+        if (sinks.isEmpty()) {
+            sinks.add("void");
+        }
+    }
+
+    private Sink createSink(String sink, String scenario) {
+        switch (sink) {
+            case "void":
+                return new VoidSink();
+            case "png":
+                return new PngSink(new File(OUTPUT, scenario + "/frame_%05d.png").getPath());
+            case "jpg":
+                return new JpgSink(new File(OUTPUT, scenario + "/frame_%05d.jpg").getPath(), 90);
+            case "bmp":
+                return new BmpSink(new File(OUTPUT, scenario + "/frame_%05d.bmp").getPath());
+            case "mp4":
+                return new MP4Sink(new File(OUTPUT, scenario + ".mp4").getPath());
+            default:
+                throw new IllegalArgumentException("Unknown sink: " + sink);
+        }
+    }
+
+    private StressResult run(Scenario scenario, String sinkName) throws IOException {
+        Font font = Font.load(new FileInputStream("test_fonts/JetBrainsMono-Regular.ttf"));
+        font.init();
+
+        try {
+            ViewStack viewStack = new ViewStack();
+            Timeline timeline = new Timeline();
+            FlatStage stage = new FlatStage(() -> new GL3NanoVGContext(NanoVGGL3.NVG_ANTIALIAS | NanoVGGL3.NVG_STENCIL_STROKES));
+            viewStack.addLayer(stage);
+
+            scenario.build(stage.root, timeline, font);
+
+            WriteOutput output = WriteOutput.flushInto(width, height, createSink(sinkName, scenario.name()), samples)
+                                             .printProgress(false);
+            OutputContext context = new OutputContext(width, height, output, viewStack, timeline, FPS);
+            MemorySampler memory = new MemorySampler();
+            context.getProfiler().addListener(memory);
+
+            context.init();
+            try {
+                context.doFrames(0, frames);
+            } finally {
+                context.cleanup();
+            }
+
+            return StressResult.of(scenario.name(), sinkName, width, height, samples, context.getProfiler(), memory);
+        } finally {
+            font.dispose();
+        }
+    }
+
+    private void report(StressResult result) throws IOException {
+        System.out.printf(
+            "%s (%s sink): %d frames in %.2f s, %.2f fps, peak heap %.1f MB, peak direct %.1f MB, peak RSS %s%n",
+            result.scenario, result.sink, result.frames, result.seconds, result.fps,
+            result.peakHeapBytes / 1048576.0, result.peakDirectBytes / 1048576.0,
+            result.peakResidentBytes < 0 ? "unknown" : String.format("%.1f MB", result.peakResidentBytes / 1048576.0)
+        );
+
+        StressResult baseline = readBaseline(result.key());
+        for (Map.Entry<String, Double> phase : result.phaseMeanMs.entrySet()) {
+            Double base = baseline == null ? null : baseline.phaseMeanMs.get(phase.getKey());
+            System.out.printf("  %-32s %10.3f ms%s%n", phase.getKey(), phase.getValue(), delta(phase.getValue(), base, true));
+        }
+        if (baseline != null) {
+            System.out.printf("  %-32s %10.2f   %s%n", "fps", result.fps, delta(result.fps, baseline.fps, false));
+        }
+
+        write(new File(REPORTS, result.key() + ".json"), result);
+        if (saveBaseline) {
+            write(new File(BASELINES, result.key() + ".json"), result);
+        }
+    }
+
+    // Formats the relative change to a baseline, marking changes over 10% in the wrong direction as regressions
+    private static String delta(double value, Double base, boolean lowerIsBetter) {
+        if (base == null || base == 0) {
+            return "";
+        }
+        double change = (value - base) / base;
+        boolean regression = lowerIsBetter ? change > 0.1 : change < -0.1;
+        return String.format(" (%+.1f%% vs baseline)%s", change * 100, regression ? " REGRESSION" : "");
+    }
+
+    private StressResult readBaseline(String key) throws IOException {
+        File file = new File(BASELINES, key + ".json");
+        if (!file.exists()) {
+            return null;
+        }
+        try (Reader in = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            return gson.fromJson(in, StressResult.class);
+        }
+    }
+
+    private void write(File file, StressResult result) throws IOException {
+        file.getParentFile().mkdirs();
+        try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            gson.toJson(result, out);
+        }
+    }
+
+    private void runAll() throws IOException {
+        for (String name : scenarios) {
+            Scenario scenario = Scenarios.byName(name);
+            for (String sink : sinks) {
+                report(run(scenario, sink));
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        StressSuite suite = new StressSuite();
+        suite.parse(args);
+        suite.runAll();
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.shadew.flow.animation;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimelineSeekTest {
+    private static final int COUNT = 100;
+
+    private float value;
+    private int writes;
+
+    private Timeline timeline(Object settleKey) {
+        Timeline timeline = new Timeline();
+        for (int i = 0; i < COUNT; i++) {
+            FloatPropertyAnimation anim = new FloatPropertyAnimation(() -> value, v -> {
+                value = v;
+                writes++;
+            });
+            anim.target(i).start(i).duration(1);
+            timeline.append(anim.settleKey(settleKey));
+        }
+        return timeline;
+    }
+
+    @Test
+    void seekRunsOnlyLastSettledAnimationOfProperty() {
+        Timeline timeline = timeline("value");
+
+        timeline.seek(COUNT + 0.5);
+        assertEquals(1, writes);
+        assertEquals(COUNT - 1, value);
+
+        timeline.reset();
+        assertEquals(0, value);
+    }
+
+    @Test
+    void seekRunsAllStartedAnimationsWithoutSettleKey() {
+        Timeline timeline = timeline(null);
+
+        timeline.seek(COUNT + 0.5);
+        assertEquals(COUNT, writes);
+        assertEquals(COUNT - 1, value);
+
+        timeline.reset();
+        assertEquals(0, value);
+    }
+
+    @Test
+    void seekMatchesRunningAllAnimations() {
+        Timeline timeline = timeline("value");
+        for (double time = -1; time < COUNT + 1; time += 0.25) {
+            timeline.runAnimations(time);
+            float expected = value;
+            timeline.cleanupAnimations(time);
+
+            timeline.seek(time);
+            assertEquals(expected, value, "At time " + time);
+            timeline.reset();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2021 Shadew
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.shadew.flow.flat.animations;
+
+import org.junit.jupiter.api.Test;
+
+import net.shadew.flow.animation.Timeline;
+import net.shadew.flow.flat.shapes.Circle;
+import net.shadew.flow.flat.shapes.Rectangle;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FloatNodeAnimationTest {
+    private static final int COUNT = 100;
+
+    private int applied;
+
+    @Test
+    void seekRunsOnlyLastSettledAnimationOfProperty() {
+        Rectangle rect = new Rectangle();
+        Timeline timeline = new Timeline();
+        for (int i = 0; i < COUNT; i++) {
+            FloatNodeAnimation anim = new FloatNodeAnimation(rect, Rectangle.WIDTH) {
+                @Override
+                protected void postApply() {
+                    applied++;
+                    super.postApply();
+                }
+            };
+            anim.target(i).start(i).duration(1);
+            timeline.append(anim);
+        }
+
+        timeline.seek(COUNT + 0.5);
+        assertEquals(1, applied);
+        assertEquals(COUNT - 1, rect.getWidth());
+
+        timeline.reset();
+        assertEquals(0, rect.getWidth());
+    }
+
+    @Test
+    void rejectsPropertyOfOtherNodeType() {
+        Rectangle rect = new Rectangle();
+        assertThrows(IllegalArgumentException.class, () -> new FloatNodeAnimation(rect, Circle.RADIUS));
+        assertThrows(IllegalArgumentException.class, () -> rect.getFloat(Circle.RADIUS));
+    }
+}